@@ -0,0 +1,244 @@
+package graphogato.plot;
+
+import java.util.Map;
+
+import graphogato.symbolics.EvaluationContext;
+import graphogato.symbolics.Interval;
+import graphogato.symbolics.IntervalEvaluator;
+import graphogato.symbolics.expressions.Expression;
+
+/**
+ * A sampler that turns a curve into a polyline, spending evaluations only where
+ * they're visible. The curve is first sampled on a coarse grid, and each
+ * interval is split in half for as long as its midpoint is further than a
+ * tolerance (in pixels) from the straight line between its ends.
+ *
+ * <p>
+ * Intervals that still don't look straight at the deepest split are checked
+ * for a discontinuity, by bisecting towards the steepest half a few more
+ * times. If the jump doesn't shrink like it would for a continuous curve (as
+ * across the pole of {@code 1/x} or the step of {@code heaviside(x)}), the
+ * polyline is broken there instead of drawing a vertical line. Non-finite
+ * values also break the polyline, and the curve is refined towards where it
+ * becomes undefined, like {@code ln(x)} as it approaches 0.
+ *
+ * <p>
+ * Before an interval of the grid is refined, the curve is bounded over it with
+ * {@link IntervalEvaluator}. If the bounds are off the viewport or the curve is
+ * undefined across the interval, it isn't refined at all. Curves calling
+ * functions without an interval extension are always refined.
+ *
+ * @author Gavin Borne
+ */
+public final class AdaptiveSampler {
+   /** The tolerance of a sampler created without one, in pixels. */
+   public static final double DEFAULT_TOLERANCE = 0.5;
+   /** The spacing of the coarse grid of a sampler created without one, in pixels. */
+   public static final double DEFAULT_SPACING = 8;
+   /** The deepest split of a sampler created without one. */
+   public static final int DEFAULT_DEPTH = 10;
+
+   // how many more bisections a suspected discontinuity gets
+   private static final int CONTINUITY_STEPS = 16;
+
+   private final double tolerance;
+   private final double spacing;
+   private final int maximumDepth;
+
+   /**
+    * Create a new adaptive sampler with the default settings.
+    */
+   public AdaptiveSampler() {
+      this(DEFAULT_TOLERANCE, DEFAULT_SPACING, DEFAULT_DEPTH);
+   }
+
+   /**
+    * Create a new adaptive sampler.
+    *
+    * @param tolerance    - How far the curve can be from the polyline, in pixels
+    * @param spacing      - The spacing of the coarse grid, in pixels
+    * @param maximumDepth - The most times an interval of the grid can be split
+    */
+   public AdaptiveSampler(double tolerance, double spacing, int maximumDepth) {
+      if (!(tolerance > 0) || !(spacing > 0))
+         throw new IllegalArgumentException("Tolerance and spacing must be positive: " + tolerance + ", " + spacing);
+      if (maximumDepth < 0)
+         throw new IllegalArgumentException("Depth must not be negative: " + maximumDepth);
+      this.tolerance = tolerance;
+      this.spacing = spacing;
+      this.maximumDepth = maximumDepth;
+   }
+
+   /**
+    * Sample the curve y = f(x) of an expression across a viewport.
+    *
+    * @param expression - Expression to sample
+    * @param context    - Context of the evaluation, holding every other variable.
+    *                   It isn't modified.
+    * @param variable   - The variable along the x axis
+    * @param viewport   - The viewport the curve is drawn in
+    * @return The sampled curve
+    */
+   public Polyline sample(Expression expression, EvaluationContext context, String variable, Viewport viewport) {
+      return new Run(expression, context, variable, viewport).sample();
+   }
+
+   /**
+    * The state of sampling one curve.
+    */
+   private final class Run {
+      private final EvaluationContext context;
+      private final Expression expression;
+      private final String variable;
+      private final int slot;
+      private final Viewport viewport;
+      private final Interval visible;
+      private final Polyline.Builder builder = new Polyline.Builder();
+      private int evaluations = 0;
+      // whether the curve can be bounded over intervals
+      private boolean bounded = true;
+
+      Run(Expression expression, EvaluationContext context, String variable, Viewport viewport) {
+         this.context = context.child();
+         this.expression = expression.bind(this.context);
+         this.variable = variable;
+         this.slot = this.context.slot(variable);
+         this.viewport = viewport;
+         this.visible = new Interval(viewport.yMin(), viewport.yMax());
+      }
+
+      Polyline sample() {
+         int intervals = (int) Math.max(1, Math.ceil(viewport.width() / spacing));
+         double a = viewport.xMin();
+         double fa = evaluate(a);
+         emit(a, fa);
+
+         for (int i = 1; i <= intervals; i++) {
+            double b = (i == intervals) ? viewport.xMax() : viewport.toX((double) i * viewport.width() / intervals);
+            double fb = evaluate(b);
+            if (outside(a, b))
+               emit(b, fb);
+            else
+               refine(a, fa, b, fb, 0);
+            a = b;
+            fa = fb;
+         }
+         return builder.build(evaluations);
+      }
+
+      /**
+       * Check whether the curve is off the viewport or undefined everywhere
+       * between two x coordinates, by bounding it over them.
+       */
+      private boolean outside(double a, double b) {
+         if (!bounded)
+            return false;
+         try {
+            Interval range = IntervalEvaluator.evaluate(expression, context, Map.of(variable, new Interval(a, b)));
+            return range.isEmpty() || !range.intersects(visible);
+         } catch (UnsupportedOperationException e) {
+            bounded = false;
+            return false;
+         }
+      }
+
+      private double evaluate(double x) {
+         evaluations++;
+         context.setSlot(slot, x);
+         return expression.evaluate(context);
+      }
+
+      /**
+       * Add a point to the polyline, breaking it if the point is undefined.
+       */
+      private void emit(double x, double y) {
+         if (Double.isFinite(y))
+            builder.point(x, y);
+         else
+            builder.lift();
+      }
+
+      /**
+       * Sample the curve between two points, emitting every point after the
+       * first.
+       */
+      private void refine(double a, double fa, double b, double fb, int depth) {
+         boolean definedA = Double.isFinite(fa), definedB = Double.isFinite(fb);
+         // undefined on both ends, so there's nothing to approach
+         if (!definedA && !definedB) {
+            emit(b, fb);
+            return;
+         }
+
+         if (depth == maximumDepth) {
+            if (definedA && definedB && !continuous(a, fa, b, fb))
+               builder.lift();
+            emit(b, fb);
+            return;
+         }
+
+         double m = a + (b - a) / 2;
+         double fm = evaluate(m);
+         if (definedA && definedB && Double.isFinite(fm) && (straight(a, fa, m, fm, b, fb) || hidden(fa, fm, fb))) {
+            emit(b, fb);
+            return;
+         }
+
+         refine(a, fa, m, fm, depth + 1);
+         refine(m, fm, b, fb, depth + 1);
+      }
+
+      /**
+       * Check whether the midpoint of an interval is within the tolerance of the
+       * line between its ends, measured vertically in pixels. The distance
+       * straight to the line would be small across a jump, where the line is
+       * nearly vertical.
+       */
+      private boolean straight(double a, double fa, double m, double fm, double b, double fb) {
+         double t = (m - a) / (b - a);
+         double line = viewport.toPixelY(fa) + t * (viewport.toPixelY(fb) - viewport.toPixelY(fa));
+         return Math.abs(viewport.toPixelY(fm) - line) <= tolerance;
+      }
+
+      /**
+       * Check whether values are all above or all below the viewport, so the
+       * curve between them can't be seen.
+       */
+      private boolean hidden(double... ys) {
+         boolean above = true, below = true;
+         for (double y : ys) {
+            above &= y > viewport.yMax();
+            below &= y < viewport.yMin();
+         }
+         return above || below;
+      }
+
+      /**
+       * Check whether the curve is continuous between two close points, by
+       * bisecting towards the larger jump until it's within the tolerance.
+       */
+      private boolean continuous(double a, double fa, double b, double fb) {
+         if (hidden(fa, fb))
+            return true;
+
+         for (int i = 0; i < CONTINUITY_STEPS; i++) {
+            double jump = Math.abs(viewport.toPixelY(fb) - viewport.toPixelY(fa));
+            if (jump <= tolerance)
+               return true;
+
+            double m = a + (b - a) / 2;
+            double fm = evaluate(m);
+            if (!Double.isFinite(fm))
+               return false;
+            if (Math.abs(fm - fa) > Math.abs(fb - fm)) {
+               b = m;
+               fb = fm;
+            } else {
+               a = m;
+               fa = fm;
+            }
+         }
+         return Math.abs(viewport.toPixelY(fb) - viewport.toPixelY(fa)) <= tolerance;
+      }
+   }
+}
@@ -0,0 +1,156 @@
+package graphogato.plot;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import graphogato.symbolics.EvaluationContext;
+import graphogato.symbolics.expressions.Expression;
+
+/**
+ * A sampler that evaluates an expression over a whole grid of points on a
+ * {@link ForkJoinPool}, for curves, heatmaps and surfaces. The grid is split in
+ * half until the pieces are no bigger than a tile, and each tile is evaluated
+ * by one worker, writing straight into the output array.
+ *
+ * <p>
+ * Expressions are immutable, so every worker shares the same bound tree, but
+ * each tile gets its own copy of the context, since a context's variables can't
+ * be written from more than one thread at once.
+ *
+ * @author Gavin Borne
+ */
+public final class ParallelSampler {
+   /** The number of samples in a tile of a sampler created without one. */
+   public static final int DEFAULT_TILE_SIZE = 4096;
+
+   private final ForkJoinPool pool;
+   private final int tileSize;
+
+   /**
+    * Create a new parallel sampler on the common pool, with the default tile
+    * size.
+    */
+   public ParallelSampler() {
+      this(ForkJoinPool.commonPool(), DEFAULT_TILE_SIZE);
+   }
+
+   /**
+    * Create a new parallel sampler.
+    *
+    * @param pool     - The pool to evaluate tiles on
+    * @param tileSize - The most samples evaluated by one task
+    */
+   public ParallelSampler(ForkJoinPool pool, int tileSize) {
+      if (tileSize <= 0)
+         throw new IllegalArgumentException("Tile size must be positive: " + tileSize);
+      this.pool = pool;
+      this.tileSize = tileSize;
+   }
+
+   /**
+    * Sample an expression at evenly spaced values of a variable, from the
+    * smallest to the largest value inclusive.
+    *
+    * @param expression - Expression to sample
+    * @param context    - Context of the evaluation, holding every other variable.
+    *                   It isn't modified.
+    * @param variable   - The variable being sampled
+    * @param min        - The smallest value of the variable
+    * @param max        - The largest value of the variable
+    * @param out        - The array to write the samples to; its length is the
+    *                   number of samples
+    */
+   public void sample(Expression expression, EvaluationContext context, String variable, double min, double max,
+         double[] out) {
+      EvaluationContext base = context.child();
+      Expression bound = expression.bind(base);
+      int slot = base.slot(variable);
+      double step = (out.length > 1) ? (max - min) / (out.length - 1) : 0;
+
+      pool.invoke(new Tile(0, out.length, tileSize, (from, to) -> {
+         EvaluationContext local = base.child();
+         for (int i = from; i < to; i++) {
+            local.setSlot(slot, (i == out.length - 1) ? max : min + i * step);
+            out[i] = bound.evaluate(local);
+         }
+      }));
+   }
+
+   /**
+    * Sample an expression of two variables at the center of every pixel of a
+    * viewport, like for a heatmap.
+    *
+    * @param expression - Expression to sample
+    * @param context    - Context of the evaluation, holding every other variable.
+    *                   It isn't modified.
+    * @param xVariable  - The variable along the x axis
+    * @param yVariable  - The variable along the y axis
+    * @param viewport   - The viewport to sample
+    * @param out        - The array to write the samples to, at least as long as
+    *                   the number of pixels. Rows are stored one after another,
+    *                   from the bottom of the viewport up.
+    */
+   public void sample(Expression expression, EvaluationContext context, String xVariable, String yVariable,
+         Viewport viewport, double[] out) {
+      int width = viewport.width();
+      if (out.length < (long) width * viewport.height())
+         throw new IllegalArgumentException("Output is shorter than the viewport: " + out.length + " < " + width
+               + " x " + viewport.height());
+
+      EvaluationContext base = context.child();
+      Expression bound = expression.bind(base);
+      int xSlot = base.slot(xVariable), ySlot = base.slot(yVariable);
+
+      // tiles are runs of whole rows, so each worker sweeps along rows
+      int rows = Math.max(1, tileSize / width);
+      pool.invoke(new Tile(0, viewport.height(), rows, (from, to) -> {
+         EvaluationContext local = base.child();
+         for (int row = from; row < to; row++) {
+            local.setSlot(ySlot, viewport.toY(row + 0.5));
+            int offset = row * width;
+            for (int column = 0; column < width; column++) {
+               local.setSlot(xSlot, viewport.toX(column + 0.5));
+               out[offset + column] = bound.evaluate(local);
+            }
+         }
+      }));
+   }
+
+   /**
+    * Evaluates the samples of a range of indices.
+    */
+   @FunctionalInterface
+   private interface Body {
+      void evaluate(int from, int to);
+   }
+
+   /**
+    * A range of indices that's split in half until it's no bigger than a tile.
+    */
+   private static final class Tile extends RecursiveAction {
+      private static final long serialVersionUID = 1L;
+
+      private final int from;
+      private final int to;
+      private final int size;
+      private final transient Body body;
+
+      Tile(int from, int to, int size, Body body) {
+         this.from = from;
+         this.to = to;
+         this.size = size;
+         this.body = body;
+      }
+
+      @Override
+      protected void compute() {
+         if (to - from <= size) {
+            body.evaluate(from, to);
+            return;
+         }
+
+         int middle = (from + to) >>> 1;
+         invokeAll(new Tile(from, middle, size, body), new Tile(middle, to, size, body));
+      }
+   }
+}
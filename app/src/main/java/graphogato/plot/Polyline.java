@@ -0,0 +1,118 @@
+package graphogato.plot;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A sampled curve, made of segments that are each drawn as one connected line.
+ * The curve is broken into segments wherever it's undefined or jumps, like
+ * across the pole of {@code 1/x}.
+ *
+ * @author Gavin Borne
+ */
+public final class Polyline {
+   private final List<double[]> xs;
+   private final List<double[]> ys;
+   private final int evaluations;
+
+   private Polyline(List<double[]> xs, List<double[]> ys, int evaluations) {
+      this.xs = xs;
+      this.ys = ys;
+      this.evaluations = evaluations;
+   }
+
+   /**
+    * Get the number of segments.
+    *
+    * @return The number of segments
+    */
+   public int segments() {
+      return xs.size();
+   }
+
+   /**
+    * Get the x coordinates of a segment's points, in increasing order.
+    *
+    * @param segment - Index of the segment
+    * @return The x coordinates
+    */
+   public double[] xs(int segment) {
+      return xs.get(segment).clone();
+   }
+
+   /**
+    * Get the y coordinates of a segment's points.
+    *
+    * @param segment - Index of the segment
+    * @return The y coordinates
+    */
+   public double[] ys(int segment) {
+      return ys.get(segment).clone();
+   }
+
+   /**
+    * Get the number of points in every segment.
+    *
+    * @return The number of points
+    */
+   public int size() {
+      int size = 0;
+      for (double[] segment : xs)
+         size += segment.length;
+      return size;
+   }
+
+   /**
+    * Get the number of times the curve was evaluated to sample it.
+    *
+    * @return The number of evaluations
+    */
+   public int evaluations() {
+      return evaluations;
+   }
+
+   /**
+    * Builds a polyline a point at a time.
+    */
+   static final class Builder {
+      private final List<double[]> xs = new ArrayList<>();
+      private final List<double[]> ys = new ArrayList<>();
+      private double[] x = new double[64];
+      private double[] y = new double[64];
+      private int size = 0;
+
+      /**
+       * Add a point to the end of the current segment.
+       *
+       * @param px - X coordinate
+       * @param py - Y coordinate
+       */
+      void point(double px, double py) {
+         if (size == x.length) {
+            x = Arrays.copyOf(x, size * 2);
+            y = Arrays.copyOf(y, size * 2);
+         }
+         x[size] = px;
+         y[size] = py;
+         size++;
+      }
+
+      /**
+       * End the current segment, so the next point starts a new one.
+       */
+      void lift() {
+         // a lone point isn't drawn as a line
+         if (size > 1) {
+            xs.add(Arrays.copyOf(x, size));
+            ys.add(Arrays.copyOf(y, size));
+         }
+         size = 0;
+      }
+
+      Polyline build(int evaluations) {
+         lift();
+         return new Polyline(List.copyOf(xs), List.copyOf(ys), evaluations);
+      }
+   }
+}
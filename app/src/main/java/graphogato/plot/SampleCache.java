@@ -0,0 +1,341 @@
+package graphogato.plot;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import graphogato.symbolics.Builtins;
+import graphogato.symbolics.EvaluationContext;
+import graphogato.symbolics.Function;
+import graphogato.symbolics.expressions.BinaryOperation;
+import graphogato.symbolics.expressions.BoundVariable;
+import graphogato.symbolics.expressions.Expression;
+import graphogato.symbolics.expressions.FunctionCall;
+import graphogato.symbolics.expressions.UnaryOperation;
+import graphogato.symbolics.expressions.Variable;
+
+/**
+ * A bounded, thread-safe cache of curve samples, so that panning and zooming
+ * only evaluates what wasn't on screen before.
+ *
+ * <p>
+ * Curves are sampled at every multiple of a power of two, its level, picked so
+ * there are one to two samples per pixel. The samples of a level are stored in
+ * tiles of {@link #TILE_SIZE} consecutive multiples. Since the grids are
+ * aligned, panning hits every tile still in view, and only the tiles of the
+ * newly exposed strip are evaluated. Each sample of a level is also a sample
+ * of the level below it, so a missing tile takes every sample it can from the
+ * tiles of the levels above and below: zooming in evaluates only half of each
+ * new tile, and zooming out over tiles already sampled evaluates nothing.
+ *
+ * <p>
+ * Tiles are keyed by the expression, the variable it's sampled along, and the
+ * values of the other variables and the definitions of the functions it uses,
+ * so changing anything else in the context still hits. The least recently used
+ * tiles are evicted once the cache is over its memory budget.
+ *
+ * @author Gavin Borne
+ */
+public final class SampleCache {
+   /** The number of samples in a tile. */
+   public static final int TILE_SIZE = 256;
+   /** The memory budget of a cache created without one, in bytes. */
+   public static final long DEFAULT_BUDGET = 16L << 20;
+
+   // the samples of a tile, plus a rough cost of its array, key and map entry
+   private static final long TILE_BYTES = TILE_SIZE * Double.BYTES + 128;
+
+   private final long budget;
+   private final LinkedHashMap<Tile, double[]> tiles;
+   private long hits = 0;
+   private long misses = 0;
+   private long evictions = 0;
+   private long evaluations = 0;
+
+   /**
+    * Create a new sample cache with a budget of {@link #DEFAULT_BUDGET}.
+    */
+   public SampleCache() {
+      this(DEFAULT_BUDGET);
+   }
+
+   /**
+    * Create a new sample cache.
+    *
+    * @param budget - The most memory the samples can take, in bytes
+    */
+   public SampleCache(long budget) {
+      if (budget < TILE_BYTES)
+         throw new IllegalArgumentException("Budget is too small to hold a tile: " + budget);
+      this.budget = budget;
+      this.tiles = new LinkedHashMap<>(16, 0.75f, true) {
+         @Override
+         protected boolean removeEldestEntry(Map.Entry<Tile, double[]> eldest) {
+            if (size() * TILE_BYTES <= SampleCache.this.budget)
+               return false;
+            evictions++;
+            return true;
+         }
+      };
+   }
+
+   /**
+    * Sample the curve y = f(x) of an expression across a viewport, at one to
+    * two samples per pixel. The polyline is broken wherever the curve isn't
+    * finite.
+    *
+    * @param expression - Expression to sample
+    * @param context    - Context of the evaluation, holding every other variable.
+    *                   It isn't modified.
+    * @param variable   - The variable along the x axis
+    * @param viewport   - The viewport the curve is drawn in
+    * @return The sampled curve, whose evaluations only count the samples that
+    *         weren't cached
+    */
+   public Polyline sample(Expression expression, EvaluationContext context, String variable, Viewport viewport) {
+      int level = level(viewport);
+      double spacing = Math.scalb(1.0, level);
+      long first = (long) Math.floor(viewport.xMin() / spacing);
+      long last = (long) Math.ceil(viewport.xMax() / spacing);
+
+      Run run = new Run(expression, context, variable, level);
+      Polyline.Builder builder = new Polyline.Builder();
+      for (long index = Math.floorDiv(first, TILE_SIZE); index <= Math.floorDiv(last, TILE_SIZE); index++) {
+         double[] samples = run.tile(index);
+         long start = index * TILE_SIZE;
+         for (long k = Math.max(first, start); k <= Math.min(last, start + TILE_SIZE - 1); k++) {
+            double y = samples[(int) (k - start)];
+            if (Double.isFinite(y))
+               builder.point(k * spacing, y);
+            else
+               builder.lift();
+         }
+      }
+      return builder.build(run.evaluations);
+   }
+
+   /**
+    * Get the number of tiles found in the cache.
+    *
+    * @return The number of hits
+    */
+   public synchronized long hits() {
+      return hits;
+   }
+
+   /**
+    * Get the number of tiles that weren't found in the cache and had to be
+    * sampled.
+    *
+    * @return The number of misses
+    */
+   public synchronized long misses() {
+      return misses;
+   }
+
+   /**
+    * Get the fraction of tiles found in the cache.
+    *
+    * @return The hit rate, or 0 if nothing has been sampled
+    */
+   public synchronized double hitRate() {
+      long lookups = hits + misses;
+      return (lookups == 0) ? 0 : (double) hits / lookups;
+   }
+
+   /**
+    * Get the number of tiles removed to stay within the budget.
+    *
+    * @return The number of evictions
+    */
+   public synchronized long evictions() {
+      return evictions;
+   }
+
+   /**
+    * Get the number of samples evaluated for tiles that missed, leaving out the
+    * ones taken from other levels.
+    *
+    * @return The number of evaluations
+    */
+   public synchronized long evaluations() {
+      return evaluations;
+   }
+
+   /**
+    * Get the number of tiles in the cache.
+    *
+    * @return The size of the cache
+    */
+   public synchronized int size() {
+      return tiles.size();
+   }
+
+   /**
+    * Get the memory taken by the tiles in the cache, roughly.
+    *
+    * @return The size of the cache, in bytes
+    */
+   public synchronized long bytes() {
+      return tiles.size() * TILE_BYTES;
+   }
+
+   /**
+    * Get the most memory the samples can take.
+    *
+    * @return The budget, in bytes
+    */
+   public long budget() {
+      return budget;
+   }
+
+   /**
+    * Remove every tile from the cache. The counters are kept.
+    */
+   public synchronized void clear() {
+      tiles.clear();
+   }
+
+   /**
+    * Get the level a viewport is sampled at: the largest power of two no wider
+    * than a pixel.
+    *
+    * @param viewport - Viewport
+    * @return The level
+    */
+   static int level(Viewport viewport) {
+      return Math.getExponent((viewport.xMax() - viewport.xMin()) / viewport.width());
+   }
+
+   /**
+    * The tiles of one call to {@link SampleCache#sample}.
+    */
+   private final class Run {
+      private final Expression expression;
+      private final EvaluationContext context;
+      private final String variable;
+      private final Curve curve;
+      private final int level;
+      private EvaluationContext local;
+      private Expression bound;
+      private int slot;
+      private int evaluations = 0;
+
+      Run(Expression expression, EvaluationContext context, String variable, int level) {
+         this.expression = expression;
+         this.context = context;
+         this.variable = variable;
+         this.level = level;
+         Map<String, Object> bindings = new HashMap<>();
+         collect(expression, context, variable, bindings);
+         this.curve = new Curve(expression, variable, bindings);
+      }
+
+      /**
+       * Get the samples of a tile of this run's level, sampling it if it isn't
+       * in the cache.
+       *
+       * @param index - Index of the tile
+       * @return The samples
+       */
+      double[] tile(long index) {
+         Tile key = new Tile(curve, level, index);
+         synchronized (SampleCache.this) {
+            double[] cached = tiles.get(key);
+            if (cached != null) {
+               hits++;
+               return cached;
+            }
+            misses++;
+         }
+
+         // every other sample of the tiles below, or every even sample of the
+         // tile above, is already known
+         double[] left = peek(new Tile(curve, level - 1, 2 * index));
+         double[] right = peek(new Tile(curve, level - 1, 2 * index + 1));
+         double[] above = peek(new Tile(curve, level + 1, Math.floorDiv(index, 2)));
+         int offset = Math.floorMod(index, 2) * (TILE_SIZE / 2);
+
+         double[] samples = new double[TILE_SIZE];
+         double spacing = Math.scalb(1.0, level);
+         long start = index * TILE_SIZE;
+         int count = 0;
+         for (int i = 0; i < TILE_SIZE; i++) {
+            double[] below = (i < TILE_SIZE / 2) ? left : right;
+            if (below != null) {
+               samples[i] = below[2 * i % TILE_SIZE];
+            } else if (above != null && (i & 1) == 0) {
+               samples[i] = above[offset + i / 2];
+            } else {
+               if (bound == null) {
+                  local = context.child();
+                  bound = expression.bind(local);
+                  slot = local.slot(variable);
+               }
+               local.setSlot(slot, (start + i) * spacing);
+               samples[i] = bound.evaluate(local);
+               count++;
+            }
+         }
+
+         // sampled outside the lock so a slow curve doesn't hold up every other
+         // thread; two threads missing on the same tile sample the same values
+         evaluations += count;
+         synchronized (SampleCache.this) {
+            SampleCache.this.evaluations += count;
+            tiles.putIfAbsent(key, samples);
+         }
+         return samples;
+      }
+
+      private double[] peek(Tile key) {
+         synchronized (SampleCache.this) {
+            return tiles.get(key);
+         }
+      }
+   }
+
+   /**
+    * Collect the values of the variables and the definitions of the functions
+    * an expression uses, other than the sampled variable.
+    *
+    * @param expression - Expression
+    * @param context    - Context of the evaluation
+    * @param variable   - The sampled variable
+    * @param bindings   - The map to add the bindings to, with functions keyed by
+    *                   their name followed by parentheses
+    */
+   private static void collect(Expression expression, EvaluationContext context, String variable,
+         Map<String, Object> bindings) {
+      if (expression instanceof Variable var) {
+         if (!var.name().equals(variable))
+            bindings.put(var.name(), context.variables().get(var.name()));
+      } else if (expression instanceof BoundVariable var) {
+         if (!var.name().equals(variable))
+            bindings.put(var.name(), context.variables().get(var.name()));
+      } else if (expression instanceof UnaryOperation unary) {
+         collect(unary.expression(), context, variable, bindings);
+      } else if (expression instanceof BinaryOperation binary) {
+         collect(binary.left(), context, variable, bindings);
+         collect(binary.right(), context, variable, bindings);
+      } else if (expression instanceof FunctionCall call) {
+         Function definition = context.functions().getOrDefault(call.name, Builtins.get(call.name));
+         bindings.put(call.name + "()", definition);
+         for (Expression argument : call.arguments)
+            collect(argument, context, variable, bindings);
+      }
+   }
+
+   /**
+    * A curve: an expression sampled along a variable, with the bindings of
+    * everything else it uses.
+    */
+   private record Curve(Expression expression, String variable, Map<String, Object> bindings) {
+   }
+
+   /**
+    * A tile of samples of a curve.
+    */
+   private record Tile(Curve curve, int level, long index) {
+   }
+}
@@ -0,0 +1,63 @@
+package graphogato.plot;
+
+/**
+ * The region of the plane shown on screen, and the size of the screen area it's
+ * drawn to.
+ *
+ * @param xMin   - The smallest x shown
+ * @param xMax   - The largest x shown
+ * @param yMin   - The smallest y shown
+ * @param yMax   - The largest y shown
+ * @param width  - The width of the screen area, in pixels
+ * @param height - The height of the screen area, in pixels
+ * @author Gavin Borne
+ */
+public record Viewport(double xMin, double xMax, double yMin, double yMax, int width, int height) {
+   public Viewport {
+      if (!(xMin < xMax) || !(yMin < yMax) || !Double.isFinite(xMax - xMin) || !Double.isFinite(yMax - yMin))
+         throw new IllegalArgumentException(
+               "Invalid viewport range: [" + xMin + ", " + xMax + "] x [" + yMin + ", " + yMax + "]");
+      if (width <= 0 || height <= 0)
+         throw new IllegalArgumentException("Viewport size must be positive: " + width + " x " + height);
+   }
+
+   /**
+    * Convert an x coordinate to a horizontal pixel offset from the left edge.
+    *
+    * @param x - X coordinate
+    * @return The pixel offset
+    */
+   public double toPixelX(double x) {
+      return (x - xMin) / (xMax - xMin) * width;
+   }
+
+   /**
+    * Convert a y coordinate to a vertical pixel offset from the bottom edge.
+    *
+    * @param y - Y coordinate
+    * @return The pixel offset
+    */
+   public double toPixelY(double y) {
+      return (y - yMin) / (yMax - yMin) * height;
+   }
+
+   /**
+    * Convert a horizontal pixel offset from the left edge to an x coordinate.
+    *
+    * @param pixel - Pixel offset
+    * @return The x coordinate
+    */
+   public double toX(double pixel) {
+      return xMin + pixel / width * (xMax - xMin);
+   }
+
+   /**
+    * Convert a vertical pixel offset from the bottom edge to a y coordinate.
+    *
+    * @param pixel - Pixel offset
+    * @return The y coordinate
+    */
+   public double toY(double pixel) {
+      return yMin + pixel / height * (yMax - yMin);
+   }
+}
@@ -0,0 +1,179 @@
+package graphogato.storage;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import graphogato.symbolics.NodeFactory;
+import graphogato.symbolics.expressions.BinaryOperation.BinaryOperator;
+import graphogato.symbolics.expressions.Expression;
+import graphogato.symbolics.expressions.UnaryOperation.UnaryOperator;
+
+/**
+ * Reads expressions and variable bindings written by {@link Encoder}, in one
+ * pass from the start of the data to the end. Nodes are rebuilt through
+ * {@link NodeFactory}, so they're hash-consed like parsed expressions, but
+ * nothing is parsed or simplified.
+ *
+ * @author Gavin Borne
+ */
+final class Decoder {
+   private final byte[] data;
+   private int position = 0;
+   private final List<Expression> roots;
+   private final Map<String, Double> bindings;
+
+   /**
+    * Decode data in the binary format.
+    *
+    * @param data - The encoded bytes
+    */
+   Decoder(byte[] data) {
+      this.data = data;
+
+      for (byte b : Encoder.MAGIC) {
+         if (read() != b)
+            throw new IllegalArgumentException("Not an expression file: bad magic number");
+      }
+      int version = read();
+      if (version != Encoder.VERSION)
+         throw new IllegalArgumentException("Unsupported format version: " + version);
+
+      String[] symbols = new String[count()];
+      for (int i = 0; i < symbols.length; i++) {
+         int length = count();
+         if (length > data.length - position)
+            throw new IllegalArgumentException("Unexpected end of data");
+         symbols[i] = new String(data, position, length, StandardCharsets.UTF_8);
+         position += length;
+      }
+
+      double[] constants = new double[count()];
+      for (int i = 0; i < constants.length; i++)
+         constants[i] = constant();
+
+      Expression[] nodes = new Expression[count()];
+      for (int i = 0; i < nodes.length; i++)
+         nodes[i] = node(nodes, i, symbols, constants);
+
+      Expression[] roots = new Expression[count()];
+      for (int i = 0; i < roots.length; i++)
+         roots[i] = nodes[index(nodes.length)];
+      this.roots = List.of(roots);
+
+      int count = count();
+      Map<String, Double> bindings = new LinkedHashMap<>();
+      for (int i = 0; i < count; i++) {
+         String name = symbols[index(symbols.length)];
+         bindings.put(name, constants[index(constants.length)]);
+      }
+      this.bindings = Collections.unmodifiableMap(bindings);
+
+      if (position != data.length)
+         throw new IllegalArgumentException("Trailing data after " + position + " bytes");
+   }
+
+   /**
+    * Get the root expressions, in the order they were written.
+    *
+    * @return The roots
+    */
+   List<Expression> roots() {
+      return roots;
+   }
+
+   /**
+    * Get the variable bindings, in the order they were written.
+    *
+    * @return A map of variable names to values
+    */
+   Map<String, Double> bindings() {
+      return bindings;
+   }
+
+   private Expression node(Expression[] nodes, int index, String[] symbols, double[] constants) {
+      int opcode = read();
+      return switch (opcode) {
+         case Encoder.CONSTANT -> NodeFactory.constant(constants[index(constants.length)]);
+         case Encoder.VARIABLE -> NodeFactory.variable(symbols[index(symbols.length)]);
+         case Encoder.NEGATE -> NodeFactory.unary(UnaryOperator.NEGATE, child(nodes, index));
+         case Encoder.ADD, Encoder.SUBTRACT, Encoder.MULTIPLY, Encoder.DIVIDE, Encoder.EXPONENTIATE -> {
+            Expression left = child(nodes, index);
+            Expression right = child(nodes, index);
+            yield NodeFactory.binary(switch (opcode) {
+               case Encoder.ADD -> BinaryOperator.ADD;
+               case Encoder.SUBTRACT -> BinaryOperator.SUBTRACT;
+               case Encoder.MULTIPLY -> BinaryOperator.MULTIPLY;
+               case Encoder.DIVIDE -> BinaryOperator.DIVIDE;
+               default -> BinaryOperator.EXPONENTIATE;
+            }, left, right);
+         }
+         case Encoder.CALL -> {
+            String name = symbols[index(symbols.length)];
+            Expression[] arguments = new Expression[count()];
+            for (int i = 0; i < arguments.length; i++)
+               arguments[i] = child(nodes, index);
+            yield NodeFactory.call(name, Arrays.asList(arguments));
+         }
+         default -> throw new IllegalArgumentException("Unknown opcode " + opcode + " at byte " + (position - 1));
+      };
+   }
+
+   private Expression child(Expression[] nodes, int index) {
+      long distance = varint();
+      if (distance < 1 || distance > index)
+         throw new IllegalArgumentException("Invalid node reference at byte " + position);
+      return nodes[index - (int) distance];
+   }
+
+   private double constant() {
+      int tag = read();
+      if (tag == Encoder.INTEGER) {
+         long zigzag = varint();
+         return (double) ((zigzag >>> 1) ^ -(zigzag & 1));
+      }
+      if (tag != Encoder.DOUBLE)
+         throw new IllegalArgumentException("Unknown constant tag " + tag + " at byte " + (position - 1));
+
+      long bits = 0;
+      for (int shift = 0; shift < 64; shift += 8)
+         bits |= (long) (read() & 0xFF) << shift;
+      return Double.longBitsToDouble(bits);
+   }
+
+   private int count() {
+      long count = varint();
+      // every counted item takes at least a byte, which catches garbage counts
+      // before they're allocated
+      if (count < 0 || count > data.length - position)
+         throw new IllegalArgumentException("Invalid count at byte " + position);
+      return (int) count;
+   }
+
+   private int index(int size) {
+      long index = varint();
+      if (index < 0 || index >= size)
+         throw new IllegalArgumentException("Index out of range at byte " + position + ": " + index);
+      return (int) index;
+   }
+
+   private long varint() {
+      long value = 0;
+      for (int shift = 0; shift < 64; shift += 7) {
+         int b = read();
+         value |= (long) (b & 0x7F) << shift;
+         if ((b & 0x80) == 0)
+            return value;
+      }
+      throw new IllegalArgumentException("Varint too long at byte " + position);
+   }
+
+   private int read() {
+      if (position >= data.length)
+         throw new IllegalArgumentException("Unexpected end of data");
+      return data[position++];
+   }
+}
@@ -0,0 +1,238 @@
+package graphogato.storage;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+import graphogato.symbolics.expressions.BinaryOperation;
+import graphogato.symbolics.expressions.BoundVariable;
+import graphogato.symbolics.expressions.Constant;
+import graphogato.symbolics.expressions.Expression;
+import graphogato.symbolics.expressions.FunctionCall;
+import graphogato.symbolics.expressions.UnaryOperation;
+import graphogato.symbolics.expressions.Variable;
+
+/**
+ * Writes expressions and variable bindings in the binary format read by
+ * {@link Decoder}.
+ *
+ * <p>
+ * The format is, in order:
+ * <ul>
+ * <li>The magic bytes {@code GRPH} and a version byte</li>
+ * <li>The symbol table: a count, then each symbol's length and UTF-8 bytes</li>
+ * <li>The constant pool: a count, then each constant, either as a tag of 0 and
+ * a zigzag varint for integers, or a tag of 1 and its 8 bytes</li>
+ * <li>The nodes: a count, then each node's opcode and operands, with every
+ * node after the nodes it refers to</li>
+ * <li>The roots: a count, then the index of each root node</li>
+ * <li>The bindings: a count, then each variable's symbol and constant</li>
+ * </ul>
+ * Every count and index is an unsigned varint, and nodes refer to their
+ * children by how many nodes back they are, which keeps the varints short.
+ * Each node object is written once, so subtrees shared by hash-consing are
+ * written once too.
+ *
+ * @author Gavin Borne
+ */
+final class Encoder {
+   static final byte[] MAGIC = { 'G', 'R', 'P', 'H' };
+   static final int VERSION = 1;
+
+   static final int CONSTANT = 0;
+   static final int VARIABLE = 1;
+   static final int NEGATE = 2;
+   static final int ADD = 3;
+   static final int SUBTRACT = 4;
+   static final int MULTIPLY = 5;
+   static final int DIVIDE = 6;
+   static final int EXPONENTIATE = 7;
+   static final int CALL = 8;
+
+   static final int INTEGER = 0;
+   static final int DOUBLE = 1;
+
+   private final Map<String, Integer> symbols = new HashMap<>();
+   private final Map<Long, Integer> constants = new HashMap<>();
+   private final Map<Expression, Integer> nodes = new IdentityHashMap<>();
+   private final Buffer symbolBytes = new Buffer();
+   private final Buffer constantBytes = new Buffer();
+   private final Buffer nodeBytes = new Buffer();
+   private final Buffer rootBytes = new Buffer();
+   private final Buffer bindingBytes = new Buffer();
+   private int roots = 0;
+   private int bindings = 0;
+
+   /**
+    * Add a root expression.
+    *
+    * @param expression - Expression
+    */
+   void root(Expression expression) {
+      rootBytes.varint(node(expression));
+      roots++;
+   }
+
+   /**
+    * Add a variable binding.
+    *
+    * @param name  - Name of the variable
+    * @param value - Value of the variable
+    */
+   void binding(String name, double value) {
+      bindingBytes.varint(symbol(name));
+      bindingBytes.varint(constant(value));
+      bindings++;
+   }
+
+   /**
+    * Get everything added so far in the binary format.
+    *
+    * @return The encoded bytes
+    */
+   byte[] toBytes() {
+      Buffer out = new Buffer();
+      out.bytes(MAGIC, 0, MAGIC.length);
+      out.write(VERSION);
+      out.varint(symbols.size());
+      out.append(symbolBytes);
+      out.varint(constants.size());
+      out.append(constantBytes);
+      out.varint(nodes.size());
+      out.append(nodeBytes);
+      out.varint(roots);
+      out.append(rootBytes);
+      out.varint(bindings);
+      out.append(bindingBytes);
+      return out.toByteArray();
+   }
+
+   private int node(Expression expression) {
+      Integer existing = nodes.get(expression);
+      if (existing != null)
+         return existing;
+
+      // children first, so the reader never looks ahead
+      if (expression instanceof Constant constant) {
+         int index = constant(constant.value());
+         nodeBytes.write(CONSTANT);
+         nodeBytes.varint(index);
+      } else if (expression instanceof Variable var) {
+         int index = symbol(var.name());
+         nodeBytes.write(VARIABLE);
+         nodeBytes.varint(index);
+      } else if (expression instanceof BoundVariable var) {
+         // slots belong to a context, so bound variables are saved by name
+         int index = symbol(var.name());
+         nodeBytes.write(VARIABLE);
+         nodeBytes.varint(index);
+      } else if (expression instanceof UnaryOperation unary) {
+         int operand = node(unary.expression());
+         nodeBytes.write(switch (unary.operator()) {
+            case NEGATE -> NEGATE;
+         });
+         nodeBytes.varint(nodes.size() - operand);
+      } else if (expression instanceof BinaryOperation binary) {
+         int left = node(binary.left());
+         int right = node(binary.right());
+         nodeBytes.write(switch (binary.operator()) {
+            case ADD -> ADD;
+            case SUBTRACT -> SUBTRACT;
+            case MULTIPLY -> MULTIPLY;
+            case DIVIDE -> DIVIDE;
+            case EXPONENTIATE -> EXPONENTIATE;
+         });
+         nodeBytes.varint(nodes.size() - left);
+         nodeBytes.varint(nodes.size() - right);
+      } else if (expression instanceof FunctionCall call) {
+         int[] arguments = new int[call.arguments.size()];
+         for (int i = 0; i < arguments.length; i++)
+            arguments[i] = node(call.arguments.get(i));
+         int index = symbol(call.name);
+         nodeBytes.write(CALL);
+         nodeBytes.varint(index);
+         nodeBytes.varint(arguments.length);
+         for (int argument : arguments)
+            nodeBytes.varint(nodes.size() - argument);
+      } else {
+         throw new IllegalArgumentException("Cannot encode expression: " + expression);
+      }
+
+      int index = nodes.size();
+      nodes.put(expression, index);
+      return index;
+   }
+
+   private int symbol(String name) {
+      Integer existing = symbols.get(name);
+      if (existing != null)
+         return existing;
+
+      byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+      symbolBytes.varint(bytes.length);
+      symbolBytes.bytes(bytes, 0, bytes.length);
+      int index = symbols.size();
+      symbols.put(name, index);
+      return index;
+   }
+
+   private int constant(double value) {
+      long bits = Double.doubleToRawLongBits(value);
+      Integer existing = constants.get(bits);
+      if (existing != null)
+         return existing;
+
+      // most constants typed in are small integers, which fit in a byte or two
+      long integer = (long) value;
+      if (integer == value && bits != Double.doubleToRawLongBits(-0.0) && Math.abs(integer) < (1L << 53)) {
+         constantBytes.write(INTEGER);
+         constantBytes.varint((integer << 1) ^ (integer >> 63));
+      } else {
+         constantBytes.write(DOUBLE);
+         for (int shift = 0; shift < 64; shift += 8)
+            constantBytes.write((int) (bits >>> shift));
+      }
+      int index = constants.size();
+      constants.put(bits, index);
+      return index;
+   }
+
+   /**
+    * A growable array of bytes.
+    */
+   private static final class Buffer {
+      private byte[] bytes = new byte[64];
+      private int size = 0;
+
+      void write(int b) {
+         if (size == bytes.length)
+            bytes = Arrays.copyOf(bytes, size * 2);
+         bytes[size++] = (byte) b;
+      }
+
+      void varint(long value) {
+         while ((value & ~0x7FL) != 0) {
+            write((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+         }
+         write((int) value);
+      }
+
+      void bytes(byte[] source, int offset, int length) {
+         if (size + length > bytes.length)
+            bytes = Arrays.copyOf(bytes, Math.max(size + length, size * 2));
+         System.arraycopy(source, offset, bytes, size, length);
+         size += length;
+      }
+
+      void append(Buffer other) {
+         bytes(other.bytes, 0, other.size);
+      }
+
+      byte[] toByteArray() {
+         return Arrays.copyOf(bytes, size);
+      }
+   }
+}
@@ -0,0 +1,64 @@
+package graphogato.storage;
+
+import java.util.List;
+
+import graphogato.symbolics.expressions.Expression;
+
+/**
+ * Converts expressions to and from a compact binary format, which is much
+ * faster to load than parsing text. Nodes are written once each, with their
+ * names and constants pooled, and constants are stored exactly.
+ *
+ * @author Gavin Borne
+ */
+public final class ExpressionCodec {
+   private ExpressionCodec() {
+   }
+
+   /**
+    * Encode an expression.
+    *
+    * @param expression - Expression to encode
+    * @return The encoded bytes
+    */
+   public static byte[] encode(Expression expression) {
+      return encode(List.of(expression));
+   }
+
+   /**
+    * Encode a list of expressions together, so the subtrees and names they
+    * share are only written once.
+    *
+    * @param expressions - Expressions to encode
+    * @return The encoded bytes
+    */
+   public static byte[] encode(List<Expression> expressions) {
+      Encoder encoder = new Encoder();
+      for (Expression expression : expressions)
+         encoder.root(expression);
+      return encoder.toBytes();
+   }
+
+   /**
+    * Decode a single expression.
+    *
+    * @param data - The encoded bytes
+    * @return The expression
+    */
+   public static Expression decode(byte[] data) {
+      List<Expression> expressions = decodeAll(data);
+      if (expressions.size() != 1)
+         throw new IllegalArgumentException("Expected one expression, got " + expressions.size());
+      return expressions.get(0);
+   }
+
+   /**
+    * Decode a list of expressions.
+    *
+    * @param data - The encoded bytes
+    * @return The expressions, in the order they were encoded
+    */
+   public static List<Expression> decodeAll(byte[] data) {
+      return new Decoder(data).roots();
+   }
+}
@@ -0,0 +1,96 @@
+package graphogato.storage;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import graphogato.symbolics.EvaluationContext;
+import graphogato.symbolics.expressions.Expression;
+
+/**
+ * A saved worksheet: a list of expressions and the values of the variables
+ * they're evaluated with. Worksheets are stored in the binary format of
+ * {@link ExpressionCodec}, with the bindings after the expressions.
+ *
+ * @param expressions - The expressions, in order
+ * @param variables   - A map of variable names to values, in order
+ * @author Gavin Borne
+ */
+public record Worksheet(List<Expression> expressions, Map<String, Double> variables) {
+   public Worksheet {
+      expressions = List.copyOf(expressions);
+      variables = Collections.unmodifiableMap(new LinkedHashMap<>(variables));
+   }
+
+   /**
+    * Create a worksheet of expressions with the variables of a context.
+    *
+    * @param expressions - The expressions
+    * @param context     - The context holding the variables
+    * @return The worksheet
+    */
+   public static Worksheet of(List<Expression> expressions, EvaluationContext context) {
+      return new Worksheet(expressions, context.variables());
+   }
+
+   /**
+    * Create a frozen context holding the builtins and this worksheet's
+    * variables.
+    *
+    * @return The context
+    */
+   public EvaluationContext context() {
+      EvaluationContext.Builder builder = EvaluationContext.withBuiltins().extend();
+      variables.forEach(builder::variable);
+      return builder.build();
+   }
+
+   /**
+    * Encode this worksheet.
+    *
+    * @return The encoded bytes
+    */
+   public byte[] toBytes() {
+      Encoder encoder = new Encoder();
+      for (Expression expression : expressions)
+         encoder.root(expression);
+      variables.forEach(encoder::binding);
+      return encoder.toBytes();
+   }
+
+   /**
+    * Decode a worksheet.
+    *
+    * @param data - The encoded bytes
+    * @return The worksheet
+    */
+   public static Worksheet fromBytes(byte[] data) {
+      Decoder decoder = new Decoder(data);
+      return new Worksheet(decoder.roots(), decoder.bindings());
+   }
+
+   /**
+    * Write this worksheet to a file, replacing it if it exists.
+    *
+    * @param path - Path of the file
+    * @throws IOException If the file can't be written
+    */
+   public void write(Path path) throws IOException {
+      Files.write(path, toBytes());
+   }
+
+   /**
+    * Read a worksheet from a file.
+    *
+    * @param path - Path of the file
+    * @return The worksheet
+    * @throws IOException If the file can't be read
+    */
+   public static Worksheet read(Path path) throws IOException {
+      return fromBytes(Files.readAllBytes(path));
+   }
+}
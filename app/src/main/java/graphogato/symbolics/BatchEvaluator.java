@@ -0,0 +1,193 @@
+package graphogato.symbolics;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.DoubleBinaryOperator;
+import java.util.function.DoubleUnaryOperator;
+
+import graphogato.symbolics.expressions.BinaryOperation;
+import graphogato.symbolics.expressions.BoundVariable;
+import graphogato.symbolics.expressions.Constant;
+import graphogato.symbolics.expressions.Expression;
+import graphogato.symbolics.expressions.FunctionCall;
+import graphogato.symbolics.expressions.UnaryOperation;
+import graphogato.symbolics.expressions.Variable;
+
+/**
+ * An evaluator that evaluates an expression over a whole column of samples at
+ * once. Each node of the tree is visited once per column instead of once per
+ * sample, and operators run as tight loops over arrays.
+ *
+ * <p>
+ * Temporary columns are pooled by the evaluator, so repeatedly evaluating
+ * columns of the same size allocates nothing after the first call. Because of
+ * this, a batch evaluator must not be shared between threads.
+ *
+ * @author Gavin Borne
+ */
+public final class BatchEvaluator {
+   private final ArrayDeque<double[]> buffers = new ArrayDeque<>();
+   // the columns and values of calls to variadic functions, by argument count,
+   // since the functions see exactly as many values as arguments
+   private final Map<Integer, ArrayDeque<double[][]>> columnLists = new HashMap<>();
+   private final Map<Integer, ArrayDeque<double[]>> argumentLists = new HashMap<>();
+
+   /**
+    * Evaluate an expression for every sample of a variable.
+    *
+    * @param expression - Expression to evaluate
+    * @param context    - Context of the evaluation, holding every other variable
+    * @param variable   - The variable being sampled
+    * @param xs         - The samples of the variable
+    * @param out        - The array to write the results to, at least as long as
+    *                   the samples. It can't be the samples themselves, since
+    *                   they're read after results are written.
+    */
+   public void evaluate(Expression expression, EvaluationContext context, String variable, double[] xs,
+         double[] out) {
+      if (out.length < xs.length)
+         throw new IllegalArgumentException("Output is shorter than the samples: " + out.length + " < " + xs.length);
+      if (out == xs)
+         throw new IllegalArgumentException("Output must not be the samples");
+      evaluate(expression, context, variable, xs, out, xs.length);
+   }
+
+   private void evaluate(Expression expression, EvaluationContext context, String variable, double[] xs,
+         double[] out, int length) {
+      if (expression instanceof Constant constant) {
+         Arrays.fill(out, 0, length, constant.value());
+      } else if (expression instanceof Variable var) {
+         if (var.name().equals(variable))
+            System.arraycopy(xs, 0, out, 0, length);
+         else
+            Arrays.fill(out, 0, length, var.evaluate(context));
+      } else if (expression instanceof BoundVariable var) {
+         if (var.name().equals(variable))
+            System.arraycopy(xs, 0, out, 0, length);
+         else
+            Arrays.fill(out, 0, length, var.evaluate(context));
+      } else if (expression instanceof UnaryOperation unary) {
+         evaluate(unary.expression(), context, variable, xs, out, length);
+         switch (unary.operator()) {
+            case NEGATE -> {
+               for (int i = 0; i < length; i++)
+                  out[i] = -out[i];
+            }
+         }
+      } else if (expression instanceof BinaryOperation binary) {
+         evaluateBinary(binary, context, variable, xs, out, length);
+      } else if (expression instanceof FunctionCall call) {
+         evaluateCall(call, context, variable, xs, out, length);
+      } else {
+         // unknown node types are sampled one by one
+         EvaluationContext local = context.child();
+         for (int i = 0; i < length; i++) {
+            local.variables().put(variable, xs[i]);
+            out[i] = expression.evaluate(local);
+         }
+      }
+   }
+
+   private void evaluateBinary(BinaryOperation binary, EvaluationContext context, String variable, double[] xs,
+         double[] out, int length) {
+      double[] right = acquire(length);
+      evaluate(binary.left(), context, variable, xs, out, length);
+      evaluate(binary.right(), context, variable, xs, right, length);
+
+      switch (binary.operator()) {
+         case ADD -> {
+            for (int i = 0; i < length; i++)
+               out[i] += right[i];
+         }
+         case SUBTRACT -> {
+            for (int i = 0; i < length; i++)
+               out[i] -= right[i];
+         }
+         case MULTIPLY -> {
+            for (int i = 0; i < length; i++)
+               out[i] *= right[i];
+         }
+         case DIVIDE -> {
+            for (int i = 0; i < length; i++)
+               out[i] /= right[i];
+         }
+         case EXPONENTIATE -> {
+            for (int i = 0; i < length; i++)
+               out[i] = Math.pow(out[i], right[i]);
+         }
+      }
+      release(right);
+   }
+
+   private void evaluateCall(FunctionCall call, EvaluationContext context, String variable, double[] xs,
+         double[] out, int length) {
+      Function definition = context.functions().getOrDefault(call.name, Builtins.get(call.name));
+
+      if (definition == null)
+         throw new IllegalStateException("Unknown function: " + call.name);
+      if (definition.arity >= 0 && definition.arity != call.arguments.size())
+         throw new IllegalStateException("Arity mismatch for " + call.name + ": expected " + definition.arity
+               + ", got " + call.arguments.size());
+
+      if (definition.unaryEvaluator != null) {
+         DoubleUnaryOperator evaluator = definition.unaryEvaluator;
+         evaluate(call.arguments.get(0), context, variable, xs, out, length);
+         for (int i = 0; i < length; i++)
+            out[i] = evaluator.applyAsDouble(out[i]);
+         return;
+      }
+      if (definition.binaryEvaluator != null) {
+         DoubleBinaryOperator evaluator = definition.binaryEvaluator;
+         double[] second = acquire(length);
+         evaluate(call.arguments.get(0), context, variable, xs, out, length);
+         evaluate(call.arguments.get(1), context, variable, xs, second, length);
+         for (int i = 0; i < length; i++)
+            out[i] = evaluator.applyAsDouble(out[i], second[i]);
+         release(second);
+         return;
+      }
+
+      int argc = call.arguments.size();
+      double[][] columns = pool(columnLists, argc).poll();
+      if (columns == null)
+         columns = new double[argc][];
+      for (int a = 0; a < argc; a++) {
+         columns[a] = acquire(length);
+         evaluate(call.arguments.get(a), context, variable, xs, columns[a], length);
+      }
+
+      double[] values = pool(argumentLists, argc).poll();
+      if (values == null)
+         values = new double[argc];
+      for (int i = 0; i < length; i++) {
+         for (int a = 0; a < argc; a++)
+            values[a] = columns[a][i];
+         out[i] = definition.variadicEvaluator.applyAsDouble(values);
+      }
+
+      for (double[] column : columns)
+         release(column);
+      pool(columnLists, argc).push(columns);
+      pool(argumentLists, argc).push(values);
+   }
+
+   private double[] acquire(int length) {
+      double[] buffer = buffers.poll();
+      return (buffer == null || buffer.length < length) ? new double[length] : buffer;
+   }
+
+   private void release(double[] buffer) {
+      buffers.push(buffer);
+   }
+
+   private static <T> ArrayDeque<T> pool(Map<Integer, ArrayDeque<T>> pools, int argc) {
+      ArrayDeque<T> pool = pools.get(argc);
+      if (pool == null) {
+         pool = new ArrayDeque<>();
+         pools.put(argc, pool);
+      }
+      return pool;
+   }
+}
@@ -2,6 +2,7 @@ package graphogato.symbolics;
 
 import java.util.HashMap;
 import java.util.Map;
+import java.util.function.DoubleUnaryOperator;
 
 import graphogato.symbolics.expressions.Expression;
 
@@ -11,26 +12,52 @@ import graphogato.symbolics.expressions.Expression;
 public final class Builtins {
       private static final Map<String, Function> REGISTRY = new HashMap<>();
       static {
-            put(new Function("sin", 1, args -> Math.sin(args.get(0)),
+            put(Function.unary("sin", Math::sin,
                         (args, var) -> Symbolics.mul(Symbolics.call("cos", args.get(0)),
-                                    args.get(0).differentiate(var))));
-            put(new Function("cos", 1, args -> Math.cos(args.get(0)), (args, var) -> Symbolics
-                        .mul(Symbolics.neg(Symbolics.call("sin", args.get(0))), args.get(0).differentiate(var))));
-            put(new Function("exp", 1, args -> Math.exp(args.get(0)),
+                                    args.get(0).differentiate(var)))
+                        .withNumericDerivative(NumericDerivative.unary(Math::cos, x -> -Math.sin(x)))
+                        .withIntervalExtension(args -> wave(args[0], Math::sin, Math.PI / 2)));
+            put(Function.unary("cos", Math::cos, (args, var) -> Symbolics
+                        .mul(Symbolics.neg(Symbolics.call("sin", args.get(0))), args.get(0).differentiate(var)))
+                        .withNumericDerivative(NumericDerivative.unary(x -> -Math.sin(x), x -> -Math.cos(x)))
+                        .withIntervalExtension(args -> wave(args[0], Math::cos, 0)));
+            put(Function.unary("exp", Math::exp,
                         (args, var) -> Symbolics.mul(Symbolics.call("exp", args.get(0)),
-                                    args.get(0).differentiate(var))));
-            put(new Function("ln", 1,
-                        args -> Math.log(args.get(0)),
-                        (args, var) -> Symbolics.div(args.get(0).differentiate(var), args.get(0))));
-            put(new Function("abs", 1,
-                        args -> Math.abs(args.get(0)),
+                                    args.get(0).differentiate(var)))
+                        .withNumericDerivative(NumericDerivative.unary(Math::exp, Math::exp))
+                        .withIntervalExtension(args -> IntervalExtension.increasing(Math::exp).apply(args).atLeast(0)));
+            put(Function.unary("ln",
+                        Math::log,
+                        (args, var) -> Symbolics.div(args.get(0).differentiate(var), args.get(0)))
+                        .withNumericDerivative(NumericDerivative.unary(x -> 1 / x, x -> -1 / (x * x)))
+                        .withIntervalExtension(args -> {
+                              // ln is only defined from 0
+                              Interval x = args[0];
+                              if (x.hi() < 0)
+                                    return Interval.EMPTY;
+                              return Interval.rounded(x.lo() > 0 ? Math.log(x.lo()) : Double.NEGATIVE_INFINITY,
+                                          Math.log(x.hi()));
+                        }));
+            put(Function.unary("abs",
+                        Math::abs,
                         (args, var) -> Symbolics.mul(Symbolics.call("sign", args.get(0)),
-                                    args.get(0).differentiate(var))));
-            put(new Function("sign", 1,
-                        args -> Math.signum(args.get(0)),
-                        (args, var) -> Symbolics.ZERO));
-            put(new Function("max", 2,
-                        args -> Math.max(args.get(0), args.get(1)),
+                                    args.get(0).differentiate(var)))
+                        .withNumericDerivative(NumericDerivative.unary(Math::signum, x -> 0.0))
+                        .withIntervalExtension(args -> {
+                              Interval x = args[0];
+                              if (x.lo() >= 0)
+                                    return x;
+                              if (x.hi() <= 0)
+                                    return x.negate();
+                              return new Interval(0, Math.max(-x.lo(), x.hi()));
+                        }));
+            put(Function.unary("sign",
+                        Math::signum,
+                        (args, var) -> Symbolics.ZERO)
+                        .withNumericDerivative(NumericDerivative.unary(x -> 0.0, x -> 0.0))
+                        .withIntervalExtension(IntervalExtension.increasing(Math::signum)));
+            put(Function.binary("max",
+                        Math::max,
                         (args, var) -> { // non-differentiable where equal; choose branch
                               Expression condition = Symbolics.sub(Symbolics.call("max", args.get(0), args.get(1)),
                                           args.get(0));
@@ -40,8 +67,53 @@ public final class Builtins {
                                                       args.get(1).differentiate(var)),
                                           Symbolics.mul(Symbolics.call("heaviside", Symbolics.neg(condition)),
                                                       args.get(0).differentiate(var)));
-                        }));
-            put(new Function("heaviside", 1, args -> args.get(0) < 0 ? 0.0 : 1.0, (args, var) -> Symbolics.ZERO));
+                        }).withNumericDerivative(new NumericDerivative() {
+                              @Override
+                              public double partial(double[] arguments, int index) {
+                                    // choose the first branch where they're equal
+                                    boolean first = arguments[0] >= arguments[1];
+                                    return (index == 0) == first ? 1.0 : 0.0;
+                              }
+
+                              @Override
+                              public double secondPartial(double[] arguments, int first, int second) {
+                                    return 0.0;
+                              }
+                        }).withIntervalExtension(args -> new Interval(Math.max(args[0].lo(), args[1].lo()),
+                                    Math.max(args[0].hi(), args[1].hi()))));
+            put(Function.unary("heaviside", x -> x < 0 ? 0.0 : 1.0, (args, var) -> Symbolics.ZERO)
+                        .withNumericDerivative(NumericDerivative.unary(x -> 0.0, x -> 0.0))
+                        .withIntervalExtension(IntervalExtension.increasing(x -> x < 0 ? 0.0 : 1.0)));
+      }
+
+      /**
+       * Bound a wave like sin or cos over an interval. The wave has a period of 2pi,
+       * with its maximum of 1 at the peak and its minimum of -1 half a period
+       * later; between them, it's monotonic.
+       */
+      private static Interval wave(Interval x, DoubleUnaryOperator function, double peak) {
+            if (!(x.hi() - x.lo() < 2 * Math.PI))
+                  return new Interval(-1, 1);
+
+            double a = function.applyAsDouble(x.lo()), b = function.applyAsDouble(x.hi());
+            double lo = reaches(x, peak + Math.PI) ? -1 : Math.min(a, b);
+            double hi = reaches(x, peak) ? 1 : Math.max(a, b);
+            return Interval.rounded(lo, hi).atLeast(-1).atMost(1);
+      }
+
+      /**
+       * Check whether an interval contains a phase of a wave, plus any multiple of
+       * 2pi. Since neither is exact, close calls count as containing it.
+       */
+      private static boolean reaches(Interval x, double phase) {
+            double slack = 1e-12 * Math.max(1, Math.max(Math.abs(x.lo()), Math.abs(x.hi())));
+            double turns = Math.ceil((x.lo() - phase) / (2 * Math.PI));
+            for (double k = turns - 1; k <= turns; k++) {
+                  double at = phase + 2 * Math.PI * k;
+                  if (at >= x.lo() - slack && at <= x.hi() + slack)
+                        return true;
+            }
+            return false;
       }
 
       private static void put(Function function) {
@@ -0,0 +1,301 @@
+package graphogato.symbolics;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import graphogato.symbolics.expressions.BinaryOperation;
+import graphogato.symbolics.expressions.BoundVariable;
+import graphogato.symbolics.expressions.Constant;
+import graphogato.symbolics.expressions.Expression;
+import graphogato.symbolics.expressions.FunctionCall;
+import graphogato.symbolics.expressions.UnaryOperation;
+import graphogato.symbolics.expressions.Variable;
+
+/**
+ * A cache of the columns of every subtree of an expression, sampled over a
+ * fixed grid of one variable. Each subtree knows which other variables and
+ * functions of the context it depends on, so when the expression is evaluated
+ * again after a parameter changes, like while a slider is dragged, only the
+ * subtrees that depend on the parameter are evaluated again, and the rest keep
+ * their columns. In {@code a * sin(x) + ln(x)^3}, changing {@code a} only
+ * recomputes the product and the sum.
+ *
+ * <p>
+ * Every distinct subtree is a single column, so subtrees repeated across the
+ * expression are also only computed once. A column cache keeps its columns
+ * between evaluations, so it must not be shared between threads.
+ *
+ * @author Gavin Borne
+ */
+public final class ColumnCache {
+   private final String variable;
+   private final double[] xs;
+   private final List<Node> nodes = new ArrayList<>();
+   private final Node root;
+   // the variables and functions read from the context, with what they were
+   // when the columns were last computed
+   private final List<Expression> inputs = new ArrayList<>();
+   private final Map<String, Integer> inputIndices = new HashMap<>();
+   private final long[] values;
+   private final Function[] definitions;
+   // what they are in the context being evaluated
+   private final long[] pending;
+   private final Function[] resolved;
+   private long hits = 0;
+   private long misses = 0;
+
+   /**
+    * Create a column cache.
+    *
+    * @param expression - Expression to evaluate
+    * @param variable   - The variable being sampled
+    * @param xs         - The samples of the variable
+    */
+   public ColumnCache(Expression expression, String variable, double[] xs) {
+      this.variable = variable;
+      this.xs = xs.clone();
+      this.root = add(expression, new IdentityHashMap<>());
+      this.values = new long[inputs.size()];
+      this.definitions = new Function[inputs.size()];
+      this.pending = new long[inputs.size()];
+      this.resolved = new Function[inputs.size()];
+   }
+
+   /**
+    * Evaluate the expression for every sample, recomputing only the columns
+    * that depend on something that changed in the context since the last
+    * evaluation.
+    *
+    * @param context - Context of the evaluation, holding every other variable
+    * @param out     - The array to write the results to, at least as long as
+    *                the samples
+    */
+   public void evaluate(EvaluationContext context, double[] out) {
+      if (out.length < xs.length)
+         throw new IllegalArgumentException("Output is shorter than the samples: " + out.length + " < " + xs.length);
+
+      BitSet changed = new BitSet(values.length);
+      for (int i = 0; i < values.length; i++) {
+         Expression input = inputs.get(i);
+         if (input instanceof FunctionCall call) {
+            resolved[i] = context.functions().getOrDefault(call.name, Builtins.get(call.name));
+            if (resolved[i] != definitions[i])
+               changed.set(i);
+         } else {
+            // inputs are keyed by name, so bound variables are read by name too,
+            // rather than from slots of whatever context they were bound to
+            String name = (input instanceof Variable var) ? var.name() : ((BoundVariable) input).name();
+            Double value = context.variables().get(name);
+            if (value == null)
+               throw new IllegalStateException("No value for variable " + name);
+            pending[i] = Double.doubleToRawLongBits(value);
+            if (pending[i] != values[i])
+               changed.set(i);
+         }
+      }
+
+      try {
+         for (Node node : nodes) {
+            if (node.valid && !node.dependencies.intersects(changed)) {
+               hits++;
+               continue;
+            }
+            misses++;
+            node.valid = false;
+            compute(node);
+            node.valid = true;
+         }
+      } catch (RuntimeException e) {
+         // the inputs aren't updated, so every column computed from the new
+         // inputs before the failure has to be computed again next time
+         for (Node node : nodes) {
+            if (node.dependencies.intersects(changed))
+               node.valid = false;
+         }
+         throw e;
+      }
+
+      System.arraycopy(pending, 0, values, 0, values.length);
+      System.arraycopy(resolved, 0, definitions, 0, definitions.length);
+      System.arraycopy(root.column, 0, out, 0, xs.length);
+   }
+
+   /**
+    * Get the number of distinct subtrees, which is the number of columns.
+    *
+    * @return The number of columns
+    */
+   public int size() {
+      return nodes.size();
+   }
+
+   /**
+    * Get the number of columns reused instead of computed.
+    *
+    * @return The number of hits
+    */
+   public long hits() {
+      return hits;
+   }
+
+   /**
+    * Get the number of columns computed.
+    *
+    * @return The number of misses
+    */
+   public long misses() {
+      return misses;
+   }
+
+   private Node add(Expression expression, Map<Expression, Node> added) {
+      Node node = added.get(expression);
+      if (node != null)
+         return node;
+
+      node = new Node(expression, xs.length);
+      if (expression instanceof UnaryOperation unary) {
+         node.children = new Node[] { add(unary.expression(), added) };
+      } else if (expression instanceof BinaryOperation binary) {
+         node.children = new Node[] { add(binary.left(), added), add(binary.right(), added) };
+      } else if (expression instanceof FunctionCall call) {
+         node.children = new Node[call.arguments.size()];
+         for (int i = 0; i < node.children.length; i++)
+            node.children[i] = add(call.arguments.get(i), added);
+         // functions are keyed apart from variables, since they can share names
+         node.input = input(call.name + "()", call);
+         node.dependencies.set(node.input);
+      } else if (expression instanceof Variable var && !var.name().equals(variable)) {
+         node.dependencies.set(input(var.name(), var));
+      } else if (expression instanceof BoundVariable var && !var.name().equals(variable)) {
+         node.dependencies.set(input(var.name(), var));
+      }
+
+      for (Node child : node.children)
+         node.dependencies.or(child.dependencies);
+      nodes.add(node);
+      added.put(expression, node);
+      return node;
+   }
+
+   private int input(String key, Expression expression) {
+      return inputIndices.computeIfAbsent(key, k -> {
+         inputs.add(expression);
+         return inputs.size() - 1;
+      });
+   }
+
+   private void compute(Node node) {
+      Expression expression = node.expression;
+      double[] out = node.column;
+      int length = out.length;
+
+      if (expression instanceof Constant constant) {
+         Arrays.fill(out, constant.value());
+      } else if (expression instanceof Variable var) {
+         if (var.name().equals(variable))
+            System.arraycopy(xs, 0, out, 0, length);
+         else
+            Arrays.fill(out, value(node));
+      } else if (expression instanceof BoundVariable var) {
+         if (var.name().equals(variable))
+            System.arraycopy(xs, 0, out, 0, length);
+         else
+            Arrays.fill(out, value(node));
+      } else if (expression instanceof UnaryOperation unary) {
+         double[] operand = node.children[0].column;
+         switch (unary.operator()) {
+            case NEGATE -> {
+               for (int i = 0; i < length; i++)
+                  out[i] = -operand[i];
+            }
+         }
+      } else if (expression instanceof BinaryOperation binary) {
+         double[] left = node.children[0].column;
+         double[] right = node.children[1].column;
+         switch (binary.operator()) {
+            case ADD -> {
+               for (int i = 0; i < length; i++)
+                  out[i] = left[i] + right[i];
+            }
+            case SUBTRACT -> {
+               for (int i = 0; i < length; i++)
+                  out[i] = left[i] - right[i];
+            }
+            case MULTIPLY -> {
+               for (int i = 0; i < length; i++)
+                  out[i] = left[i] * right[i];
+            }
+            case DIVIDE -> {
+               for (int i = 0; i < length; i++)
+                  out[i] = left[i] / right[i];
+            }
+            case EXPONENTIATE -> {
+               for (int i = 0; i < length; i++)
+                  out[i] = Math.pow(left[i], right[i]);
+            }
+         }
+      } else if (expression instanceof FunctionCall call) {
+         computeCall(node, call, resolved[node.input]);
+      } else {
+         throw new IllegalArgumentException("Cannot evaluate expression: " + expression);
+      }
+   }
+
+   private void computeCall(Node node, FunctionCall call, Function definition) {
+      if (definition == null)
+         throw new IllegalStateException("Unknown function: " + call.name);
+      int argc = node.children.length;
+      if (definition.arity >= 0 && definition.arity != argc)
+         throw new IllegalStateException(
+               "Arity mismatch for " + call.name + ": expected " + definition.arity + ", got " + argc);
+
+      double[] out = node.column;
+      if (definition.unaryEvaluator != null) {
+         double[] argument = node.children[0].column;
+         for (int i = 0; i < out.length; i++)
+            out[i] = definition.unaryEvaluator.applyAsDouble(argument[i]);
+         return;
+      }
+      if (definition.binaryEvaluator != null) {
+         double[] first = node.children[0].column;
+         double[] second = node.children[1].column;
+         for (int i = 0; i < out.length; i++)
+            out[i] = definition.binaryEvaluator.applyAsDouble(first[i], second[i]);
+         return;
+      }
+
+      double[] arguments = new double[argc];
+      for (int i = 0; i < out.length; i++) {
+         for (int a = 0; a < argc; a++)
+            arguments[a] = node.children[a].column[i];
+         out[i] = definition.variadicEvaluator.applyAsDouble(arguments);
+      }
+   }
+
+   private double value(Node node) {
+      // a variable depends on exactly one input, its own
+      return Double.longBitsToDouble(pending[node.dependencies.nextSetBit(0)]);
+   }
+
+   /**
+    * A distinct subtree, with its column and the inputs it depends on.
+    */
+   private static final class Node {
+      final Expression expression;
+      final double[] column;
+      final BitSet dependencies = new BitSet();
+      Node[] children = new Node[0];
+      int input = -1;
+      boolean valid = false;
+
+      Node(Expression expression, int length) {
+         this.expression = expression;
+         this.column = new double[length];
+      }
+   }
+}
@@ -0,0 +1,243 @@
+package graphogato.symbolics;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import graphogato.symbolics.expressions.BinaryOperation;
+import graphogato.symbolics.expressions.BoundVariable;
+import graphogato.symbolics.expressions.Constant;
+import graphogato.symbolics.expressions.Expression;
+import graphogato.symbolics.expressions.FunctionCall;
+import graphogato.symbolics.expressions.UnaryOperation;
+import graphogato.symbolics.expressions.Variable;
+
+/**
+ * An evaluator that eliminates common subexpressions. The expression is
+ * flattened into a linear program where every structurally distinct subtree is
+ * a single step, so subtrees repeated across the expression (like the ones the
+ * product, quotient and power rules of differentiation duplicate) are only
+ * computed once per evaluation.
+ *
+ * <p>
+ * Each evaluator keeps its own registers, so it must not be shared between
+ * threads.
+ *
+ * @author Gavin Borne
+ */
+public final class CommonSubexpressionEvaluator {
+   private static final int CONSTANT = 0;
+   private static final int VARIABLE = 1;
+   private static final int SLOT = 2;
+   private static final int NEGATE = 3;
+   private static final int ADD = 4;
+   private static final int SUBTRACT = 5;
+   private static final int MULTIPLY = 6;
+   private static final int DIVIDE = 7;
+   private static final int EXPONENTIATE = 8;
+   private static final int CALL = 9;
+
+   private final int[] opcodes;
+   private final int[] first;
+   private final int[] second;
+   private final double[] constants;
+   private final String[] names;
+   private final int[][] arguments;
+   private final double[][] argumentValues;
+   private final double[] registers;
+
+   private CommonSubexpressionEvaluator(Builder builder) {
+      int length = builder.opcodes.size();
+      this.opcodes = new int[length];
+      this.first = new int[length];
+      this.second = new int[length];
+      this.constants = new double[length];
+      this.names = builder.names.toArray(new String[0]);
+      this.arguments = builder.arguments.toArray(new int[0][]);
+      this.argumentValues = new double[length][];
+      this.registers = new double[length];
+
+      for (int i = 0; i < length; i++) {
+         opcodes[i] = builder.opcodes.get(i);
+         first[i] = builder.first.get(i);
+         second[i] = builder.second.get(i);
+         constants[i] = builder.constants.get(i);
+         if (arguments[i] != null)
+            argumentValues[i] = new double[arguments[i].length];
+      }
+   }
+
+   /**
+    * Create an evaluator for an expression.
+    *
+    * @param expression - Expression to evaluate
+    * @return The evaluator
+    */
+   public static CommonSubexpressionEvaluator of(Expression expression) {
+      Builder builder = new Builder();
+      builder.add(expression);
+      return new CommonSubexpressionEvaluator(builder);
+   }
+
+   /**
+    * Get the number of steps in the program, which is the number of structurally
+    * distinct subtrees of the expression.
+    *
+    * @return The number of steps
+    */
+   public int size() {
+      return opcodes.length;
+   }
+
+   /**
+    * Evaluate the expression with context. This gives the same result as
+    * {@link Expression#evaluate(EvaluationContext)}.
+    *
+    * @param context - Context of the evaluation
+    * @return Evaluated expression
+    */
+   public double evaluate(EvaluationContext context) {
+      double[] registers = this.registers;
+      for (int i = 0; i < opcodes.length; i++) {
+         registers[i] = switch (opcodes[i]) {
+            case CONSTANT -> constants[i];
+            case VARIABLE -> {
+               Double value = context.variables().get(names[i]);
+               if (value == null)
+                  throw new IllegalStateException("No value for variable " + names[i]);
+               yield value;
+            }
+            case SLOT -> context.getSlot(first[i]);
+            case NEGATE -> -registers[first[i]];
+            case ADD -> registers[first[i]] + registers[second[i]];
+            case SUBTRACT -> registers[first[i]] - registers[second[i]];
+            case MULTIPLY -> registers[first[i]] * registers[second[i]];
+            case DIVIDE -> registers[first[i]] / registers[second[i]];
+            case EXPONENTIATE -> Math.pow(registers[first[i]], registers[second[i]]);
+            case CALL -> call(i, context);
+            default -> throw new IllegalStateException("Illegal opcode: " + opcodes[i]);
+         };
+      }
+      return registers[opcodes.length - 1];
+   }
+
+   private double call(int step, EvaluationContext context) {
+      String name = names[step];
+      int[] indices = arguments[step];
+      Function definition = context.functions().getOrDefault(name, Builtins.get(name));
+
+      if (definition == null)
+         throw new IllegalStateException("Unknown function: " + name);
+      if (definition.arity >= 0 && definition.arity != indices.length)
+         throw new IllegalStateException(
+               "Arity mismatch for " + name + ": expected " + definition.arity + ", got " + indices.length);
+
+      if (definition.unaryEvaluator != null)
+         return definition.unaryEvaluator.applyAsDouble(registers[indices[0]]);
+      if (definition.binaryEvaluator != null)
+         return definition.binaryEvaluator.applyAsDouble(registers[indices[0]], registers[indices[1]]);
+
+      double[] values = argumentValues[step];
+      for (int i = 0; i < indices.length; i++)
+         values[i] = registers[indices[i]];
+      return definition.variadicEvaluator.applyAsDouble(values);
+   }
+
+   /**
+    * Builds the program, giving every structurally distinct subtree one step.
+    * Steps are keyed by their opcode and operand steps rather than by
+    * {@link Expression#equals(Object)}, which treats constants 0 and -0 as
+    * equal, so subtrees that differ only in the sign of a zero stay separate.
+    */
+   private static final class Builder {
+      // nodes are hash-consed, so a node already added is found by identity
+      private final Map<Expression, Integer> added = new IdentityHashMap<>();
+      private final Map<StepKey, Integer> steps = new HashMap<>();
+      private final List<Integer> opcodes = new ArrayList<>();
+      private final List<Integer> first = new ArrayList<>();
+      private final List<Integer> second = new ArrayList<>();
+      private final List<Double> constants = new ArrayList<>();
+      private final List<String> names = new ArrayList<>();
+      private final List<int[]> arguments = new ArrayList<>();
+
+      int add(Expression expression) {
+         Integer existing = added.get(expression);
+         if (existing != null)
+            return existing;
+
+         int step;
+         if (expression instanceof Constant constant)
+            // constants are keyed by bits, so 0 and -0 are different steps
+            step = step(CONSTANT, 0, 0, constant.value(), null, null,
+                  new StepKey(CONSTANT, 0, 0, Double.doubleToRawLongBits(constant.value()), null, null));
+         else if (expression instanceof Variable variable)
+            step = step(VARIABLE, 0, 0, 0, variable.name(), null,
+                  new StepKey(VARIABLE, 0, 0, 0, variable.name(), null));
+         else if (expression instanceof BoundVariable variable)
+            step = step(SLOT, variable.slot(), 0, 0, variable.name(), null,
+                  new StepKey(SLOT, variable.slot(), 0, 0, variable.name(), null));
+         else if (expression instanceof UnaryOperation unary) {
+            int operand = add(unary.expression());
+            int opcode = switch (unary.operator()) {
+               case NEGATE -> NEGATE;
+            };
+            step = step(opcode, operand, 0, 0, null, null, new StepKey(opcode, operand, 0, 0, null, null));
+         } else if (expression instanceof BinaryOperation binary) {
+            int left = add(binary.left());
+            int right = add(binary.right());
+            int opcode = switch (binary.operator()) {
+               case ADD -> ADD;
+               case SUBTRACT -> SUBTRACT;
+               case MULTIPLY -> MULTIPLY;
+               case DIVIDE -> DIVIDE;
+               case EXPONENTIATE -> EXPONENTIATE;
+            };
+            // addition and multiplication give the same result either way around
+            StepKey key = (opcode == ADD || opcode == MULTIPLY)
+                  ? new StepKey(opcode, Math.min(left, right), Math.max(left, right), 0, null, null)
+                  : new StepKey(opcode, left, right, 0, null, null);
+            step = step(opcode, left, right, 0, null, null, key);
+         } else if (expression instanceof FunctionCall call) {
+            int[] indices = new int[call.arguments.size()];
+            for (int i = 0; i < indices.length; i++)
+               indices[i] = add(call.arguments.get(i));
+            step = step(CALL, 0, 0, 0, call.name, indices,
+                  new StepKey(CALL, 0, 0, 0, call.name, Arrays.stream(indices).boxed().toList()));
+         } else
+            throw new IllegalArgumentException("Cannot evaluate expression: " + expression);
+
+         added.put(expression, step);
+         return step;
+      }
+
+      private int step(int opcode, int firstOperand, int secondOperand, double constant, String name,
+            int[] indices, StepKey key) {
+         Integer existing = steps.get(key);
+         if (existing != null)
+            return existing;
+         int step = step(opcode, firstOperand, secondOperand, constant, name, indices);
+         steps.put(key, step);
+         return step;
+      }
+
+      private int step(int opcode, int firstOperand, int secondOperand, double constant, String name,
+            int[] indices) {
+         opcodes.add(opcode);
+         first.add(firstOperand);
+         second.add(secondOperand);
+         constants.add(constant);
+         names.add(name);
+         arguments.add(indices);
+         return opcodes.size() - 1;
+      }
+   }
+
+   /**
+    * The key of a step: its opcode, operand steps, constant bits and name.
+    */
+   private record StepKey(int opcode, int first, int second, long bits, String name, List<Integer> arguments) {
+   }
+}
@@ -0,0 +1,19 @@
+package graphogato.symbolics;
+
+/**
+ * An expression that has been compiled into a primitive evaluator. Variables
+ * are read from an array of slots instead of by name, in the order given when
+ * the expression was compiled.
+ *
+ * @author Gavin Borne
+ */
+@FunctionalInterface
+public interface CompiledExpression {
+   /**
+    * Evaluate the compiled expression.
+    *
+    * @param vars - The values of the variables, indexed by slot
+    * @return Evaluated expression
+    */
+   double applyAsDouble(double[] vars);
+}
@@ -0,0 +1,234 @@
+package graphogato.symbolics;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import graphogato.symbolics.expressions.BinaryOperation;
+import graphogato.symbolics.expressions.BinaryOperation.BinaryOperator;
+import graphogato.symbolics.expressions.Expression;
+import graphogato.symbolics.expressions.FunctionCall;
+import graphogato.symbolics.expressions.UnaryOperation;
+import graphogato.symbolics.expressions.Variable;
+
+/**
+ * A thread-safe cache of derivatives, keyed by node and variable. Every node
+ * is differentiated at most once per variable, so a subtree shared between
+ * several places, or between the orders of a higher derivative, is only
+ * differentiated the first time it's reached, and its derivative is shared
+ * in turn. Nodes are hash-consed, so the nodes of an nth derivative stay
+ * roughly linear in the order, even though its tree could be exponential.
+ *
+ * <p>
+ * Derivatives follow the same rules as {@link Expression#differentiate(String)}.
+ * Builtin functions are differentiated by their partial derivatives, which are
+ * worked out once per function and then substituted with the arguments, so the
+ * arguments' own derivatives come from the cache too.
+ *
+ * @author Gavin Borne
+ */
+public final class DerivativeCache {
+   // the names arguments are replaced with while working out partials, which
+   // the parser can't produce
+   private static final String PLACEHOLDER = "#";
+
+   private final Map<Key, Expression> entries = new HashMap<>();
+   private final Map<Function, Expression[]> partials = new IdentityHashMap<>();
+   private long hits = 0;
+   private long misses = 0;
+
+   /**
+    * Differentiate an expression, or get its derivative from the cache if it
+    * has been differentiated with respect to the same variable before. Like
+    * {@link Expression#differentiate(String)}, the derivative isn't simplified.
+    *
+    * @param expression - Expression to differentiate
+    * @param variable   - Variable to differentiate with respect to
+    * @return The derivative
+    */
+   public synchronized Expression differentiate(Expression expression, String variable) {
+      Key key = new Key(expression, variable);
+      Expression derivative = entries.get(key);
+      if (derivative != null) {
+         hits++;
+         return derivative;
+      }
+
+      misses++;
+      // children are differentiated through the cache, so this can't use
+      // computeIfAbsent
+      derivative = compute(expression, variable);
+      entries.put(key, derivative);
+      return derivative;
+   }
+
+   /**
+    * Take the nth derivative of an expression, simplifying after every order.
+    * The orders are differentiated through the cache, so each one reuses the
+    * derivatives of the subtrees it shares with the orders before it.
+    *
+    * @param expression - Expression to differentiate
+    * @param variable   - Variable to differentiate with respect to
+    * @param n          - Order of the derivative
+    * @return The simplified nth derivative, or the expression itself if n is 0
+    */
+   public Expression nthDerivative(Expression expression, String variable, int n) {
+      if (n < 0)
+         throw new IllegalArgumentException("Order of derivative must not be negative: " + n);
+
+      Expression derivative = expression;
+      for (int i = 0; i < n; i++)
+         derivative = differentiate(derivative, variable).simplify();
+      return derivative;
+   }
+
+   /**
+    * Get the number of derivatives in the cache.
+    *
+    * @return The number of cached derivatives
+    */
+   public synchronized int size() {
+      return entries.size();
+   }
+
+   /**
+    * Get the number of derivatives found in the cache.
+    *
+    * @return The number of hits
+    */
+   public synchronized long hits() {
+      return hits;
+   }
+
+   /**
+    * Get the number of derivatives that had to be computed.
+    *
+    * @return The number of misses
+    */
+   public synchronized long misses() {
+      return misses;
+   }
+
+   /**
+    * Remove every derivative from the cache, and reset its counters.
+    */
+   public synchronized void clear() {
+      entries.clear();
+      partials.clear();
+      hits = 0;
+      misses = 0;
+   }
+
+   private Expression compute(Expression expression, String variable) {
+      if (expression instanceof UnaryOperation unary) {
+         Expression derivative = differentiate(unary.expression(), variable);
+         return switch (unary.operator()) {
+            case NEGATE -> NodeFactory.unary(UnaryOperation.UnaryOperator.NEGATE, derivative);
+         };
+      }
+
+      if (expression instanceof BinaryOperation binary) {
+         Expression left = binary.left();
+         Expression right = binary.right();
+         Expression leftDeriv = differentiate(left, variable);
+         Expression rightDeriv = differentiate(right, variable);
+
+         return switch (binary.operator()) {
+            case ADD -> NodeFactory.binary(BinaryOperator.ADD, leftDeriv, rightDeriv);
+            case SUBTRACT -> NodeFactory.binary(BinaryOperator.SUBTRACT, leftDeriv, rightDeriv);
+            case MULTIPLY -> NodeFactory.binary(BinaryOperator.ADD,
+                  NodeFactory.binary(BinaryOperator.MULTIPLY, leftDeriv, right),
+                  NodeFactory.binary(BinaryOperator.MULTIPLY, left, rightDeriv));
+            case DIVIDE -> NodeFactory.binary(BinaryOperator.DIVIDE,
+                  NodeFactory.binary(BinaryOperator.SUBTRACT,
+                        NodeFactory.binary(BinaryOperator.MULTIPLY, leftDeriv, right),
+                        NodeFactory.binary(BinaryOperator.MULTIPLY, left, rightDeriv)),
+                  NodeFactory.binary(BinaryOperator.EXPONENTIATE, right, NodeFactory.constant(2)));
+            case EXPONENTIATE -> {
+               Expression term = Symbolics.add(Symbolics.mul(rightDeriv, Symbolics.call("ln", left)),
+                     Symbolics.mul(right, Symbolics.div(leftDeriv, left)));
+               yield Symbolics.mul(expression, term);
+            }
+         };
+      }
+
+      if (expression instanceof FunctionCall call) {
+         Function definition = Builtins.get(call.name);
+         if (definition == null || definition.derivative == null)
+            throw new UnsupportedOperationException("No derivative defined for function: " + call.name);
+
+         // d/dx f(u_1, ..., u_n) = sum of df/du_i * u_i'
+         Expression[] partials = partials(definition, call.arguments.size());
+         Map<Expression, Expression> substituted = new IdentityHashMap<>();
+         Expression derivative = null;
+         for (int i = 0; i < partials.length; i++) {
+            Expression term = NodeFactory.binary(BinaryOperator.MULTIPLY,
+                  substitute(partials[i], call.arguments, substituted),
+                  differentiate(call.arguments.get(i), variable));
+            derivative = (derivative == null) ? term : NodeFactory.binary(BinaryOperator.ADD, derivative, term);
+         }
+         return (derivative == null) ? Symbolics.ZERO : derivative;
+      }
+
+      // constants and variables are leaves
+      return expression.differentiate(variable);
+   }
+
+   private Expression[] partials(Function definition, int arity) {
+      Expression[] cached = partials.get(definition);
+      if (cached != null && cached.length == arity)
+         return cached;
+
+      List<Expression> placeholders = new ArrayList<>(arity);
+      for (int i = 0; i < arity; i++)
+         placeholders.add(NodeFactory.variable(PLACEHOLDER + i));
+
+      Expression[] computed = new Expression[arity];
+      for (int i = 0; i < arity; i++)
+         computed[i] = definition.derivative.apply(placeholders, PLACEHOLDER + i).simplify();
+      partials.put(definition, computed);
+      return computed;
+   }
+
+   private static Expression substitute(Expression expression, List<Expression> arguments,
+         Map<Expression, Expression> substituted) {
+      Expression result = substituted.get(expression);
+      if (result != null)
+         return result;
+
+      if (expression instanceof Variable variable && variable.name().startsWith(PLACEHOLDER)) {
+         result = arguments.get(Integer.parseInt(variable.name().substring(PLACEHOLDER.length())));
+      } else if (expression instanceof UnaryOperation unary) {
+         Expression operand = substitute(unary.expression(), arguments, substituted);
+         result = (operand == unary.expression()) ? unary : NodeFactory.unary(unary.operator(), operand);
+      } else if (expression instanceof BinaryOperation binary) {
+         Expression left = substitute(binary.left(), arguments, substituted);
+         Expression right = substitute(binary.right(), arguments, substituted);
+         result = (left == binary.left() && right == binary.right()) ? binary
+               : NodeFactory.binary(binary.operator(), left, right);
+      } else if (expression instanceof FunctionCall call) {
+         boolean changed = false;
+         List<Expression> callArguments = new ArrayList<>(call.arguments.size());
+         for (Expression argument : call.arguments) {
+            Expression replaced = substitute(argument, arguments, substituted);
+            callArguments.add(replaced);
+            changed |= (replaced != argument);
+         }
+         result = changed ? NodeFactory.call(call.name, callArguments) : call;
+      } else {
+         result = expression;
+      }
+
+      substituted.put(expression, result);
+      return result;
+   }
+
+   /**
+    * The key of a derivative: a node and the variable it was differentiated
+    * with respect to.
+    */
+   private record Key(Expression expression, String variable) {
+   }
+}
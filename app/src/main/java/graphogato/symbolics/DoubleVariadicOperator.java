@@ -0,0 +1,18 @@
+package graphogato.symbolics;
+
+/**
+ * An operation on any number of double-valued operands, producing a
+ * double-valued result.
+ *
+ * @author Gavin Borne
+ */
+@FunctionalInterface
+public interface DoubleVariadicOperator {
+   /**
+    * Apply this operator to the given operands.
+    *
+    * @param operands - The operands
+    * @return The result
+    */
+   double applyAsDouble(double[] operands);
+}
@@ -0,0 +1,31 @@
+package graphogato.symbolics;
+
+/**
+ * The value of an expression together with its first and second derivatives at
+ * a point, as computed by {@link ForwardDifferentiator}.
+ *
+ * @param value  - The value
+ * @param first  - The first derivative
+ * @param second - The second derivative
+ * @author Gavin Borne
+ */
+public record Dual(double value, double first, double second) {
+   /**
+    * Create a dual number for a value that doesn't depend on the variable.
+    *
+    * @param value - The value
+    * @return The dual number
+    */
+   public static Dual constant(double value) {
+      return new Dual(value, 0, 0);
+   }
+
+   /**
+    * Check whether this dual number doesn't depend on the variable.
+    *
+    * @return Whether both derivatives are zero
+    */
+   public boolean isConstant() {
+      return first == 0 && second == 0;
+   }
+}
@@ -0,0 +1,468 @@
+package graphogato.symbolics;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.ToDoubleFunction;
+import java.util.stream.IntStream;
+
+import graphogato.symbolics.expressions.BinaryOperation;
+import graphogato.symbolics.expressions.BinaryOperation.BinaryOperator;
+import graphogato.symbolics.expressions.BoundVariable;
+import graphogato.symbolics.expressions.Constant;
+import graphogato.symbolics.expressions.Expression;
+import graphogato.symbolics.expressions.FunctionCall;
+import graphogato.symbolics.expressions.UnaryOperation;
+import graphogato.symbolics.expressions.UnaryOperation.UnaryOperator;
+import graphogato.symbolics.expressions.Variable;
+
+/**
+ * An e-graph: a set of equivalence classes of expression nodes, where the
+ * children of every node are classes rather than nodes. Merging two classes
+ * records that their expressions are equal, so one graph holds every
+ * expression the rewrites have shown to be equal to the original at once.
+ *
+ * <p>
+ * Classes also track their constant value when every node in them folds to
+ * one, and such classes get a constant node.
+ *
+ * @author Gavin Borne
+ */
+final class EGraph {
+   /**
+    * The operation of a node.
+    */
+   enum Op {
+      CONSTANT,
+      VARIABLE,
+      NEGATE,
+      ADD,
+      SUBTRACT,
+      MULTIPLY,
+      DIVIDE,
+      EXPONENTIATE,
+      CALL
+   }
+
+   /**
+    * A node whose children are the ids of classes.
+    */
+   static final class ENode {
+      final Op op;
+      final double value;
+      final Expression variable;
+      final String name;
+      final int[] children;
+      private final int hash;
+
+      ENode(Op op, double value, Expression variable, String name, int[] children) {
+         this.op = op;
+         this.value = value;
+         this.variable = variable;
+         this.name = name;
+         this.children = children;
+         this.hash = Objects.hash(op, Double.doubleToLongBits(value), variable, name) * 31
+               + Arrays.hashCode(children);
+      }
+
+      int child(int index) {
+         return children[index];
+      }
+
+      @Override
+      public boolean equals(Object other) {
+         if (this == other)
+            return true;
+         return other instanceof ENode node && hash == node.hash && op == node.op
+               && Double.doubleToLongBits(value) == Double.doubleToLongBits(node.value)
+               && Objects.equals(variable, node.variable) && Objects.equals(name, node.name)
+               && Arrays.equals(children, node.children);
+      }
+
+      @Override
+      public int hashCode() {
+         return hash;
+      }
+   }
+
+   private static final class EClass {
+      private LinkedHashSet<ENode> nodes = new LinkedHashSet<>();
+      private Map<ENode, Integer> parents = new HashMap<>();
+      private boolean constant;
+      private double value;
+   }
+
+   private static final int[] NO_CHILDREN = new int[0];
+
+   private final List<EClass> classes = new ArrayList<>();
+   private int[] leaders = new int[64];
+   private final Map<ENode, Integer> memo = new HashMap<>();
+   private final ArrayDeque<Integer> pending = new ArrayDeque<>();
+
+   /**
+    * Get the number of distinct nodes in the graph.
+    *
+    * @return The number of nodes
+    */
+   int nodeCount() {
+      return memo.size();
+   }
+
+   /**
+    * Find the canonical id of a class.
+    *
+    * @param id - The id of the class
+    * @return The canonical id
+    */
+   int find(int id) {
+      while (leaders[id] != id) {
+         leaders[id] = leaders[leaders[id]];
+         id = leaders[id];
+      }
+      return id;
+   }
+
+   /**
+    * Get the ids of every class, canonically.
+    *
+    * @return The class ids
+    */
+   int[] classIds() {
+      return IntStream.range(0, classes.size()).filter(id -> leaders[id] == id).toArray();
+   }
+
+   /**
+    * Get the nodes of a class, with canonical children.
+    *
+    * @param id - The id of the class
+    * @return The nodes
+    */
+   List<ENode> nodes(int id) {
+      EClass eclass = classes.get(find(id));
+      List<ENode> nodes = new ArrayList<>(eclass.nodes.size());
+      for (ENode node : eclass.nodes)
+         nodes.add(canonicalize(node));
+      return nodes;
+   }
+
+   /**
+    * Check whether a class has a known constant value.
+    *
+    * @param id - The id of the class
+    * @return Whether it's constant
+    */
+   boolean isConstant(int id) {
+      return classes.get(find(id)).constant;
+   }
+
+   /**
+    * Check whether a class has a known constant value equal to a value.
+    *
+    * @param id    - The id of the class
+    * @param value - The value to check for
+    * @return Whether it's that constant
+    */
+   boolean isConstant(int id, double value) {
+      EClass eclass = classes.get(find(id));
+      return eclass.constant && eclass.value == value;
+   }
+
+   /**
+    * Add an expression to the graph.
+    *
+    * @param expression - The expression to add
+    * @return The id of the expression's class
+    */
+   int add(Expression expression) {
+      if (expression instanceof Constant constant)
+         return constant(constant.value());
+      if (expression instanceof Variable || expression instanceof BoundVariable)
+         return add(new ENode(Op.VARIABLE, 0, expression, null, NO_CHILDREN));
+      if (expression instanceof UnaryOperation unary)
+         return add(Op.NEGATE, add(unary.expression()));
+      if (expression instanceof BinaryOperation binary) {
+         Op op = switch (binary.operator()) {
+            case ADD -> Op.ADD;
+            case SUBTRACT -> Op.SUBTRACT;
+            case MULTIPLY -> Op.MULTIPLY;
+            case DIVIDE -> Op.DIVIDE;
+            case EXPONENTIATE -> Op.EXPONENTIATE;
+         };
+         return add(op, add(binary.left()), add(binary.right()));
+      }
+      if (expression instanceof FunctionCall call) {
+         int[] arguments = new int[call.arguments.size()];
+         for (int i = 0; i < arguments.length; i++)
+            arguments[i] = add(call.arguments.get(i));
+         return call(call.name, arguments);
+      }
+      throw new IllegalArgumentException("Cannot add expression: " + expression);
+   }
+
+   /**
+    * Add a constant to the graph.
+    *
+    * @param value - The value of the constant
+    * @return The id of the constant's class
+    */
+   int constant(double value) {
+      return add(new ENode(Op.CONSTANT, value, null, null, NO_CHILDREN));
+   }
+
+   /**
+    * Add an operation on classes to the graph.
+    *
+    * @param op       - The operation
+    * @param children - The ids of the operands' classes
+    * @return The id of the operation's class
+    */
+   int add(Op op, int... children) {
+      return add(new ENode(op, 0, null, null, children));
+   }
+
+   /**
+    * Add a function call on classes to the graph.
+    *
+    * @param name      - Name of the function
+    * @param arguments - The ids of the arguments' classes
+    * @return The id of the call's class
+    */
+   int call(String name, int... arguments) {
+      return add(new ENode(Op.CALL, 0, null, name, arguments));
+   }
+
+   private int add(ENode node) {
+      node = canonicalize(node);
+      Integer existing = memo.get(node);
+      if (existing != null)
+         return find(existing);
+
+      int id = classes.size();
+      if (id == leaders.length)
+         leaders = Arrays.copyOf(leaders, id * 2);
+      leaders[id] = id;
+
+      EClass eclass = new EClass();
+      eclass.nodes.add(node);
+      classes.add(eclass);
+      for (int child : node.children)
+         classes.get(child).parents.put(node, id);
+      memo.put(node, id);
+
+      if (node.op == Op.CONSTANT) {
+         eclass.constant = true;
+         eclass.value = node.value;
+      } else {
+         double folded = fold(node);
+         if (Double.isFinite(folded)) {
+            eclass.constant = true;
+            eclass.value = folded;
+            merge(id, constant(folded));
+         }
+      }
+      return find(id);
+   }
+
+   /**
+    * Merge two classes, recording that their expressions are equal. The graph
+    * must be rebuilt before it's searched again.
+    *
+    * @param first  - The id of the first class
+    * @param second - The id of the second class
+    * @return Whether the classes were different
+    */
+   boolean merge(int first, int second) {
+      first = find(first);
+      second = find(second);
+      if (first == second)
+         return false;
+
+      EClass a = classes.get(first), b = classes.get(second);
+      if (a.parents.size() < b.parents.size()) {
+         int swap = first;
+         first = second;
+         second = swap;
+         EClass swapClass = a;
+         a = b;
+         b = swapClass;
+      }
+
+      leaders[second] = first;
+      a.nodes.addAll(b.nodes);
+      a.parents.putAll(b.parents);
+      b.nodes = new LinkedHashSet<>();
+      b.parents = new HashMap<>();
+
+      if (b.constant && !a.constant) {
+         a.constant = true;
+         a.value = b.value;
+      }
+      pending.add(first);
+      return true;
+   }
+
+   /**
+    * Restore the invariants of the graph after merging: every node is
+    * canonical, and nodes that became equal are in the same class.
+    */
+   void rebuild() {
+      List<ENode> folds = new ArrayList<>();
+      List<Integer> foldClasses = new ArrayList<>();
+
+      while (!pending.isEmpty()) {
+         // a class is often merged many times between rebuilds, so repair it once
+         LinkedHashSet<Integer> todo = new LinkedHashSet<>();
+         while (!pending.isEmpty())
+            todo.add(find(pending.poll()));
+         for (int id : todo)
+            repair(find(id), folds, foldClasses);
+
+         for (int i = 0; i < folds.size(); i++) {
+            double folded = fold(folds.get(i));
+            EClass parent = classes.get(find(foldClasses.get(i)));
+            if (Double.isFinite(folded) && !parent.constant) {
+               parent.constant = true;
+               parent.value = folded;
+               merge(foldClasses.get(i), constant(folded));
+            }
+         }
+         folds.clear();
+         foldClasses.clear();
+      }
+   }
+
+   private void repair(int id, List<ENode> folds, List<Integer> foldClasses) {
+      EClass eclass = classes.get(id);
+      List<Map.Entry<ENode, Integer>> entries = new ArrayList<>(eclass.parents.entrySet());
+      eclass.parents = new HashMap<>();
+
+      Map<ENode, Integer> parents = new HashMap<>();
+      for (Map.Entry<ENode, Integer> parent : entries) {
+         memo.remove(parent.getKey());
+         ENode node = canonicalize(parent.getKey());
+         Integer other = parents.get(node);
+         if (other != null)
+            merge(other, parent.getValue());
+         int leader = find(parent.getValue());
+         parents.put(node, leader);
+         memo.put(node, leader);
+
+         // the parent may fold now that this class is constant
+         if (eclass.constant && !classes.get(leader).constant) {
+            folds.add(node);
+            foldClasses.add(leader);
+         }
+      }
+
+      EClass leader = classes.get(find(id));
+      leader.parents.putAll(parents);
+      LinkedHashSet<ENode> nodes = new LinkedHashSet<>();
+      for (ENode node : leader.nodes)
+         nodes.add(canonicalize(node));
+      leader.nodes = nodes;
+   }
+
+   /**
+    * Extract the cheapest expression in a class.
+    *
+    * @param root - The id of the class
+    * @param cost - The cost of a node by itself, not counting its children
+    * @return The cheapest expression
+    */
+   Expression extract(int root, ToDoubleFunction<ENode> cost) {
+      double[] costs = new double[classes.size()];
+      ENode[] best = new ENode[classes.size()];
+      Arrays.fill(costs, Double.POSITIVE_INFINITY);
+      int[] ids = classIds();
+
+      for (boolean changed = true; changed;) {
+         changed = false;
+         for (int id : ids) {
+            for (ENode node : classes.get(id).nodes) {
+               double total = cost.applyAsDouble(node);
+               for (int child : node.children)
+                  total += costs[find(child)];
+               if (total < costs[id]) {
+                  costs[id] = total;
+                  best[id] = node;
+                  changed = true;
+               }
+            }
+         }
+      }
+      return build(find(root), best, new HashMap<>());
+   }
+
+   private Expression build(int id, ENode[] best, Map<Integer, Expression> built) {
+      Expression existing = built.get(id);
+      if (existing != null)
+         return existing;
+
+      ENode node = best[id];
+      Expression[] children = new Expression[node.children.length];
+      for (int i = 0; i < children.length; i++)
+         children[i] = build(find(node.children[i]), best, built);
+
+      Expression expression = switch (node.op) {
+         case CONSTANT -> NodeFactory.constant(node.value);
+         case VARIABLE -> node.variable;
+         case NEGATE -> NodeFactory.unary(UnaryOperator.NEGATE, children[0]);
+         case ADD -> NodeFactory.binary(BinaryOperator.ADD, children[0], children[1]);
+         case SUBTRACT -> NodeFactory.binary(BinaryOperator.SUBTRACT, children[0], children[1]);
+         case MULTIPLY -> NodeFactory.binary(BinaryOperator.MULTIPLY, children[0], children[1]);
+         case DIVIDE -> NodeFactory.binary(BinaryOperator.DIVIDE, children[0], children[1]);
+         case EXPONENTIATE -> NodeFactory.binary(BinaryOperator.EXPONENTIATE, children[0], children[1]);
+         case CALL -> NodeFactory.call(node.name, List.of(children));
+      };
+      built.put(id, expression);
+      return expression;
+   }
+
+   private ENode canonicalize(ENode node) {
+      int[] children = node.children;
+      int[] canonical = null;
+      for (int i = 0; i < children.length; i++) {
+         int leader = find(children[i]);
+         if (leader != children[i]) {
+            if (canonical == null)
+               canonical = children.clone();
+            canonical[i] = leader;
+         }
+      }
+      return (canonical == null) ? node : new ENode(node.op, node.value, node.variable, node.name, canonical);
+   }
+
+   /**
+    * Fold a node whose children are all constant, giving NaN otherwise.
+    */
+   private double fold(ENode node) {
+      double[] values = new double[node.children.length];
+      for (int i = 0; i < values.length; i++) {
+         EClass child = classes.get(find(node.children[i]));
+         if (!child.constant)
+            return Double.NaN;
+         values[i] = child.value;
+      }
+
+      return switch (node.op) {
+         case NEGATE -> -values[0];
+         case ADD -> values[0] + values[1];
+         case SUBTRACT -> values[0] - values[1];
+         case MULTIPLY -> values[0] * values[1];
+         case DIVIDE -> values[0] / values[1];
+         case EXPONENTIATE -> Math.pow(values[0], values[1]);
+         case CALL -> {
+            Function definition = Builtins.get(node.name);
+            yield (definition == null || (definition.arity >= 0 && definition.arity != values.length))
+                  ? Double.NaN
+                  : definition.variadicEvaluator.applyAsDouble(values);
+         }
+         default -> Double.NaN;
+      };
+   }
+}
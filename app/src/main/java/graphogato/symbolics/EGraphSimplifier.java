@@ -0,0 +1,391 @@
+package graphogato.symbolics;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.IntSupplier;
+
+import graphogato.symbolics.EGraph.ENode;
+import graphogato.symbolics.EGraph.Op;
+import graphogato.symbolics.expressions.BinaryOperation;
+import graphogato.symbolics.expressions.Constant;
+import graphogato.symbolics.expressions.Expression;
+import graphogato.symbolics.expressions.FunctionCall;
+import graphogato.symbolics.expressions.UnaryOperation;
+
+/**
+ * A simplifier that uses equality saturation. Instead of rewriting the
+ * expression in place, where the order rules are applied in matters, every
+ * rewrite adds the rewritten expression to an {@link EGraph} alongside the
+ * original, until no rule adds anything new or the budget runs out. The
+ * cheapest equivalent expression under an evaluation cost model is extracted
+ * at the end.
+ *
+ * <p>
+ * This finds simplifications the greedy rules of {@link Expression#simplify()}
+ * can't, like combining {@code x * 2 + x * 3} into {@code x * 5}, or cancelling
+ * across nested divisions. Like those rules, it assumes the builtin functions
+ * and treats {@code x / x} as 1.
+ *
+ * @author Gavin Borne
+ */
+public final class EGraphSimplifier {
+   private static final int MATCH_LIMIT = 1000;
+   private static final int BAN_LENGTH = 2;
+
+   private final int nodeLimit;
+   private final int iterationLimit;
+   private final long timeLimit;
+
+   /**
+    * Create a new e-graph simplifier with a budget of 10000 nodes, 30 iterations
+    * and 50 milliseconds.
+    */
+   public EGraphSimplifier() {
+      this(10_000, 30, Duration.ofMillis(50));
+   }
+
+   /**
+    * Create a new e-graph simplifier.
+    *
+    * @param nodeLimit      - The number of nodes the graph can grow to before
+    *                       rewriting stops
+    * @param iterationLimit - The number of times the rules can be applied to the
+    *                       whole graph
+    * @param timeLimit      - How long rewriting can take
+    */
+   public EGraphSimplifier(int nodeLimit, int iterationLimit, Duration timeLimit) {
+      if (nodeLimit <= 0 || iterationLimit < 0 || timeLimit.isNegative())
+         throw new IllegalArgumentException("Invalid budget");
+      this.nodeLimit = nodeLimit;
+      this.iterationLimit = iterationLimit;
+      this.timeLimit = timeLimit.toNanos();
+   }
+
+   /**
+    * Simplify an expression to its cheapest equivalent form.
+    *
+    * @param expression - Expression to simplify
+    * @return The simplified expression
+    */
+   public Expression simplify(Expression expression) {
+      long deadline = System.nanoTime() + timeLimit;
+      EGraph graph = new EGraph();
+      // the greedy rules are cheap, and give saturation a smaller place to start
+      int root = graph.add(expression.simplify());
+      graph.rebuild();
+
+      // rules like commutativity match almost everything, and would crowd out
+      // the rest of the rules, so rules that match too often are banned for a
+      // while, for longer each time
+      int[] bannedUntil = new int[Rule.values().length];
+      int[] bans = new int[Rule.values().length];
+
+      for (int iteration = 0; iteration < iterationLimit; iteration++) {
+         List<Rewrite> rewrites = new ArrayList<>();
+         for (int id : graph.classIds())
+            for (ENode node : graph.nodes(id))
+               match(graph, id, node, rewrites);
+         if (System.nanoTime() > deadline)
+            break;
+
+         int[] matches = new int[bans.length];
+         for (Rewrite rewrite : rewrites)
+            matches[rewrite.rule().ordinal()]++;
+         boolean banned = false;
+         for (int rule = 0; rule < bans.length; rule++) {
+            if (bannedUntil[rule] <= iteration && matches[rule] > MATCH_LIMIT << bans[rule])
+               bannedUntil[rule] = iteration + (BAN_LENGTH << bans[rule]++);
+            banned |= bannedUntil[rule] > iteration;
+         }
+
+         int nodes = graph.nodeCount();
+         boolean changed = false;
+         for (int i = 0; i < rewrites.size() && graph.nodeCount() < nodeLimit; i++) {
+            Rewrite rewrite = rewrites.get(i);
+            if (bannedUntil[rewrite.rule().ordinal()] > iteration)
+               continue;
+            changed |= graph.merge(rewrite.eclass(), rewrite.replacement().getAsInt());
+            if ((i & 255) == 0 && System.nanoTime() > deadline)
+               break;
+         }
+         graph.rebuild();
+
+         boolean saturated = !changed && !banned && graph.nodeCount() == nodes;
+         if (saturated || graph.nodeCount() >= nodeLimit || System.nanoTime() > deadline)
+            break;
+      }
+
+      return graph.extract(root, EGraphSimplifier::weight);
+   }
+
+   /**
+    * Get the evaluation cost of an expression: the number of operations in it,
+    * weighted by their runtime.
+    *
+    * @param expression - The expression
+    * @return The cost
+    */
+   public static double cost(Expression expression) {
+      if (expression instanceof UnaryOperation unary)
+         return weight(Op.NEGATE, null) + cost(unary.expression());
+      if (expression instanceof BinaryOperation binary) {
+         Op op = switch (binary.operator()) {
+            case ADD -> Op.ADD;
+            case SUBTRACT -> Op.SUBTRACT;
+            case MULTIPLY -> Op.MULTIPLY;
+            case DIVIDE -> Op.DIVIDE;
+            case EXPONENTIATE -> Op.EXPONENTIATE;
+         };
+         return weight(op, null) + cost(binary.left()) + cost(binary.right());
+      }
+      if (expression instanceof FunctionCall call) {
+         double cost = weight(Op.CALL, call.name);
+         for (Expression argument : call.arguments)
+            cost += cost(argument);
+         return cost;
+      }
+      return weight(expression instanceof Constant ? Op.CONSTANT : Op.VARIABLE, null);
+   }
+
+   private static double weight(ENode node) {
+      return weight(node.op, node.name);
+   }
+
+   private static double weight(Op op, String function) {
+      return switch (op) {
+         case CONSTANT, VARIABLE, NEGATE, ADD, SUBTRACT -> 1;
+         case MULTIPLY -> 2;
+         case DIVIDE -> 4;
+         case EXPONENTIATE -> 24;
+         case CALL -> switch (function) {
+            case "abs", "sign", "heaviside", "max" -> 2;
+            default -> 24;
+         };
+      };
+   }
+
+   /**
+    * The rules, which the scheduler tracks separately.
+    */
+   private enum Rule {
+      NEGATE_NEGATE,
+      NEGATE_SCALE,
+      ADD_COMMUTE,
+      ADD_ZERO,
+      ADD_SAME,
+      ADD_ASSOCIATE,
+      ADD_NEGATE,
+      ADD_FACTOR,
+      SUBTRACT_SAME,
+      SUBTRACT_NEGATE,
+      MULTIPLY_COMMUTE,
+      MULTIPLY_ONE,
+      MULTIPLY_ZERO,
+      MULTIPLY_NEGATIVE_ONE,
+      MULTIPLY_SAME,
+      MULTIPLY_ASSOCIATE,
+      MULTIPLY_RECIPROCAL,
+      MULTIPLY_POWERS,
+      MULTIPLY_EXPONENTIALS,
+      DIVIDE_SAME,
+      DIVIDE_ONE,
+      DIVIDE_POWER,
+      POWER_ONE,
+      POWER_ZERO,
+      POWER_SQUARE,
+      POWER_RECIPROCAL,
+      FUNCTION_INVERSE,
+      FUNCTION_SYMMETRY
+   }
+
+   /**
+    * A rewrite found while searching the graph: the rule that found it, the
+    * class to merge the replacement into, and how to add the replacement.
+    */
+   private record Rewrite(Rule rule, int eclass, IntSupplier replacement) {
+   }
+
+   private static void match(EGraph g, int id, ENode node, List<Rewrite> out) {
+      switch (node.op) {
+         case NEGATE -> {
+            int a = node.child(0);
+            // -(-a) = a
+            for (ENode inner : g.nodes(a))
+               if (inner.op == Op.NEGATE)
+                  out.add(new Rewrite(Rule.NEGATE_NEGATE, id, () -> inner.child(0)));
+            // -a = -1 * a
+            out.add(new Rewrite(Rule.NEGATE_SCALE, id, () -> g.add(Op.MULTIPLY, g.constant(-1), a)));
+         }
+         case ADD -> {
+            int a = node.child(0), b = node.child(1);
+            // a + b = b + a
+            out.add(new Rewrite(Rule.ADD_COMMUTE, id, () -> g.add(Op.ADD, b, a)));
+            // a + 0 = 0 + a = a
+            if (g.isConstant(b, 0))
+               out.add(new Rewrite(Rule.ADD_ZERO, id, () -> a));
+            if (g.isConstant(a, 0))
+               out.add(new Rewrite(Rule.ADD_ZERO, id, () -> b));
+            // a + a = 2 * a
+            if (a == b)
+               out.add(new Rewrite(Rule.ADD_SAME, id, () -> g.add(Op.MULTIPLY, g.constant(2), a)));
+            for (ENode left : g.nodes(a)) {
+               // (x + y) + b = x + (y + b)
+               if (left.op == Op.ADD)
+                  out.add(new Rewrite(Rule.ADD_ASSOCIATE, id,
+                        () -> g.add(Op.ADD, left.child(0), g.add(Op.ADD, left.child(1), b))));
+            }
+            for (ENode right : g.nodes(b)) {
+               // a + (-y) = a - y
+               if (right.op == Op.NEGATE)
+                  out.add(new Rewrite(Rule.ADD_NEGATE, id, () -> g.add(Op.SUBTRACT, a, right.child(0))));
+               if (right.op != Op.MULTIPLY)
+                  continue;
+               // a + a * y = a * (1 + y)
+               if (right.child(0) == a)
+                  out.add(new Rewrite(Rule.ADD_FACTOR, id, () -> factor(g, a, g.constant(1), right.child(1))));
+               // x * y + x * z = x * (y + z)
+               for (ENode left : g.nodes(a)) {
+                  if (left.op != Op.MULTIPLY)
+                     continue;
+                  for (int i = 0; i < 2; i++) {
+                     for (int j = 0; j < 2; j++) {
+                        int common = left.child(i);
+                        if (common == right.child(j)) {
+                           int y = left.child(1 - i), z = right.child(1 - j);
+                           out.add(new Rewrite(Rule.ADD_FACTOR, id, () -> factor(g, common, y, z)));
+                        }
+                     }
+                  }
+               }
+            }
+         }
+         case SUBTRACT -> {
+            int a = node.child(0), b = node.child(1);
+            // a - a = 0
+            if (a == b)
+               out.add(new Rewrite(Rule.SUBTRACT_SAME, id, () -> g.constant(0)));
+            // a - b = a + (-b)
+            out.add(new Rewrite(Rule.SUBTRACT_NEGATE, id, () -> g.add(Op.ADD, a, g.add(Op.NEGATE, b))));
+         }
+         case MULTIPLY -> {
+            int a = node.child(0), b = node.child(1);
+            // a * b = b * a
+            out.add(new Rewrite(Rule.MULTIPLY_COMMUTE, id, () -> g.add(Op.MULTIPLY, b, a)));
+            // a * 1 = a, 1 * b = b, a * 0 = 0 * b = 0, -1 * b = -b
+            if (g.isConstant(b, 1))
+               out.add(new Rewrite(Rule.MULTIPLY_ONE, id, () -> a));
+            if (g.isConstant(a, 1))
+               out.add(new Rewrite(Rule.MULTIPLY_ONE, id, () -> b));
+            if (g.isConstant(a, 0) || g.isConstant(b, 0))
+               out.add(new Rewrite(Rule.MULTIPLY_ZERO, id, () -> g.constant(0)));
+            if (g.isConstant(a, -1))
+               out.add(new Rewrite(Rule.MULTIPLY_NEGATIVE_ONE, id, () -> g.add(Op.NEGATE, b)));
+            // a * a = a^2
+            if (a == b)
+               out.add(new Rewrite(Rule.MULTIPLY_SAME, id, () -> g.add(Op.EXPONENTIATE, a, g.constant(2))));
+
+            for (ENode left : g.nodes(a)) {
+               // (x * y) * b = x * (y * b)
+               if (left.op == Op.MULTIPLY)
+                  out.add(new Rewrite(Rule.MULTIPLY_ASSOCIATE, id,
+                        () -> g.add(Op.MULTIPLY, left.child(0), g.add(Op.MULTIPLY, left.child(1), b))));
+            }
+            for (ENode right : g.nodes(b)) {
+               if (right.op == Op.EXPONENTIATE) {
+                  int base = right.child(0), exponent = right.child(1);
+                  // a * b^-1 = a / b
+                  if (g.isConstant(exponent, -1))
+                     out.add(new Rewrite(Rule.MULTIPLY_RECIPROCAL, id, () -> g.add(Op.DIVIDE, a, base)));
+                  // x * x^p = x^(p + 1)
+                  if (base == a)
+                     out.add(new Rewrite(Rule.MULTIPLY_POWERS, id,
+                           () -> g.add(Op.EXPONENTIATE, a, g.add(Op.ADD, exponent, g.constant(1)))));
+                  for (ENode left : g.nodes(a)) {
+                     if (left.op != Op.EXPONENTIATE)
+                        continue;
+                     // x^p * x^q = x^(p + q)
+                     if (left.child(0) == base)
+                        out.add(new Rewrite(Rule.MULTIPLY_POWERS, id, () -> g.add(Op.EXPONENTIATE, base,
+                              g.add(Op.ADD, left.child(1), exponent))));
+                     // x^p * y^p = (x * y)^p
+                     if (left.child(1) == exponent)
+                        out.add(new Rewrite(Rule.MULTIPLY_POWERS, id, () -> g.add(Op.EXPONENTIATE,
+                              g.add(Op.MULTIPLY, left.child(0), base), exponent)));
+                  }
+               }
+               // exp(x) * exp(y) = exp(x + y)
+               if (right.op == Op.CALL && right.name.equals("exp")) {
+                  for (ENode left : g.nodes(a))
+                     if (left.op == Op.CALL && left.name.equals("exp"))
+                        out.add(new Rewrite(Rule.MULTIPLY_EXPONENTIALS, id,
+                              () -> g.call("exp", g.add(Op.ADD, left.child(0), right.child(0)))));
+               }
+            }
+         }
+         case DIVIDE -> {
+            int a = node.child(0), b = node.child(1);
+            // a / a = 1, where a isn't 0
+            if (a == b && !g.isConstant(a, 0))
+               out.add(new Rewrite(Rule.DIVIDE_SAME, id, () -> g.constant(1)));
+            // a / 1 = a
+            if (g.isConstant(b, 1))
+               out.add(new Rewrite(Rule.DIVIDE_ONE, id, () -> a));
+            // a / b = a * b^-1
+            out.add(new Rewrite(Rule.DIVIDE_POWER, id,
+                  () -> g.add(Op.MULTIPLY, a, g.add(Op.EXPONENTIATE, b, g.constant(-1)))));
+         }
+         case EXPONENTIATE -> {
+            int a = node.child(0), b = node.child(1);
+            // a^1 = a, a^0 = 1, 1^b = 1
+            if (g.isConstant(b, 1))
+               out.add(new Rewrite(Rule.POWER_ONE, id, () -> a));
+            if (g.isConstant(b, 0) || g.isConstant(a, 1))
+               out.add(new Rewrite(Rule.POWER_ZERO, id, () -> g.constant(1)));
+            // a^2 = a * a
+            if (g.isConstant(b, 2))
+               out.add(new Rewrite(Rule.POWER_SQUARE, id, () -> g.add(Op.MULTIPLY, a, a)));
+            if (!g.isConstant(b, -1))
+               return;
+            // a^-1 = 1 / a
+            out.add(new Rewrite(Rule.POWER_RECIPROCAL, id, () -> g.add(Op.DIVIDE, g.constant(1), a)));
+            for (ENode inner : g.nodes(a)) {
+               int x = inner.children.length == 2 ? inner.child(0) : -1;
+               int y = inner.children.length == 2 ? inner.child(1) : -1;
+               // (x * y)^-1 = x^-1 * y^-1, (x / y)^-1 = y / x, (x^-1)^-1 = x
+               if (inner.op == Op.MULTIPLY)
+                  out.add(new Rewrite(Rule.POWER_RECIPROCAL, id, () -> g.add(Op.MULTIPLY, g.add(Op.EXPONENTIATE, x, b),
+                        g.add(Op.EXPONENTIATE, y, b))));
+               if (inner.op == Op.DIVIDE)
+                  out.add(new Rewrite(Rule.POWER_RECIPROCAL, id, () -> g.add(Op.DIVIDE, y, x)));
+               if (inner.op == Op.EXPONENTIATE && g.isConstant(y, -1))
+                  out.add(new Rewrite(Rule.POWER_RECIPROCAL, id, () -> x));
+            }
+         }
+         case CALL -> {
+            if (node.children.length != 1)
+               return;
+            int a = node.child(0);
+            for (ENode inner : g.nodes(a)) {
+               // ln(exp(x)) = x
+               if (node.name.equals("ln") && inner.op == Op.CALL && inner.name.equals("exp"))
+                  out.add(new Rewrite(Rule.FUNCTION_INVERSE, id, () -> inner.child(0)));
+               if (inner.op != Op.NEGATE)
+                  continue;
+               // sin(-x) = -sin(x), cos(-x) = cos(x)
+               if (node.name.equals("sin"))
+                  out.add(new Rewrite(Rule.FUNCTION_SYMMETRY, id,
+                        () -> g.add(Op.NEGATE, g.call("sin", inner.child(0)))));
+               if (node.name.equals("cos"))
+                  out.add(new Rewrite(Rule.FUNCTION_SYMMETRY, id, () -> g.call("cos", inner.child(0))));
+            }
+         }
+         default -> {
+         }
+      }
+   }
+
+   private static int factor(EGraph g, int common, int first, int second) {
+      return g.add(Op.MULTIPLY, common, g.add(Op.ADD, first, second));
+   }
+}
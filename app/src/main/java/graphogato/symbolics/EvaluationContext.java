@@ -1,18 +1,107 @@
 package graphogato.symbolics;
 
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 /**
+ * The variables and functions an expression is evaluated against, along with a
+ * frame of slots for bound variables.
+ *
+ * <p>
+ * A context is either mutable, like one made with the constructor, or frozen,
+ * like one made by a {@link Builder} or {@link #freeze()}. A frozen context
+ * can't be changed, so it can be shared between any number of threads. The
+ * child of a frozen context is a mutable overlay on top of it, made in constant
+ * time: lookups fall through to the frozen context, and writes and removals
+ * only go to the child. The child of a mutable context copies it instead, since its parent
+ * could still change.
+ *
  * @author Gavin Borne
  */
 public final class EvaluationContext {
-   private final Map<String, Double> variables = new HashMap<>();
-   private final Map<String, Function> functions = new HashMap<>();
+   /** The frozen context this one overlays, or null. */
+   private final EvaluationContext base;
+   private final boolean frozen;
+   private final Map<String, Double> localVariables;
+   private final Map<String, Function> localFunctions;
+   // the names removed from this context that the base still has
+   private final Set<String> removedVariables;
+   private final Set<String> removedFunctions;
+   private final Map<String, Double> variables;
+   private final Map<String, Function> functions;
+   private final Map<String, Integer> slots = new HashMap<>();
+   private double[] frame = new double[0];
+   // a NaN with a payload of its own, marking slots that haven't been given a
+   // value; the NaNs of arithmetic and parsing are all the canonical one
+   private static final long UNSET = 0x7ff8_0000_0000_0badL;
 
    /** An empty evaluation context. */
    public static final EvaluationContext EMPTY = new EvaluationContext();
 
+   /**
+    * Create a new, empty, mutable evaluation context.
+    */
+   public EvaluationContext() {
+      this(null, new HashMap<>(), new HashMap<>(), new HashSet<>(), new HashSet<>(), false);
+   }
+
+   private EvaluationContext(EvaluationContext base, Map<String, Double> localVariables,
+         Map<String, Function> localFunctions, Set<String> removedVariables, Set<String> removedFunctions,
+         boolean frozen) {
+      this.base = base;
+      this.frozen = frozen;
+      this.localVariables = localVariables;
+      this.localFunctions = localFunctions;
+      this.removedVariables = removedVariables;
+      this.removedFunctions = removedFunctions;
+
+      Map<String, Double> variables = (base == null) ? localVariables
+            : new Overlay<>(localVariables, removedVariables, base.variables);
+      Map<String, Function> functions = (base == null) ? localFunctions
+            : new Overlay<>(localFunctions, removedFunctions, base.functions);
+      this.variables = frozen ? Collections.unmodifiableMap(variables) : variables;
+      this.functions = frozen ? Collections.unmodifiableMap(functions) : functions;
+   }
+
+   /**
+    * Get a frozen context holding every builtin function. It's shared, so
+    * starting from it with {@link #extend()} or {@link #child()} doesn't copy
+    * the builtins.
+    *
+    * @return The builtin context
+    */
+   public static EvaluationContext withBuiltins() {
+      return BuiltinsHolder.CONTEXT;
+   }
+
+   /**
+    * Create a builder of a frozen context, starting out empty.
+    *
+    * @return The builder
+    */
+   public static Builder builder() {
+      return new Builder(new EvaluationContext());
+   }
+
+   /**
+    * Create a builder of a frozen context, starting out with all the functions
+    * and variables from this context.
+    *
+    * @return The builder
+    */
+   public Builder extend() {
+      return new Builder(child());
+   }
+
    /**
     * Create a child of this context, which will include all the functions and
     * variables from this context.
@@ -20,14 +109,43 @@ public final class EvaluationContext {
     * @return Child context
     */
    public EvaluationContext child() {
-      EvaluationContext context = new EvaluationContext();
-      context.functions.putAll(functions);
-      context.variables.putAll(variables);
+      if (frozen)
+         return new EvaluationContext(this, new HashMap<>(), new HashMap<>(), new HashSet<>(), new HashSet<>(),
+               false);
+
+      EvaluationContext context = new EvaluationContext(base, new HashMap<>(localVariables),
+            new HashMap<>(localFunctions), new HashSet<>(removedVariables), new HashSet<>(removedFunctions), false);
+      context.slots.putAll(slots);
+      context.frame = frame.clone();
       return context;
    }
 
    /**
-    * Get the variables in this evaluation context.
+    * Get a frozen snapshot of this context's functions and variables. Slots are
+    * left out, since a frozen context can't be bound to.
+    *
+    * @return The frozen context, or this context if it's already frozen
+    */
+   public EvaluationContext freeze() {
+      if (frozen)
+         return this;
+      return new EvaluationContext(base, new HashMap<>(localVariables), new HashMap<>(localFunctions),
+            new HashSet<>(removedVariables), new HashSet<>(removedFunctions), true);
+   }
+
+   /**
+    * Check whether this context is frozen.
+    *
+    * @return Whether this context can't be changed
+    */
+   public boolean isFrozen() {
+      return frozen;
+   }
+
+   /**
+    * Get the variables in this evaluation context. The map of a frozen context
+    * can't be modified, and removing a variable from a child of a frozen
+    * context hides it in the child, without changing the frozen context.
     *
     * @return A map of variable names to values
     */
@@ -36,7 +154,9 @@ public final class EvaluationContext {
    }
 
    /**
-    * Get the functions in this evaluation context.
+    * Get the functions in this evaluation context. The map of a frozen context
+    * can't be modified, and removing a function from a child of a frozen
+    * context hides it in the child, without changing the frozen context.
     *
     * @return A map of function names to functions
     */
@@ -44,6 +164,68 @@ public final class EvaluationContext {
       return functions;
    }
 
+   /**
+    * Get the frame slot of a variable, allocating one if the variable doesn't
+    * have a slot yet. A newly allocated slot starts with the variable's value
+    * in {@link #variables()} if it has one, or no value otherwise, until it's
+    * set with {@link #setSlot(int, double)}; after that, the slot and the map
+    * are independent of each other.
+    *
+    * @param name - Name of the variable
+    * @return The variable's slot
+    */
+   public int slot(String name) {
+      Integer slot = slots.get(name);
+      if (slot != null)
+         return slot;
+      if (frozen)
+         throw new UnsupportedOperationException("Cannot allocate a slot in a frozen context: " + name);
+
+      int allocated = slots.size();
+      slots.put(name, allocated);
+      if (allocated >= frame.length)
+         frame = Arrays.copyOf(frame, Math.max(4, frame.length * 2));
+      Double value = variables.get(name);
+      frame[allocated] = (value == null) ? Double.longBitsToDouble(UNSET) : value;
+      return allocated;
+   }
+
+   /**
+    * Set the value stored in a frame slot.
+    *
+    * @param slot  - Slot of the variable, as returned by {@link #slot(String)}
+    * @param value - New value of the variable
+    */
+   public void setSlot(int slot, double value) {
+      frame[slot] = value;
+   }
+
+   /**
+    * Get the value stored in a frame slot. Like looking up a variable with no
+    * value, reading a slot that was never given one fails.
+    *
+    * @param slot - Slot of the variable, as returned by {@link #slot(String)}
+    * @return The variable's value
+    */
+   public double getSlot(int slot) {
+      double value = frame[slot];
+      // only NaNs need the second check, so values are read at full speed
+      if (value != value && Double.doubleToRawLongBits(value) == UNSET)
+         throw new IllegalStateException("No value for variable " + slotNames()[slot]);
+      return value;
+   }
+
+   /**
+    * Get the names of the variables with slots.
+    *
+    * @return The names, indexed by slot
+    */
+   String[] slotNames() {
+      String[] names = new String[slots.size()];
+      slots.forEach((name, slot) -> names[slot] = name);
+      return names;
+   }
+
    @Override
    public boolean equals(Object other) {
       if (this == other)
@@ -54,4 +236,171 @@ public final class EvaluationContext {
       }
       return false;
    }
+
+   /**
+    * A builder of frozen contexts, with chaining.
+    */
+   public static final class Builder {
+      private final EvaluationContext context;
+
+      private Builder(EvaluationContext context) {
+         this.context = context;
+      }
+
+      /**
+       * Add a variable, replacing any variable with the same name.
+       *
+       * @param name  - Name of the variable
+       * @param value - Value of the variable
+       * @return This builder
+       */
+      public Builder variable(String name, double value) {
+         context.variables.put(name, value);
+         return this;
+      }
+
+      /**
+       * Add a function under its own name, replacing any function with the same
+       * name.
+       *
+       * @param function - The function
+       * @return This builder
+       */
+      public Builder function(Function function) {
+         context.functions.put(function.name, function);
+         return this;
+      }
+
+      /**
+       * Add all of the builtin functions.
+       *
+       * @return This builder
+       */
+      public Builder builtins() {
+         Builtins.install(context);
+         return this;
+      }
+
+      /**
+       * Build a frozen context from everything added so far. The builder can
+       * still be used afterward, without affecting the built context.
+       *
+       * @return The frozen context
+       */
+      public EvaluationContext build() {
+         return context.freeze();
+      }
+   }
+
+   /**
+    * A map whose entries are looked up in a local map first, then in a parent
+    * map that isn't modified through it. Keys removed while the parent still
+    * has them are remembered, so they stay hidden.
+    */
+   private static final class Overlay<V> extends AbstractMap<String, V> {
+      private final Map<String, V> local;
+      private final Set<String> removed;
+      private final Map<String, V> parent;
+
+      Overlay(Map<String, V> local, Set<String> removed, Map<String, V> parent) {
+         this.local = local;
+         this.removed = removed;
+         this.parent = parent;
+      }
+
+      @Override
+      public V get(Object key) {
+         V value = local.get(key);
+         if (value != null || local.containsKey(key))
+            return value;
+         return removed.contains(key) ? null : parent.get(key);
+      }
+
+      @Override
+      public boolean containsKey(Object key) {
+         return local.containsKey(key) || (!removed.contains(key) && parent.containsKey(key));
+      }
+
+      @Override
+      public V put(String key, V value) {
+         V previous = get(key);
+         local.put(key, value);
+         removed.remove(key);
+         return previous;
+      }
+
+      @Override
+      public V remove(Object key) {
+         if (!containsKey(key))
+            return null;
+         V previous = get(key);
+         local.remove(key);
+         if (parent.containsKey(key))
+            removed.add((String) key);
+         return previous;
+      }
+
+      @Override
+      public void clear() {
+         local.clear();
+         removed.addAll(parent.keySet());
+      }
+
+      @Override
+      public Set<Entry<String, V>> entrySet() {
+         return new AbstractSet<>() {
+            @Override
+            public Iterator<Entry<String, V>> iterator() {
+               // iterate over a snapshot of the keys, removing through the
+               // overlay; values are set with put
+               List<String> keys = new ArrayList<>(local.keySet());
+               for (String key : parent.keySet()) {
+                  if (!local.containsKey(key) && !removed.contains(key))
+                     keys.add(key);
+               }
+               Iterator<String> iterator = keys.iterator();
+
+               return new Iterator<>() {
+                  private String current = null;
+
+                  @Override
+                  public boolean hasNext() {
+                     return iterator.hasNext();
+                  }
+
+                  @Override
+                  public Entry<String, V> next() {
+                     current = iterator.next();
+                     return new SimpleImmutableEntry<>(current, get(current));
+                  }
+
+                  @Override
+                  public void remove() {
+                     if (current == null)
+                        throw new IllegalStateException();
+                     Overlay.this.remove(current);
+                     current = null;
+                  }
+               };
+            }
+
+            @Override
+            public int size() {
+               int size = local.size();
+               for (String key : parent.keySet()) {
+                  if (!local.containsKey(key) && !removed.contains(key))
+                     size++;
+               }
+               return size;
+            }
+         };
+      }
+   }
+
+   /**
+    * Holds the builtin context, so it's only made when it's first used.
+    */
+   private static final class BuiltinsHolder {
+      static final EvaluationContext CONTEXT = builder().builtins().build();
+   }
 }
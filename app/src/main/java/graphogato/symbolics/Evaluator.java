@@ -0,0 +1,198 @@
+package graphogato.symbolics;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicReference;
+
+import graphogato.symbolics.expressions.Expression;
+
+/**
+ * An evaluator that picks how to evaluate each expression by how often it's
+ * evaluated. Every expression starts out in the tree interpreter, which costs
+ * nothing to set up. Once it has been evaluated enough times, it's flattened
+ * into a {@link Program} in the background, and once it has been evaluated many
+ * more times, it's compiled with {@link ExpressionCompiler}. Each tier takes
+ * over as soon as it's ready, and gives the same results as the one before.
+ *
+ * @author Gavin Borne
+ */
+public final class Evaluator {
+   /** The evaluations before promotion to a program, without a threshold given. */
+   public static final long DEFAULT_PROGRAM_THRESHOLD = 1_000;
+   /** The evaluations before promotion to compiled code, without a threshold given. */
+   public static final long DEFAULT_COMPILE_THRESHOLD = 100_000;
+
+   private final Executor executor;
+   private final long programThreshold;
+   private final long compileThreshold;
+
+   /**
+    * Create a new evaluator that promotes on the common pool, with the default
+    * thresholds.
+    */
+   public Evaluator() {
+      this(ForkJoinPool.commonPool(), DEFAULT_PROGRAM_THRESHOLD, DEFAULT_COMPILE_THRESHOLD);
+   }
+
+   /**
+    * Create a new evaluator. A threshold of {@link Long#MAX_VALUE} turns its
+    * tier off, and a compile threshold no larger than the program threshold
+    * skips programs.
+    *
+    * @param executor         - The executor to promote expressions on
+    * @param programThreshold - The evaluations before an expression is
+    *                         flattened into a program
+    * @param compileThreshold - The evaluations before an expression is compiled
+    */
+   public Evaluator(Executor executor, long programThreshold, long compileThreshold) {
+      if (programThreshold < 0 || compileThreshold < 0)
+         throw new IllegalArgumentException(
+               "Thresholds must not be negative: " + programThreshold + ", " + compileThreshold);
+      this.executor = executor;
+      this.programThreshold = programThreshold;
+      this.compileThreshold = compileThreshold;
+   }
+
+   /**
+    * Prepare an expression for evaluation. Variables other than the given ones
+    * take their values from the context when the expression is prepared.
+    *
+    * @param expression - Expression to evaluate
+    * @param context    - Context of the evaluation, holding the functions and
+    *                   every other variable. It isn't modified.
+    * @param variables  - Names of the variables, in slot order
+    * @return The prepared expression, in the interpreter tier
+    */
+   public Handle prepare(Expression expression, EvaluationContext context, String... variables) {
+      return new Handle(this, expression, context, variables);
+   }
+
+   /**
+    * The ways an expression can be evaluated, from slowest to fastest.
+    */
+   public enum Tier {
+      /** Walking the expression tree. */
+      INTERPRETER,
+      /** Running a {@link Program}. */
+      PROGRAM,
+      /** Calling code generated by {@link ExpressionCompiler}. */
+      COMPILED;
+   }
+
+   /**
+    * An expression prepared by an evaluator, which counts its evaluations and
+    * promotes itself when it gets hot.
+    *
+    * <p>
+    * A handle must only be evaluated by one thread at a time, since the
+    * interpreter and programs keep state between evaluations. Promotions run on
+    * the evaluator's executor, and the new tier is swapped in atomically.
+    */
+   public static final class Handle implements CompiledExpression {
+      private final Evaluator evaluator;
+      private final Expression expression;
+      private final EvaluationContext local;
+      private final String[] names;
+      private final int arity;
+      // the values of every slot when the expression was bound
+      private final double[] initial;
+      private final AtomicReference<CompiledExpression> implementation;
+      private volatile Tier tier = Tier.INTERPRETER;
+      private volatile long nextThreshold;
+      private long invocations = 0;
+
+      private Handle(Evaluator evaluator, Expression expression, EvaluationContext context, String[] variables) {
+         this.evaluator = evaluator;
+         this.expression = expression;
+         // a frozen context has no slots, so the given variables take the first
+         // slots, and the rest of the variables are filled in by binding
+         this.local = context.freeze().child();
+         this.arity = variables.length;
+         for (int i = 0; i < arity; i++) {
+            if (local.slot(variables[i]) != i)
+               throw new IllegalArgumentException("Duplicate variable: " + variables[i]);
+         }
+         Expression bound = expression.bind(local);
+         this.names = local.slotNames();
+         this.initial = new double[names.length];
+         for (int slot = arity; slot < names.length; slot++) {
+            if (!local.variables().containsKey(names[slot]))
+               throw new IllegalStateException("No value for variable " + names[slot]);
+            initial[slot] = local.getSlot(slot);
+         }
+
+         this.implementation = new AtomicReference<>(vars -> {
+            for (int slot = 0; slot < arity; slot++)
+               local.setSlot(slot, vars[slot]);
+            return bound.evaluate(local);
+         });
+         this.nextThreshold = Math.min(evaluator.programThreshold, evaluator.compileThreshold);
+      }
+
+      @Override
+      public double applyAsDouble(double[] vars) {
+         if (++invocations >= nextThreshold)
+            promote();
+         return implementation.get().applyAsDouble(vars);
+      }
+
+      /**
+       * Get the tier this expression is evaluated in.
+       *
+       * @return The tier
+       */
+      public Tier tier() {
+         return tier;
+      }
+
+      /**
+       * Get the number of times this expression has been evaluated. It's only
+       * exact when read from the thread evaluating it.
+       *
+       * @return The number of evaluations
+       */
+      public long invocations() {
+         return invocations;
+      }
+
+      private void promote() {
+         Tier target = (tier == Tier.INTERPRETER && invocations < evaluator.compileThreshold) ? Tier.PROGRAM
+               : Tier.COMPILED;
+         // only one promotion at a time
+         nextThreshold = Long.MAX_VALUE;
+         try {
+            evaluator.executor.execute(() -> promote(target));
+         } catch (RejectedExecutionException e) {
+            // the expression stays in its tier
+         }
+      }
+
+      private void promote(Tier target) {
+         CompiledExpression compiled;
+         try {
+            compiled = (target == Tier.PROGRAM) ? Program.compile(expression, local, names)
+                  : ExpressionCompiler.compile(expression, local, names);
+         } catch (RuntimeException e) {
+            // the tree interpreter reports errors when it gets to them, so an
+            // expression that doesn't compile stays in its tier
+            return;
+         }
+
+         CompiledExpression promoted = compiled;
+         if (names.length > arity) {
+            // fill in the rest of the variables the way they were bound
+            double[] vars = initial.clone();
+            promoted = values -> {
+               System.arraycopy(values, 0, vars, 0, arity);
+               return compiled.applyAsDouble(vars);
+            };
+         }
+
+         implementation.set(promoted);
+         tier = target;
+         if (target == Tier.PROGRAM)
+            nextThreshold = evaluator.compileThreshold;
+      }
+   }
+}
@@ -0,0 +1,447 @@
+package graphogato.symbolics;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.invoke.MethodHandles;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import graphogato.symbolics.expressions.BinaryOperation;
+import graphogato.symbolics.expressions.BoundVariable;
+import graphogato.symbolics.expressions.Constant;
+import graphogato.symbolics.expressions.Expression;
+import graphogato.symbolics.expressions.FunctionCall;
+import graphogato.symbolics.expressions.UnaryOperation;
+import graphogato.symbolics.expressions.Variable;
+
+/**
+ * A compiler that turns expressions into generated JVM classes, so they can be
+ * evaluated without walking the expression tree. Builtin functions are inlined
+ * as direct calls to {@link Math}, and any other function is called through its
+ * evaluator.
+ *
+ * @author Gavin Borne
+ */
+public final class ExpressionCompiler {
+   private static final MethodHandles.Lookup LOOKUP = MethodHandles.lookup();
+
+   private static final String CLASS_NAME = "graphogato/symbolics/ExpressionCompiler$Compiled";
+   private static final String INTERFACE_NAME = "graphogato/symbolics/CompiledExpression";
+   private static final String FALLBACK_NAME = "graphogato/symbolics/ExpressionCompiler$Fallback";
+   private static final String FALLBACKS_DESCRIPTOR = "[L" + FALLBACK_NAME + ";";
+   private static final int MAX_CODE_LENGTH = 65535;
+
+   private static final Map<String, Intrinsic> INTRINSICS = Map.of(
+         "sin", new Intrinsic("java/lang/Math", "sin", 1),
+         "cos", new Intrinsic("java/lang/Math", "cos", 1),
+         "exp", new Intrinsic("java/lang/Math", "exp", 1),
+         "ln", new Intrinsic("java/lang/Math", "log", 1),
+         "abs", new Intrinsic("java/lang/Math", "abs", 1),
+         "sign", new Intrinsic("java/lang/Math", "signum", 1),
+         "max", new Intrinsic("java/lang/Math", "max", 2),
+         "heaviside", new Intrinsic("graphogato/symbolics/ExpressionCompiler", "heaviside", 1));
+
+   private ExpressionCompiler() {
+   }
+
+   /**
+    * Compile an expression. The expression is expected to be simplified already
+    * (as it is when returned by {@link Parser#parse(CharSequence)}), since the
+    * compiled code mirrors its tree exactly, giving the same results as
+    * {@link Expression#evaluate(EvaluationContext)}.
+    *
+    * @param expression - Expression to compile
+    * @param context    - Context used to resolve functions
+    * @param variables  - Names of the variables, in slot order
+    * @return The compiled expression
+    */
+   public static CompiledExpression compile(Expression expression, EvaluationContext context, String... variables) {
+      Map<String, Integer> slots = new HashMap<>();
+      for (int i = 0; i < variables.length; i++)
+         slots.put(variables[i], i);
+
+      Generator generator = new Generator(context, slots);
+      generator.emit(expression);
+      // methods can't be larger than 64KiB, so huge trees stay interpreted
+      if (generator.code.size() > MAX_CODE_LENGTH)
+         return interpret(expression, context, variables.clone());
+
+      try {
+         Class<?> compiled = LOOKUP.defineHiddenClass(generator.toClassFile(), true).lookupClass();
+         Fallback[] fallbacks = generator.fallbacks.toArray(new Fallback[0]);
+         return (CompiledExpression) compiled.getConstructor(Fallback[].class).newInstance((Object) fallbacks);
+      } catch (ReflectiveOperationException e) {
+         throw new IllegalStateException("Failed to compile expression: " + expression, e);
+      }
+   }
+
+   private static CompiledExpression interpret(Expression expression, EvaluationContext context, String[] variables) {
+      return vars -> {
+         EvaluationContext local = context.child();
+         for (int i = 0; i < variables.length; i++)
+            local.variables().put(variables[i], vars[i]);
+         return expression.evaluate(local);
+      };
+   }
+
+   /**
+    * The heaviside step function, called directly by compiled code.
+    *
+    * @param x - Input
+    * @return 0 if x is negative, otherwise 1
+    */
+   static double heaviside(double x) {
+      return x < 0 ? 0.0 : 1.0;
+   }
+
+   /**
+    * A call to a function that can't be inlined, made by compiled code through the
+    * function's evaluator.
+    */
+   static final class Fallback {
+      private final Function function;
+
+      Fallback(Function function) {
+         this.function = function;
+      }
+
+      double apply(double[] arguments) {
+         return function.variadicEvaluator.applyAsDouble(arguments);
+      }
+   }
+
+   private record Intrinsic(String owner, String name, int arity) {
+      String descriptor() {
+         return "(" + "D".repeat(arity) + ")D";
+      }
+   }
+
+   /**
+    * Generates the bytecode of a compiled expression class.
+    */
+   private static final class Generator {
+      private static final int ALOAD_0 = 0x2a;
+      private static final int ALOAD_1 = 0x2b;
+      private static final int ICONST_0 = 0x03;
+      private static final int BIPUSH = 0x10;
+      private static final int SIPUSH = 0x11;
+      private static final int LDC_W = 0x13;
+      private static final int LDC2_W = 0x14;
+      private static final int DCONST_0 = 0x0e;
+      private static final int DCONST_1 = 0x0f;
+      private static final int DALOAD = 0x31;
+      private static final int AALOAD = 0x32;
+      private static final int DASTORE = 0x52;
+      private static final int DUP = 0x59;
+      private static final int DADD = 0x63;
+      private static final int DSUB = 0x67;
+      private static final int DMUL = 0x6b;
+      private static final int DDIV = 0x6f;
+      private static final int DNEG = 0x77;
+      private static final int DRETURN = 0xaf;
+      private static final int RETURN = 0xb1;
+      private static final int GETFIELD = 0xb4;
+      private static final int PUTFIELD = 0xb5;
+      private static final int INVOKEVIRTUAL = 0xb6;
+      private static final int INVOKESPECIAL = 0xb7;
+      private static final int INVOKESTATIC = 0xb8;
+      private static final int NEWARRAY = 0xbc;
+      private static final int T_DOUBLE = 7;
+
+      private final EvaluationContext context;
+      private final Map<String, Integer> slots;
+      private final ConstantPool pool = new ConstantPool();
+      private final ByteArrayOutputStream code = new ByteArrayOutputStream();
+      private final List<Fallback> fallbacks = new ArrayList<>();
+      private int depth = 0;
+      private int maxDepth = 0;
+
+      Generator(EvaluationContext context, Map<String, Integer> slots) {
+         this.context = context;
+         this.slots = slots;
+      }
+
+      void emit(Expression expression) {
+         if (expression instanceof Constant constant)
+            emitConstant(constant.value());
+         else if (expression instanceof Variable variable)
+            emitVariable(variable.name());
+         else if (expression instanceof BoundVariable variable)
+            emitVariable(variable.name());
+         else if (expression instanceof UnaryOperation unary) {
+            emit(unary.expression());
+            switch (unary.operator()) {
+               case NEGATE -> op(DNEG, 0);
+            }
+         } else if (expression instanceof BinaryOperation binary) {
+            emit(binary.left());
+            emit(binary.right());
+            switch (binary.operator()) {
+               case ADD -> op(DADD, -2);
+               case SUBTRACT -> op(DSUB, -2);
+               case MULTIPLY -> op(DMUL, -2);
+               case DIVIDE -> op(DDIV, -2);
+               case EXPONENTIATE -> invokeStatic("java/lang/Math", "pow", "(DD)D", -2);
+            }
+         } else if (expression instanceof FunctionCall call)
+            emitCall(call);
+         else
+            throw new IllegalArgumentException("Cannot compile expression: " + expression);
+      }
+
+      private void emitConstant(double value) {
+         if (Double.doubleToRawLongBits(value) == 0L)
+            op(DCONST_0, 2);
+         else if (value == 1.0)
+            op(DCONST_1, 2);
+         else {
+            op(LDC2_W, 2);
+            u2(pool.doubleConstant(value));
+         }
+      }
+
+      private void emitVariable(String name) {
+         Integer slot = slots.get(name);
+         if (slot == null)
+            throw new IllegalStateException("No slot for variable " + name);
+         op(ALOAD_1, 1);
+         pushInt(slot);
+         op(DALOAD, 0);
+      }
+
+      private void emitCall(FunctionCall call) {
+         Function definition = context.functions().getOrDefault(call.name, Builtins.get(call.name));
+
+         if (definition == null)
+            throw new IllegalStateException("Unknown function: " + call.name);
+         if (definition.arity >= 0 && definition.arity != call.arguments.size())
+            throw new IllegalStateException("Arity mismatch for " + call.name + ": expected " + definition.arity
+                  + ", got " + call.arguments.size());
+
+         Intrinsic intrinsic = INTRINSICS.get(call.name);
+         if (intrinsic != null && definition == Builtins.get(call.name)) {
+            for (Expression argument : call.arguments)
+               emit(argument);
+            invokeStatic(intrinsic.owner(), intrinsic.name(), intrinsic.descriptor(), 2 - 2 * intrinsic.arity());
+            return;
+         }
+
+         // this.fallbacks[index].apply(new double[] { arguments... })
+         int index = fallbacks.size();
+         fallbacks.add(new Fallback(definition));
+         op(ALOAD_0, 1);
+         op(GETFIELD, 0);
+         u2(pool.fieldRef(CLASS_NAME, "fallbacks", FALLBACKS_DESCRIPTOR));
+         pushInt(index);
+         op(AALOAD, -1);
+         pushInt(call.arguments.size());
+         op(NEWARRAY, 0);
+         code.write(T_DOUBLE);
+         for (int i = 0; i < call.arguments.size(); i++) {
+            op(DUP, 1);
+            pushInt(i);
+            emit(call.arguments.get(i));
+            op(DASTORE, -4);
+         }
+         op(INVOKEVIRTUAL, 0);
+         u2(pool.methodRef(FALLBACK_NAME, "apply", "([D)D"));
+      }
+
+      private void invokeStatic(String owner, String name, String descriptor, int stackChange) {
+         op(INVOKESTATIC, stackChange);
+         u2(pool.methodRef(owner, name, descriptor));
+      }
+
+      private void pushInt(int value) {
+         if (value <= 5) {
+            op(ICONST_0 + value, 1);
+         } else if (value <= Byte.MAX_VALUE) {
+            op(BIPUSH, 1);
+            code.write(value);
+         } else if (value <= Short.MAX_VALUE) {
+            op(SIPUSH, 1);
+            u2(value);
+         } else {
+            op(LDC_W, 1);
+            u2(pool.intConstant(value));
+         }
+      }
+
+      private void op(int opcode, int stackChange) {
+         code.write(opcode);
+         depth += stackChange;
+         maxDepth = Math.max(maxDepth, depth);
+      }
+
+      private void u2(int value) {
+         code.write(value >>> 8);
+         code.write(value);
+      }
+
+      byte[] toClassFile() {
+         op(DRETURN, -2);
+         byte[] body = code.toByteArray();
+
+         // constructor storing the fallbacks
+         ByteArrayOutputStream init = new ByteArrayOutputStream();
+         init.write(ALOAD_0);
+         init.write(INVOKESPECIAL);
+         writeU2(init, pool.methodRef("java/lang/Object", "<init>", "()V"));
+         init.write(ALOAD_0);
+         init.write(ALOAD_1);
+         init.write(PUTFIELD);
+         writeU2(init, pool.fieldRef(CLASS_NAME, "fallbacks", FALLBACKS_DESCRIPTOR));
+         init.write(RETURN);
+
+         int thisClass = pool.classRef(CLASS_NAME);
+         int superClass = pool.classRef("java/lang/Object");
+         int interfaceClass = pool.classRef(INTERFACE_NAME);
+         int fieldName = pool.utf8("fallbacks");
+         int fieldDescriptor = pool.utf8(FALLBACKS_DESCRIPTOR);
+         int initName = pool.utf8("<init>");
+         int initDescriptor = pool.utf8("(" + FALLBACKS_DESCRIPTOR + ")V");
+         int applyName = pool.utf8("applyAsDouble");
+         int applyDescriptor = pool.utf8("([D)D");
+         int codeName = pool.utf8("Code");
+
+         ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+         try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeInt(0xCAFEBABE);
+            out.writeShort(0); // minor version
+            out.writeShort(61); // major version (Java 17)
+            out.writeShort(pool.count);
+            pool.bytes.writeTo(out);
+            out.writeShort(0x0031); // public final super
+            out.writeShort(thisClass);
+            out.writeShort(superClass);
+            out.writeShort(1);
+            out.writeShort(interfaceClass);
+
+            out.writeShort(1);
+            out.writeShort(0x0012); // private final
+            out.writeShort(fieldName);
+            out.writeShort(fieldDescriptor);
+            out.writeShort(0);
+
+            out.writeShort(2);
+            writeMethod(out, initName, initDescriptor, codeName, 2, init.toByteArray());
+            writeMethod(out, applyName, applyDescriptor, codeName, maxDepth, body);
+
+            out.writeShort(0);
+         } catch (IOException e) {
+            throw new UncheckedIOException(e);
+         }
+         return bytes.toByteArray();
+      }
+
+      private static void writeMethod(DataOutputStream out, int name, int descriptor, int codeName, int maxStack,
+            byte[] body) throws IOException {
+         out.writeShort(0x0001); // public
+         out.writeShort(name);
+         out.writeShort(descriptor);
+         out.writeShort(1);
+         out.writeShort(codeName);
+         out.writeInt(12 + body.length);
+         out.writeShort(maxStack);
+         out.writeShort(2); // this and the argument
+         out.writeInt(body.length);
+         out.write(body);
+         out.writeShort(0); // exception table
+         out.writeShort(0); // attributes
+      }
+
+      private static void writeU2(ByteArrayOutputStream out, int value) {
+         out.write(value >>> 8);
+         out.write(value);
+      }
+   }
+
+   /**
+    * The constant pool of a generated class, deduplicating its entries.
+    */
+   private static final class ConstantPool {
+      private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+      private final DataOutputStream out = new DataOutputStream(bytes);
+      private final Map<String, Integer> indices = new HashMap<>();
+      private int count = 1;
+
+      int utf8(String value) {
+         return entry("U" + value, 1, () -> {
+            out.writeByte(1);
+            out.writeUTF(value);
+         });
+      }
+
+      int classRef(String name) {
+         int nameIndex = utf8(name);
+         return entry("C" + name, 1, () -> {
+            out.writeByte(7);
+            out.writeShort(nameIndex);
+         });
+      }
+
+      int fieldRef(String owner, String name, String descriptor) {
+         return memberRef(9, owner, name, descriptor);
+      }
+
+      int methodRef(String owner, String name, String descriptor) {
+         return memberRef(10, owner, name, descriptor);
+      }
+
+      int intConstant(int value) {
+         return entry("I" + value, 1, () -> {
+            out.writeByte(3);
+            out.writeInt(value);
+         });
+      }
+
+      int doubleConstant(double value) {
+         long bits = Double.doubleToRawLongBits(value);
+         // doubles take up two entries in the pool
+         return entry("D" + bits, 2, () -> {
+            out.writeByte(6);
+            out.writeLong(bits);
+         });
+      }
+
+      private int memberRef(int tag, String owner, String name, String descriptor) {
+         int ownerIndex = classRef(owner);
+         int nameIndex = utf8(name);
+         int descriptorIndex = utf8(descriptor);
+         int nameAndType = entry("N" + name + ":" + descriptor, 1, () -> {
+            out.writeByte(12);
+            out.writeShort(nameIndex);
+            out.writeShort(descriptorIndex);
+         });
+         return entry(tag + owner + "." + name + ":" + descriptor, 1, () -> {
+            out.writeByte(tag);
+            out.writeShort(ownerIndex);
+            out.writeShort(nameAndType);
+         });
+      }
+
+      private int entry(String key, int size, EntryWriter writer) {
+         Integer existing = indices.get(key);
+         if (existing != null)
+            return existing;
+         try {
+            writer.write();
+         } catch (IOException e) {
+            throw new UncheckedIOException(e);
+         }
+         int index = count;
+         count += size;
+         indices.put(key, index);
+         return index;
+      }
+
+      @FunctionalInterface
+      private interface EntryWriter {
+         void write() throws IOException;
+      }
+   }
+}
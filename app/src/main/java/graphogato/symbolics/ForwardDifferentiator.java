@@ -0,0 +1,140 @@
+package graphogato.symbolics;
+
+import graphogato.symbolics.expressions.BinaryOperation;
+import graphogato.symbolics.expressions.BoundVariable;
+import graphogato.symbolics.expressions.Constant;
+import graphogato.symbolics.expressions.Expression;
+import graphogato.symbolics.expressions.FunctionCall;
+import graphogato.symbolics.expressions.UnaryOperation;
+import graphogato.symbolics.expressions.Variable;
+
+/**
+ * A forward-mode automatic differentiator. Instead of building a symbolic
+ * derivative with {@link Expression#differentiate(String)}, it walks the
+ * expression once with dual numbers (truncated Taylor series of order 2),
+ * computing the value and the first and second derivatives together.
+ *
+ * @author Gavin Borne
+ */
+public final class ForwardDifferentiator {
+   private ForwardDifferentiator() {
+   }
+
+   /**
+    * Evaluate an expression and its derivatives with respect to a variable.
+    * Calls to functions with an argument depending on the variable need a
+    * {@link Function#numericDerivative}.
+    *
+    * @param expression - Expression to evaluate
+    * @param context    - Context of the evaluation
+    * @param variable   - Variable to differentiate with respect to
+    * @return The value and its first and second derivatives
+    */
+   public static Dual evaluate(Expression expression, EvaluationContext context, String variable) {
+      if (expression instanceof Constant constant)
+         return Dual.constant(constant.value());
+      if (expression instanceof Variable var)
+         return var.name().equals(variable) ? new Dual(var.evaluate(context), 1, 0)
+               : Dual.constant(var.evaluate(context));
+      if (expression instanceof BoundVariable var)
+         return var.name().equals(variable) ? new Dual(var.evaluate(context), 1, 0)
+               : Dual.constant(var.evaluate(context));
+
+      if (expression instanceof UnaryOperation unary) {
+         Dual x = evaluate(unary.expression(), context, variable);
+         return switch (unary.operator()) {
+            case NEGATE -> new Dual(-x.value(), -x.first(), -x.second());
+         };
+      }
+
+      if (expression instanceof BinaryOperation binary) {
+         Dual u = evaluate(binary.left(), context, variable);
+         Dual v = evaluate(binary.right(), context, variable);
+         return switch (binary.operator()) {
+            case ADD -> new Dual(u.value() + v.value(), u.first() + v.first(), u.second() + v.second());
+            case SUBTRACT -> new Dual(u.value() - v.value(), u.first() - v.first(), u.second() - v.second());
+            // (uv)'' = u''v + 2u'v' + uv''
+            case MULTIPLY -> new Dual(u.value() * v.value(), u.first() * v.value() + u.value() * v.first(),
+                  u.second() * v.value() + 2 * u.first() * v.first() + u.value() * v.second());
+            case DIVIDE -> divide(u, v);
+            case EXPONENTIATE -> pow(u, v);
+         };
+      }
+
+      if (expression instanceof FunctionCall call)
+         return call(call, context, variable);
+
+      throw new IllegalArgumentException("Cannot differentiate expression: " + expression);
+   }
+
+   private static Dual divide(Dual u, Dual v) {
+      // q = u / v, so u = qv and q' = (u' - qv') / v, q'' = (u'' - 2q'v' - qv'') / v
+      double q = u.value() / v.value();
+      double first = (u.first() - q * v.first()) / v.value();
+      double second = (u.second() - 2 * first * v.first() - q * v.second()) / v.value();
+      return new Dual(q, first, second);
+   }
+
+   private static Dual pow(Dual u, Dual v) {
+      double value = Math.pow(u.value(), v.value());
+
+      if (v.isConstant()) {
+         // (u^c)' = c u^(c - 1) u'
+         double c = v.value();
+         double d1 = c * Math.pow(u.value(), c - 1);
+         double d2 = c * (c - 1) * Math.pow(u.value(), c - 2);
+         return new Dual(value, d1 * u.first(), d2 * u.first() * u.first() + d1 * u.second());
+      }
+
+      // u^v = exp(g) where g = v ln(u), so (u^v)' = u^v g' and (u^v)'' = u^v (g'' + g'^2)
+      double ln = Math.log(u.value());
+      double ratio = u.first() / u.value();
+      double g1 = v.first() * ln + v.value() * ratio;
+      double g2 = v.second() * ln + 2 * v.first() * ratio
+            + v.value() * (u.second() / u.value() - ratio * ratio);
+      return new Dual(value, value * g1, value * (g2 + g1 * g1));
+   }
+
+   private static Dual call(FunctionCall call, EvaluationContext context, String variable) {
+      Function definition = context.functions().getOrDefault(call.name, Builtins.get(call.name));
+
+      if (definition == null)
+         throw new IllegalStateException("Unknown function: " + call.name);
+      if (definition.arity >= 0 && definition.arity != call.arguments.size())
+         throw new IllegalStateException("Arity mismatch for " + call.name + ": expected " + definition.arity
+               + ", got " + call.arguments.size());
+
+      int argc = call.arguments.size();
+      Dual[] duals = new Dual[argc];
+      double[] values = new double[argc];
+      boolean constant = true;
+      for (int i = 0; i < argc; i++) {
+         duals[i] = evaluate(call.arguments.get(i), context, variable);
+         values[i] = duals[i].value();
+         constant &= duals[i].isConstant();
+      }
+
+      double value = definition.variadicEvaluator.applyAsDouble(values);
+      if (constant)
+         return Dual.constant(value);
+
+      NumericDerivative derivative = definition.numericDerivative;
+      if (derivative == null)
+         throw new UnsupportedOperationException("No numeric derivative defined for function: " + call.name);
+
+      // chain rule: f' = sum f_i g_i', f'' = sum f_ij g_i' g_j' + sum f_i g_i''
+      double first = 0, second = 0;
+      for (int i = 0; i < argc; i++) {
+         if (duals[i].isConstant())
+            continue;
+         double partial = derivative.partial(values, i);
+         first += partial * duals[i].first();
+         second += partial * duals[i].second();
+         for (int j = 0; j < argc; j++) {
+            if (duals[i].first() != 0 && duals[j].first() != 0)
+               second += derivative.secondPartial(values, i, j) * duals[i].first() * duals[j].first();
+         }
+      }
+      return new Dual(value, first, second);
+   }
+}
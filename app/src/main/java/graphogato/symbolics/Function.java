@@ -1,7 +1,11 @@
 package graphogato.symbolics;
 
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Objects;
 import java.util.function.BiFunction;
+import java.util.function.DoubleBinaryOperator;
+import java.util.function.DoubleUnaryOperator;
 
 import graphogato.symbolics.expressions.Expression;
 
@@ -14,7 +18,17 @@ public final class Function {
    public final String name;
    public final int arity;
    public final java.util.function.Function<List<Double>, Double> evaluator;
+   /** The primitive evaluator of a function of one argument, or null. */
+   public final DoubleUnaryOperator unaryEvaluator;
+   /** The primitive evaluator of a function of two arguments, or null. */
+   public final DoubleBinaryOperator binaryEvaluator;
+   /** The primitive evaluator taking an array of the arguments. */
+   public final DoubleVariadicOperator variadicEvaluator;
    public final BiFunction<List<Expression>, String, Expression> derivative;
+   /** The numeric partial derivatives of this function, or null. */
+   public final NumericDerivative numericDerivative;
+   /** The interval extension of this function, or null. */
+   public final IntervalExtension intervalExtension;
 
    /**
     * Create a new function.
@@ -34,10 +48,106 @@ public final class Function {
     */
    public Function(String name, int arity, java.util.function.Function<List<Double>, Double> evaluator,
          BiFunction<List<Expression>, String, Expression> derivative) {
+      this(name, arity, evaluator, null, null, arguments -> {
+         ArrayList<Double> values = new ArrayList<>(arguments.length);
+         for (double argument : arguments)
+            values.add(argument);
+         return evaluator.apply(values);
+      }, derivative, null, null);
+   }
+
+   private Function(String name, int arity, java.util.function.Function<List<Double>, Double> evaluator,
+         DoubleUnaryOperator unaryEvaluator, DoubleBinaryOperator binaryEvaluator,
+         DoubleVariadicOperator variadicEvaluator, BiFunction<List<Expression>, String, Expression> derivative,
+         NumericDerivative numericDerivative, IntervalExtension intervalExtension) {
       this.name = name;
       this.arity = arity;
       this.evaluator = evaluator;
+      this.unaryEvaluator = unaryEvaluator;
+      this.binaryEvaluator = binaryEvaluator;
+      this.variadicEvaluator = variadicEvaluator;
       this.derivative = derivative;
+      this.numericDerivative = numericDerivative;
+      this.intervalExtension = intervalExtension;
+   }
+
+   /**
+    * Create a new function of one argument with a primitive evaluator.
+    *
+    * @param name       - The name of the function
+    * @param evaluator  - The evaluator for this function
+    * @param derivative - The derivative function for this function, which takes a
+    *                   list of the arguments given, the variable to differentiate
+    *                   with respect to, and returns the result
+    * @return The function
+    */
+   public static Function unary(String name, DoubleUnaryOperator evaluator,
+         BiFunction<List<Expression>, String, Expression> derivative) {
+      return new Function(name, 1, args -> evaluator.applyAsDouble(args.get(0)), evaluator, null,
+            arguments -> evaluator.applyAsDouble(arguments[0]), derivative, null, null);
+   }
+
+   /**
+    * Create a new function of two arguments with a primitive evaluator.
+    *
+    * @param name       - The name of the function
+    * @param evaluator  - The evaluator for this function
+    * @param derivative - The derivative function for this function, which takes a
+    *                   list of the arguments given, the variable to differentiate
+    *                   with respect to, and returns the result
+    * @return The function
+    */
+   public static Function binary(String name, DoubleBinaryOperator evaluator,
+         BiFunction<List<Expression>, String, Expression> derivative) {
+      return new Function(name, 2, args -> evaluator.applyAsDouble(args.get(0), args.get(1)), null, evaluator,
+            arguments -> evaluator.applyAsDouble(arguments[0], arguments[1]), derivative, null, null);
+   }
+
+   /**
+    * Create a new function with a primitive evaluator taking an array of the
+    * arguments.
+    *
+    * @param name       - The name of the function
+    * @param arity      - The arity of the function; variadic functions have an
+    *                   arity of -1
+    * @param evaluator  - The evaluator for this function
+    * @param derivative - The derivative function for this function, which takes a
+    *                   list of the arguments given, the variable to differentiate
+    *                   with respect to, and returns the result
+    * @return The function
+    */
+   public static Function variadic(String name, int arity, DoubleVariadicOperator evaluator,
+         BiFunction<List<Expression>, String, Expression> derivative) {
+      return new Function(name, arity, args -> {
+         double[] arguments = new double[args.size()];
+         for (int i = 0; i < arguments.length; i++)
+            arguments[i] = args.get(i);
+         return evaluator.applyAsDouble(arguments);
+      }, null, null, evaluator, derivative, null, null);
+   }
+
+   /**
+    * Create a copy of this function with numeric partial derivatives, so calls to
+    * it can be differentiated while evaluating.
+    *
+    * @param numericDerivative - The numeric partial derivatives of this function
+    * @return The function with numeric derivatives
+    */
+   public Function withNumericDerivative(NumericDerivative numericDerivative) {
+      return new Function(name, arity, evaluator, unaryEvaluator, binaryEvaluator, variadicEvaluator, derivative,
+            numericDerivative, intervalExtension);
+   }
+
+   /**
+    * Create a copy of this function with an interval extension, so calls to it
+    * can be evaluated over intervals.
+    *
+    * @param intervalExtension - The interval extension of this function
+    * @return The function with an interval extension
+    */
+   public Function withIntervalExtension(IntervalExtension intervalExtension) {
+      return new Function(name, arity, evaluator, unaryEvaluator, binaryEvaluator, variadicEvaluator, derivative,
+            numericDerivative, intervalExtension);
    }
 
    /**
@@ -70,6 +180,16 @@ public final class Function {
       return this.evaluator;
    }
 
+   /**
+    * Get the primitive evaluator for this function, which takes an array of the
+    * arguments given and returns the result.
+    *
+    * @return This function's primitive evaluator
+    */
+   public DoubleVariadicOperator variadicEvaluator() {
+      return this.variadicEvaluator;
+   }
+
    /**
     * Get the derivative function for this function, which takes a list of the
     * arguments given, the variable to differentiate with respect to, and returns
@@ -85,7 +205,10 @@ public final class Function {
          return true;
       if (other instanceof Function function) {
          return this.name.equals(function.name) && this.arity == function.arity
-               && this.evaluator.equals(function.evaluator) && this.derivative.equals(function.derivative);
+               && this.evaluator.equals(function.evaluator)
+               && Objects.equals(this.unaryEvaluator, function.unaryEvaluator)
+               && Objects.equals(this.binaryEvaluator, function.binaryEvaluator)
+               && Objects.equals(this.derivative, function.derivative);
       }
       return false;
    }
@@ -0,0 +1,352 @@
+package graphogato.symbolics;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import graphogato.symbolics.expressions.BinaryOperation;
+import graphogato.symbolics.expressions.BoundVariable;
+import graphogato.symbolics.expressions.Constant;
+import graphogato.symbolics.expressions.Expression;
+import graphogato.symbolics.expressions.FunctionCall;
+import graphogato.symbolics.expressions.UnaryOperation;
+import graphogato.symbolics.expressions.Variable;
+
+/**
+ * A tape for reverse-mode automatic differentiation. The expression is recorded
+ * once as a linear tape of steps; each evaluation runs the tape forwards to get
+ * the value, then backwards to accumulate the adjoint of every step, producing
+ * the gradient with respect to every variable in a single pass.
+ *
+ * <p>
+ * The tape keeps its own buffers, so evaluating it allocates nothing, but it
+ * must not be shared between threads.
+ *
+ * @author Gavin Borne
+ */
+public final class GradientTape {
+   private static final int CONSTANT = 0;
+   private static final int VARIABLE = 1;
+   private static final int NEGATE = 2;
+   private static final int ADD = 3;
+   private static final int SUBTRACT = 4;
+   private static final int MULTIPLY = 5;
+   private static final int DIVIDE = 6;
+   private static final int EXPONENTIATE = 7;
+   private static final int CALL = 8;
+
+   private final List<String> variables;
+   private final int[] opcodes;
+   private final int[] first;
+   private final int[] second;
+   private final double[] constants;
+   private final boolean[] dependent;
+   private final Function[] functions;
+   private final int[][] arguments;
+   private final double[][] argumentValues;
+   private final double[] values;
+   private final double[] adjoints;
+   private final double[] point;
+
+   private GradientTape(Recorder recorder) {
+      int length = recorder.opcodes.size();
+      this.variables = Collections.unmodifiableList(recorder.variables);
+      this.opcodes = new int[length];
+      this.first = new int[length];
+      this.second = new int[length];
+      this.constants = new double[length];
+      this.dependent = new boolean[length];
+      this.functions = recorder.functions.toArray(new Function[0]);
+      this.arguments = recorder.arguments.toArray(new int[0][]);
+      this.argumentValues = new double[length][];
+      this.values = new double[length];
+      this.adjoints = new double[length];
+      this.point = new double[variables.size()];
+
+      for (int i = 0; i < length; i++) {
+         opcodes[i] = recorder.opcodes.get(i);
+         first[i] = recorder.first.get(i);
+         second[i] = recorder.second.get(i);
+         constants[i] = recorder.constants.get(i);
+         dependent[i] = recorder.dependent.get(i);
+         if (arguments[i] != null)
+            argumentValues[i] = new double[arguments[i].length];
+      }
+   }
+
+   /**
+    * Record an expression onto a tape. The gradient covers every variable in the
+    * context's {@link EvaluationContext#variables()}, followed by any other
+    * variable the expression uses, and functions are resolved from the context.
+    *
+    * @param expression - Expression to record
+    * @param context    - Context of the evaluation
+    * @return The tape
+    */
+   public static GradientTape record(Expression expression, EvaluationContext context) {
+      Recorder recorder = new Recorder(context);
+      recorder.add(expression);
+      return new GradientTape(recorder);
+   }
+
+   /**
+    * Get the variables of the gradient, in the order they are written to the
+    * gradient array.
+    *
+    * @return The variables
+    */
+   public List<String> variables() {
+      return variables;
+   }
+
+   /**
+    * Evaluate the expression and its gradient, reading the variables from an
+    * evaluation context.
+    *
+    * @param context  - Context of the evaluation
+    * @param gradient - The array to write the gradient to, indexed like
+    *                 {@link #variables()}
+    * @return Evaluated expression
+    */
+   public double evaluate(EvaluationContext context, double[] gradient) {
+      for (int i = 0; i < point.length; i++) {
+         Double value = context.variables().get(variables.get(i));
+         if (value == null)
+            throw new IllegalStateException("No value for variable " + variables.get(i));
+         point[i] = value;
+      }
+      return evaluate(point, gradient);
+   }
+
+   /**
+    * Evaluate the expression and its gradient at a point.
+    *
+    * @param point    - The values of the variables, indexed like
+    *                 {@link #variables()}
+    * @param gradient - The array to write the gradient to, indexed like
+    *                 {@link #variables()}
+    * @return Evaluated expression
+    */
+   public double evaluate(double[] point, double[] gradient) {
+      if (point.length < variables.size() || gradient.length < variables.size())
+         throw new IllegalArgumentException("Expected arrays of at least " + variables.size() + " variables");
+
+      forward(point);
+      int last = opcodes.length - 1;
+      Arrays.fill(adjoints, 0);
+      Arrays.fill(gradient, 0, variables.size(), 0);
+      adjoints[last] = 1;
+
+      for (int i = last; i >= 0; i--) {
+         double adjoint = adjoints[i];
+         if (adjoint == 0 || !dependent[i])
+            continue;
+
+         int a = first[i], b = second[i];
+         switch (opcodes[i]) {
+            case VARIABLE -> gradient[a] += adjoint;
+            case NEGATE -> adjoints[a] -= adjoint;
+            case ADD -> {
+               adjoints[a] += adjoint;
+               adjoints[b] += adjoint;
+            }
+            case SUBTRACT -> {
+               adjoints[a] += adjoint;
+               adjoints[b] -= adjoint;
+            }
+            case MULTIPLY -> {
+               adjoints[a] += adjoint * values[b];
+               adjoints[b] += adjoint * values[a];
+            }
+            case DIVIDE -> {
+               adjoints[a] += adjoint / values[b];
+               adjoints[b] -= adjoint * values[i] / values[b];
+            }
+            case EXPONENTIATE -> {
+               // d/du u^v = v u^(v - 1), d/dv u^v = u^v ln(u)
+               if (dependent[a])
+                  adjoints[a] += adjoint * values[b] * Math.pow(values[a], values[b] - 1);
+               if (dependent[b])
+                  adjoints[b] += adjoint * values[i] * Math.log(values[a]);
+            }
+            case CALL -> backwardCall(i, adjoint);
+            default -> {
+            }
+         }
+      }
+      return values[last];
+   }
+
+   private void forward(double[] point) {
+      for (int i = 0; i < opcodes.length; i++) {
+         values[i] = switch (opcodes[i]) {
+            case CONSTANT -> constants[i];
+            case VARIABLE -> point[first[i]];
+            case NEGATE -> -values[first[i]];
+            case ADD -> values[first[i]] + values[second[i]];
+            case SUBTRACT -> values[first[i]] - values[second[i]];
+            case MULTIPLY -> values[first[i]] * values[second[i]];
+            case DIVIDE -> values[first[i]] / values[second[i]];
+            case EXPONENTIATE -> Math.pow(values[first[i]], values[second[i]]);
+            case CALL -> {
+               Function function = functions[i];
+               int[] indices = arguments[i];
+               if (function.unaryEvaluator != null)
+                  yield function.unaryEvaluator.applyAsDouble(values[indices[0]]);
+               if (function.binaryEvaluator != null)
+                  yield function.binaryEvaluator.applyAsDouble(values[indices[0]], values[indices[1]]);
+               double[] argumentValues = this.argumentValues[i];
+               for (int k = 0; k < indices.length; k++)
+                  argumentValues[k] = values[indices[k]];
+               yield function.variadicEvaluator.applyAsDouble(argumentValues);
+            }
+            default -> throw new IllegalStateException("Illegal opcode: " + opcodes[i]);
+         };
+      }
+   }
+
+   private void backwardCall(int step, double adjoint) {
+      Function function = functions[step];
+      NumericDerivative derivative = function.numericDerivative;
+      if (derivative == null)
+         throw new UnsupportedOperationException("No numeric derivative defined for function: " + function.name);
+
+      int[] indices = arguments[step];
+      double[] argumentValues = this.argumentValues[step];
+      for (int k = 0; k < indices.length; k++)
+         argumentValues[k] = values[indices[k]];
+      for (int k = 0; k < indices.length; k++) {
+         if (dependent[indices[k]])
+            adjoints[indices[k]] += adjoint * derivative.partial(argumentValues, k);
+      }
+   }
+
+   /**
+    * Records the steps of the tape, giving every structurally distinct subtree
+    * one step. Steps are keyed by their opcode and operand steps rather than by
+    * {@link Expression#equals(Object)}, which treats constants 0 and -0 as
+    * equal, so subtrees that differ only in the sign of a zero stay separate.
+    */
+   private static final class Recorder {
+      private final EvaluationContext context;
+      private final List<String> variables;
+      private final Map<String, Integer> variableIndices = new HashMap<>();
+      // nodes are hash-consed, so a node already added is found by identity
+      private final Map<Expression, Integer> added = new IdentityHashMap<>();
+      private final Map<StepKey, Integer> steps = new HashMap<>();
+      private final List<Integer> opcodes = new ArrayList<>();
+      private final List<Integer> first = new ArrayList<>();
+      private final List<Integer> second = new ArrayList<>();
+      private final List<Double> constants = new ArrayList<>();
+      private final List<Boolean> dependent = new ArrayList<>();
+      private final List<Function> functions = new ArrayList<>();
+      private final List<int[]> arguments = new ArrayList<>();
+
+      Recorder(EvaluationContext context) {
+         this.context = context;
+         this.variables = new ArrayList<>(context.variables().keySet());
+         for (int i = 0; i < variables.size(); i++)
+            variableIndices.put(variables.get(i), i);
+      }
+
+      int add(Expression expression) {
+         Integer existing = added.get(expression);
+         if (existing != null)
+            return existing;
+
+         int step;
+         if (expression instanceof Constant constant)
+            // constants are keyed by bits, so 0 and -0 are different steps
+            step = step(CONSTANT, 0, 0, constant.value(), false, null, null,
+                  new StepKey(CONSTANT, 0, 0, Double.doubleToRawLongBits(constant.value()), null, null));
+         else if (expression instanceof Variable variable) {
+            int index = variableIndex(variable.name());
+            step = step(VARIABLE, index, 0, 0, true, null, null, new StepKey(VARIABLE, index, 0, 0, null, null));
+         } else if (expression instanceof BoundVariable variable) {
+            int index = variableIndex(variable.name());
+            step = step(VARIABLE, index, 0, 0, true, null, null, new StepKey(VARIABLE, index, 0, 0, null, null));
+         } else if (expression instanceof UnaryOperation unary) {
+            int operand = add(unary.expression());
+            int opcode = switch (unary.operator()) {
+               case NEGATE -> NEGATE;
+            };
+            step = step(opcode, operand, 0, 0, dependent.get(operand), null, null,
+                  new StepKey(opcode, operand, 0, 0, null, null));
+         } else if (expression instanceof BinaryOperation binary) {
+            int left = add(binary.left());
+            int right = add(binary.right());
+            int opcode = switch (binary.operator()) {
+               case ADD -> ADD;
+               case SUBTRACT -> SUBTRACT;
+               case MULTIPLY -> MULTIPLY;
+               case DIVIDE -> DIVIDE;
+               case EXPONENTIATE -> EXPONENTIATE;
+            };
+            // addition and multiplication give the same result either way around
+            StepKey key = (opcode == ADD || opcode == MULTIPLY)
+                  ? new StepKey(opcode, Math.min(left, right), Math.max(left, right), 0, null, null)
+                  : new StepKey(opcode, left, right, 0, null, null);
+            step = step(opcode, left, right, 0, dependent.get(left) || dependent.get(right), null, null, key);
+         } else if (expression instanceof FunctionCall call) {
+            Function definition = context.functions().getOrDefault(call.name, Builtins.get(call.name));
+            if (definition == null)
+               throw new IllegalStateException("Unknown function: " + call.name);
+            if (definition.arity >= 0 && definition.arity != call.arguments.size())
+               throw new IllegalStateException("Arity mismatch for " + call.name + ": expected "
+                     + definition.arity + ", got " + call.arguments.size());
+
+            int[] indices = new int[call.arguments.size()];
+            boolean depends = false;
+            for (int i = 0; i < indices.length; i++) {
+               indices[i] = add(call.arguments.get(i));
+               depends |= dependent.get(indices[i]);
+            }
+            step = step(CALL, 0, 0, 0, depends, definition, indices,
+                  new StepKey(CALL, 0, 0, 0, call.name, Arrays.stream(indices).boxed().toList()));
+         } else
+            throw new IllegalArgumentException("Cannot record expression: " + expression);
+
+         added.put(expression, step);
+         return step;
+      }
+
+      private int variableIndex(String name) {
+         return variableIndices.computeIfAbsent(name, key -> {
+            variables.add(key);
+            return variables.size() - 1;
+         });
+      }
+
+      private int step(int opcode, int firstOperand, int secondOperand, double constant, boolean depends,
+            Function function, int[] indices, StepKey key) {
+         Integer existing = steps.get(key);
+         if (existing != null)
+            return existing;
+         int step = step(opcode, firstOperand, secondOperand, constant, depends, function, indices);
+         steps.put(key, step);
+         return step;
+      }
+
+      private int step(int opcode, int firstOperand, int secondOperand, double constant, boolean depends,
+            Function function, int[] indices) {
+         opcodes.add(opcode);
+         first.add(firstOperand);
+         second.add(secondOperand);
+         constants.add(constant);
+         dependent.add(depends);
+         functions.add(function);
+         arguments.add(indices);
+         return opcodes.size() - 1;
+      }
+   }
+
+   /**
+    * The key of a step: its opcode, operand steps, constant bits and name.
+    */
+   private record StepKey(int opcode, int first, int second, long bits, String name, List<Integer> arguments) {
+   }
+}
@@ -0,0 +1,286 @@
+package graphogato.symbolics;
+
+import java.util.Arrays;
+import java.util.List;
+
+import graphogato.symbolics.expressions.Expression;
+
+/**
+ * A parser for input that's edited a little at a time, like an input box being
+ * typed in. After each edit, only the terms and parenthesized groups that
+ * overlap it are parsed again; the rest of the input is skipped, and the
+ * expressions parsed from it before are reused, so the same nodes come back and
+ * their simplifications are already known.
+ *
+ * <p>
+ * Terms (the operands of {@code +} and {@code -}) and groups are reused
+ * because they parse the same wherever they appear, as long as the text they
+ * span is unchanged. An incremental parser isn't thread-safe.
+ *
+ * @author Gavin Borne
+ */
+public final class IncrementalParser {
+   private String text = "";
+   private Spans terms = new Spans();
+   private Spans groups = new Spans();
+   private int reused = 0;
+
+   /**
+    * Parse a whole new input, forgetting the previous one.
+    *
+    * @param input - Input
+    * @return The input as an expression
+    */
+   public Expression parse(CharSequence input) {
+      terms = new Spans();
+      groups = new Spans();
+      text = input.toString();
+      return parseText();
+   }
+
+   /**
+    * Edit the input and parse it again. If the edited input doesn't parse, the
+    * edit is still kept, so the next one can fix it.
+    *
+    * @param offset   - Where the edit starts
+    * @param removed  - Number of characters removed at the offset
+    * @param inserted - Text inserted at the offset
+    * @return The edited input as an expression
+    */
+   public Expression edit(int offset, int removed, CharSequence inserted) {
+      if (offset < 0 || removed < 0 || offset + removed > text.length())
+         throw new IllegalArgumentException(
+               "Edit out of range: " + offset + ", " + removed + " (length " + text.length() + ")");
+
+      text = new StringBuilder(text.length() - removed + inserted.length())
+            .append(text, 0, offset)
+            .append(inserted)
+            .append(text, offset + removed, text.length())
+            .toString();
+
+      // a term next to the edit could continue into it (like "x" into "x2"), but
+      // a group is closed off by its parentheses
+      int delta = inserted.length() - removed;
+      terms.edit(offset, offset + removed, delta, false);
+      groups.edit(offset, offset + removed, delta, true);
+      return parseText();
+   }
+
+   /**
+    * Get the current input.
+    *
+    * @return The input
+    */
+   public String text() {
+      return text;
+   }
+
+   /**
+    * Get the number of terms and groups reused by the last parse.
+    *
+    * @return The number of reused spans
+    */
+   int reused() {
+      return reused;
+   }
+
+   private Expression parseText() {
+      Reuser cursor = new Reuser(text);
+      try {
+         cursor.next();
+         Expression expression = cursor.parseExpression(0);
+         cursor.expect(Parser.END);
+         return expression.simplify();
+      } finally {
+         // whatever parsed before a failure is still valid
+         terms.merge(cursor.terms);
+         groups.merge(cursor.groups);
+         reused = cursor.reused;
+      }
+   }
+
+   /**
+    * A cursor that skips over the terms and groups parsed before.
+    */
+   private final class Reuser extends Parser.Cursor {
+      final Spans terms = new Spans();
+      final Spans groups = new Spans();
+      int reused = 0;
+
+      Reuser(CharSequence input) {
+         super(input);
+      }
+
+      @Override
+      Expression parseTerm() {
+         int at = start;
+         int index = IncrementalParser.this.terms.find(at);
+         if (index >= 0) {
+            jump(IncrementalParser.this.terms.ends[index]);
+            // the term is only the same if the edit didn't extend it
+            if (endsTerm()) {
+               reused++;
+               return (Expression) IncrementalParser.this.terms.values[index];
+            }
+            jump(at);
+         }
+
+         Expression term = super.parseTerm();
+         if (endsTerm())
+            terms.add(at, previousEnd, term);
+         return term;
+      }
+
+      /**
+       * Check whether the current token can follow a term. If it can't, the input
+       * doesn't parse, and the term might not have either (like the {@code 2} in
+       * {@code 2e} that becomes {@code 2e-5}).
+       */
+      private boolean endsTerm() {
+         return switch (type) {
+            case Parser.END, Parser.COMMA, Parser.RIGHT_PAREN -> true;
+            case Parser.OPERATOR -> Parser.PRECEDENCE[operator] < Parser.TERM;
+            default -> false;
+         };
+      }
+
+      @Override
+      @SuppressWarnings("unchecked")
+      List<Expression> parseGroup(String name) {
+         int at = start;
+         int index = IncrementalParser.this.groups.find(at);
+         if (index >= 0) {
+            jump(IncrementalParser.this.groups.ends[index]);
+            reused++;
+            return (List<Expression>) IncrementalParser.this.groups.values[index];
+         }
+
+         List<Expression> group = super.parseGroup(name);
+         groups.add(at, previousEnd, List.copyOf(group));
+         return group;
+      }
+
+      private void jump(int to) {
+         position = to;
+         next();
+      }
+   }
+
+   /**
+    * Spans of the input and what they parsed to, sorted by where they start.
+    * Only one span of a kind can start at each offset. Spans are updated in
+    * place, merging into a second set of arrays that's swapped in, so an edit
+    * doesn't copy every span.
+    */
+   private static final class Spans {
+      int[] starts = new int[16];
+      int[] ends = new int[16];
+      Object[] values = new Object[16];
+      int size = 0;
+
+      private int[] spareStarts = new int[0];
+      private int[] spareEnds = new int[0];
+      private Object[] spareValues = new Object[0];
+
+      void add(int start, int end, Object value) {
+         if (size == starts.length) {
+            starts = Arrays.copyOf(starts, size * 2);
+            ends = Arrays.copyOf(ends, size * 2);
+            values = Arrays.copyOf(values, size * 2);
+         }
+         starts[size] = start;
+         ends[size] = end;
+         values[size] = value;
+         size++;
+      }
+
+      int find(int start) {
+         int index = Arrays.binarySearch(starts, 0, size, start);
+         return index >= 0 ? index : -1;
+      }
+
+      /**
+       * Remove the spans an edit changes, and move the rest to where they are
+       * after it.
+       *
+       * @param from      - Start of the removed text
+       * @param to        - End of the removed text
+       * @param delta     - Change in length
+       * @param touchable - Whether spans ending at the start of the edit or
+       *                  starting at its end are unchanged
+       */
+      void edit(int from, int to, int delta, boolean touchable) {
+         int kept = 0;
+         for (int i = 0; i < size; i++) {
+            int shift;
+            if (ends[i] < from || touchable && ends[i] == from)
+               shift = 0;
+            else if (starts[i] > to || touchable && starts[i] == to)
+               shift = delta;
+            else
+               continue;
+            starts[kept] = starts[i] + shift;
+            ends[kept] = ends[i] + shift;
+            values[kept] = values[i];
+            kept++;
+         }
+         Arrays.fill(values, kept, size, null);
+         size = kept;
+      }
+
+      /**
+       * Merge newly parsed spans into these, replacing any starting at the same
+       * offsets.
+       *
+       * @param parsed - Newly parsed spans, in the order they finished
+       */
+      void merge(Spans parsed) {
+         if (parsed.size == 0)
+            return;
+
+         // spans finish inside out, so sort them by where they start first
+         Integer[] order = new Integer[parsed.size];
+         for (int i = 0; i < order.length; i++)
+            order[i] = i;
+         Arrays.sort(order, (a, b) -> Integer.compare(parsed.starts[a], parsed.starts[b]));
+
+         if (spareStarts.length < size + parsed.size) {
+            int capacity = Math.max(starts.length, size + parsed.size);
+            spareStarts = new int[capacity];
+            spareEnds = new int[capacity];
+            spareValues = new Object[capacity];
+         }
+
+         int i = 0, merged = 0;
+         for (int j : order) {
+            while (i < size && starts[i] < parsed.starts[j])
+               merged = copy(i++, merged);
+            if (i < size && starts[i] == parsed.starts[j])
+               i++;
+            spareStarts[merged] = parsed.starts[j];
+            spareEnds[merged] = parsed.ends[j];
+            spareValues[merged++] = parsed.values[j];
+         }
+         while (i < size)
+            merged = copy(i++, merged);
+
+         int[] oldStarts = starts, oldEnds = ends;
+         Object[] oldValues = values;
+         starts = spareStarts;
+         ends = spareEnds;
+         values = spareValues;
+         spareStarts = oldStarts;
+         spareEnds = oldEnds;
+         spareValues = oldValues;
+         Arrays.fill(spareValues, 0, size, null);
+         size = merged;
+      }
+
+      private int copy(int from, int to) {
+         spareStarts[to] = starts[from];
+         spareEnds[to] = ends[from];
+         spareValues[to] = values[from];
+         return to + 1;
+      }
+   }
+}
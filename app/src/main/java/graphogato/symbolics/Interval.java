@@ -0,0 +1,253 @@
+package graphogato.symbolics;
+
+/**
+ * A closed interval of real numbers, bounding every value an expression can
+ * take over a range of its variables, as computed by {@link IntervalEvaluator}.
+ *
+ * <p>
+ * Bounds are rounded outwards, so an interval always contains the exact
+ * result. Values where an expression is undefined (NaN) are left out of its
+ * interval, so the logarithm of {@code [-1, 1]} is {@code [-inf, 0]}, and
+ * {@link #EMPTY} means the expression is undefined everywhere in the range.
+ *
+ * @param lo - The lower bound, or NaN if the interval is empty
+ * @param hi - The upper bound, or NaN if the interval is empty
+ * @author Gavin Borne
+ */
+public record Interval(double lo, double hi) {
+   /** The interval containing no values. */
+   public static final Interval EMPTY = new Interval(Double.NaN, Double.NaN);
+   /** The interval containing every value. */
+   public static final Interval ENTIRE = new Interval(Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY);
+
+   public Interval {
+      if (Double.isNaN(lo) != Double.isNaN(hi) || lo > hi)
+         throw new IllegalArgumentException("Invalid interval: [" + lo + ", " + hi + "]");
+   }
+
+   /**
+    * Create an interval containing a single value. NaN gives {@link #EMPTY}.
+    *
+    * @param value - The value
+    * @return The interval
+    */
+   public static Interval of(double value) {
+      return new Interval(value, value);
+   }
+
+   /**
+    * Create an interval, rounding its bounds outwards by an ulp to cover the
+    * rounding error of whatever computed them. NaN bounds give {@link #ENTIRE},
+    * since they come from an indeterminate form like {@code inf - inf}.
+    *
+    * @param lo - The rounded lower bound
+    * @param hi - The rounded upper bound
+    * @return The interval
+    */
+   public static Interval rounded(double lo, double hi) {
+      if (Double.isNaN(lo) || Double.isNaN(hi))
+         return ENTIRE;
+      return new Interval(Math.nextDown(lo), Math.nextUp(hi));
+   }
+
+   /**
+    * Check whether this interval contains no values.
+    *
+    * @return Whether this interval is empty
+    */
+   public boolean isEmpty() {
+      return Double.isNaN(lo);
+   }
+
+   /**
+    * Check whether this interval contains a value.
+    *
+    * @param value - The value
+    * @return Whether the value is in this interval
+    */
+   public boolean contains(double value) {
+      return lo <= value && value <= hi;
+   }
+
+   /**
+    * Check whether this interval and another have a value in common.
+    *
+    * @param other - The other interval
+    * @return Whether the intervals intersect
+    */
+   public boolean intersects(Interval other) {
+      return lo <= other.hi && other.lo <= hi;
+   }
+
+   /**
+    * Get the smallest interval containing this interval and another.
+    *
+    * @param other - The other interval
+    * @return The union of the intervals
+    */
+   public Interval hull(Interval other) {
+      if (isEmpty())
+         return other;
+      if (other.isEmpty())
+         return this;
+      return new Interval(Math.min(lo, other.lo), Math.max(hi, other.hi));
+   }
+
+   /**
+    * Negate this interval.
+    *
+    * @return The negated interval
+    */
+   public Interval negate() {
+      return isEmpty() ? EMPTY : new Interval(-hi, -lo);
+   }
+
+   /**
+    * Add another interval to this one.
+    *
+    * @param other - The other interval
+    * @return The sum
+    */
+   public Interval add(Interval other) {
+      if (isEmpty() || other.isEmpty())
+         return EMPTY;
+      return rounded(lo + other.lo, hi + other.hi);
+   }
+
+   /**
+    * Subtract another interval from this one.
+    *
+    * @param other - The other interval
+    * @return The difference
+    */
+   public Interval subtract(Interval other) {
+      if (isEmpty() || other.isEmpty())
+         return EMPTY;
+      return rounded(lo - other.hi, hi - other.lo);
+   }
+
+   /**
+    * Multiply this interval by another.
+    *
+    * @param other - The other interval
+    * @return The product
+    */
+   public Interval multiply(Interval other) {
+      if (isEmpty() || other.isEmpty())
+         return EMPTY;
+      double a = times(lo, other.lo), b = times(lo, other.hi), c = times(hi, other.lo), d = times(hi, other.hi);
+      return rounded(Math.min(Math.min(a, b), Math.min(c, d)), Math.max(Math.max(a, b), Math.max(c, d)));
+   }
+
+   /**
+    * Divide this interval by another. Dividing by an interval with 0 inside it
+    * gives two rays, which are covered by {@link #ENTIRE}; dividing by one
+    * ending at 0 gives the ray on one side.
+    *
+    * @param other - The divisor
+    * @return The quotient
+    */
+   public Interval divide(Interval other) {
+      if (isEmpty() || other.isEmpty())
+         return EMPTY;
+
+      if (other.lo > 0 || other.hi < 0)
+         return multiply(reciprocal(other.lo, other.hi));
+      // 0 / 0 is undefined, and x / 0 is infinite
+      if (other.lo == 0 && other.hi == 0)
+         return lo == 0 && hi == 0 ? EMPTY : ENTIRE;
+      if (other.lo < 0 && other.hi > 0 || contains(0))
+         return ENTIRE;
+
+      // the divisor is [0, d] or [c, 0], and this interval is on one side of 0
+      boolean positive = (lo > 0) == (other.hi > 0);
+      double nearest = (other.hi > 0) ? other.hi : other.lo;
+      double finite = (lo > 0) ? lo / nearest : hi / nearest;
+      return positive ? rounded(finite, Double.POSITIVE_INFINITY) : rounded(Double.NEGATIVE_INFINITY, finite);
+   }
+
+   /**
+    * Raise this interval to the power of another, following
+    * {@link Math#pow(double, double)}: negative bases are only defined for
+    * integer exponents.
+    *
+    * @param other - The exponent
+    * @return The power
+    */
+   public Interval pow(Interval other) {
+      if (other.lo == 0 && other.hi == 0)
+         return of(1);
+      if (isEmpty() || other.isEmpty())
+         return EMPTY;
+
+      double n = other.lo;
+      if (n == other.hi && n == Math.rint(n) && Math.abs(n) < 1L << 53)
+         return integerPow(n);
+
+      // a negative base only has values at integer exponents
+      if (lo < 0 && Math.floor(other.hi) >= other.lo)
+         return ENTIRE;
+      if (hi < 0)
+         return EMPTY;
+
+      // for a positive base, x^y is monotonic in x and in y, so the extremes are
+      // at the corners
+      double base = Math.max(lo, 0);
+      double a = Math.pow(base, other.lo), b = Math.pow(base, other.hi);
+      double c = Math.pow(hi, other.lo), d = Math.pow(hi, other.hi);
+      return rounded(Math.min(Math.min(a, b), Math.min(c, d)), Math.max(Math.max(a, b), Math.max(c, d)))
+            .atLeast(0);
+   }
+
+   private Interval integerPow(double n) {
+      if (n < 0)
+         return of(1).divide(integerPow(-n));
+
+      double a = Math.pow(lo, n), b = Math.pow(hi, n);
+      if (n % 2 != 0)
+         return rounded(a, b);
+      if (lo >= 0)
+         return rounded(a, b).atLeast(0);
+      if (hi <= 0)
+         return rounded(b, a).atLeast(0);
+      return rounded(0, Math.max(a, b)).atLeast(0);
+   }
+
+   /**
+    * Raise the lower bound of this interval, for results known to be at least
+    * some value that rounding outwards went below.
+    *
+    * @param min - The smallest possible value
+    * @return The clamped interval
+    */
+   Interval atLeast(double min) {
+      return (isEmpty() || lo >= min) ? this : new Interval(min, Math.max(min, hi));
+   }
+
+   /**
+    * Lower the upper bound of this interval, for results known to be at most
+    * some value that rounding outwards went above.
+    *
+    * @param max - The largest possible value
+    * @return The clamped interval
+    */
+   Interval atMost(double max) {
+      return (isEmpty() || hi <= max) ? this : new Interval(Math.min(max, lo), max);
+   }
+
+   private static Interval reciprocal(double lo, double hi) {
+      return rounded(1 / hi, 1 / lo);
+   }
+
+   /**
+    * Multiply two bounds, where an infinite bound times 0 is 0.
+    */
+   private static double times(double a, double b) {
+      return (a == 0 || b == 0) ? 0 : a * b;
+   }
+
+   @Override
+   public String toString() {
+      return isEmpty() ? "[]" : "[" + lo + ", " + hi + "]";
+   }
+}
@@ -0,0 +1,112 @@
+package graphogato.symbolics;
+
+import java.util.Map;
+
+import graphogato.symbolics.expressions.BinaryOperation;
+import graphogato.symbolics.expressions.BoundVariable;
+import graphogato.symbolics.expressions.Constant;
+import graphogato.symbolics.expressions.Expression;
+import graphogato.symbolics.expressions.FunctionCall;
+import graphogato.symbolics.expressions.UnaryOperation;
+import graphogato.symbolics.expressions.Variable;
+
+/**
+ * An evaluator that bounds an expression over intervals of its variables
+ * instead of evaluating it at a point. The result is guaranteed to contain
+ * every value the expression takes over the intervals, so whole regions can be
+ * ruled out with one evaluation, like screen tiles a curve can't pass through.
+ *
+ * <p>
+ * Bounds are usually wider than the exact range, since each operation only sees
+ * the intervals of its operands: {@code x - x} over {@code [0, 1]} is
+ * {@code [-1, 1]}, not {@code [0, 0]}.
+ *
+ * @author Gavin Borne
+ */
+public final class IntervalEvaluator {
+   private IntervalEvaluator() {
+   }
+
+   /**
+    * Bound an expression over intervals of some of its variables. Calls to
+    * functions with an argument that isn't a single value need a
+    * {@link Function#intervalExtension}.
+    *
+    * @param expression - Expression to evaluate
+    * @param context    - Context of the evaluation, holding the value of every
+    *                   variable not given an interval
+    * @param intervals  - The intervals of the variables, by name
+    * @return The interval of the expression's values
+    */
+   public static Interval evaluate(Expression expression, EvaluationContext context,
+         Map<String, Interval> intervals) {
+      if (expression instanceof Constant constant)
+         return Interval.of(constant.value());
+      if (expression instanceof Variable var) {
+         Interval interval = intervals.get(var.name());
+         return interval != null ? interval : Interval.of(var.evaluate(context));
+      }
+      if (expression instanceof BoundVariable var) {
+         Interval interval = intervals.get(var.name());
+         return interval != null ? interval : Interval.of(var.evaluate(context));
+      }
+
+      if (expression instanceof UnaryOperation unary) {
+         Interval x = evaluate(unary.expression(), context, intervals);
+         return switch (unary.operator()) {
+            case NEGATE -> x.negate();
+         };
+      }
+
+      if (expression instanceof BinaryOperation binary) {
+         Interval u = evaluate(binary.left(), context, intervals);
+         Interval v = evaluate(binary.right(), context, intervals);
+         return switch (binary.operator()) {
+            case ADD -> u.add(v);
+            case SUBTRACT -> u.subtract(v);
+            case MULTIPLY -> u.multiply(v);
+            case DIVIDE -> u.divide(v);
+            case EXPONENTIATE -> u.pow(v);
+         };
+      }
+
+      if (expression instanceof FunctionCall call)
+         return call(call, context, intervals);
+
+      throw new IllegalArgumentException("Cannot evaluate expression over intervals: " + expression);
+   }
+
+   private static Interval call(FunctionCall call, EvaluationContext context, Map<String, Interval> intervals) {
+      Function definition = context.functions().getOrDefault(call.name, Builtins.get(call.name));
+
+      if (definition == null)
+         throw new IllegalStateException("Unknown function: " + call.name);
+      if (definition.arity >= 0 && definition.arity != call.arguments.size())
+         throw new IllegalStateException("Arity mismatch for " + call.name + ": expected " + definition.arity
+               + ", got " + call.arguments.size());
+
+      int argc = call.arguments.size();
+      Interval[] arguments = new Interval[argc];
+      boolean points = true;
+      for (int i = 0; i < argc; i++) {
+         arguments[i] = evaluate(call.arguments.get(i), context, intervals);
+         // undefined arguments make the call undefined
+         if (arguments[i].isEmpty())
+            return Interval.EMPTY;
+         points &= arguments[i].lo() == arguments[i].hi();
+      }
+
+      if (points) {
+         double[] values = new double[argc];
+         for (int i = 0; i < argc; i++)
+            values[i] = arguments[i].lo();
+         double value = definition.variadicEvaluator.applyAsDouble(values);
+         return Double.isNaN(value) ? Interval.EMPTY : Interval.of(value);
+      }
+
+      IntervalExtension extension = definition.intervalExtension;
+      if (extension == null)
+         throw new UnsupportedOperationException("No interval extension defined for function: " + call.name);
+      return extension.apply(arguments);
+   }
+}
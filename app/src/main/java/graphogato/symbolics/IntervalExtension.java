@@ -0,0 +1,35 @@
+package graphogato.symbolics;
+
+import java.util.function.DoubleUnaryOperator;
+
+/**
+ * The interval extension of a function, bounding every value the function
+ * takes when its arguments range over intervals. Used by
+ * {@link IntervalEvaluator} to evaluate calls to the function.
+ *
+ * @author Gavin Borne
+ */
+@FunctionalInterface
+public interface IntervalExtension {
+   /**
+    * Bound the values of the function over intervals of its arguments. The
+    * result must contain every defined value of the function, and should be as
+    * tight as is cheap to compute.
+    *
+    * @param arguments - The intervals of the arguments, none of them empty
+    * @return The interval of the function's values
+    */
+   Interval apply(Interval[] arguments);
+
+   /**
+    * Create the interval extension of an increasing function of one argument,
+    * whose bounds are its values at the bounds of the argument.
+    *
+    * @param function - The function
+    * @return The interval extension
+    */
+   static IntervalExtension increasing(DoubleUnaryOperator function) {
+      return arguments -> Interval.rounded(function.applyAsDouble(arguments[0].lo()),
+            function.applyAsDouble(arguments[0].hi()));
+   }
+}
@@ -0,0 +1,222 @@
+package graphogato.symbolics;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.List;
+
+import graphogato.symbolics.expressions.BinaryOperation;
+import graphogato.symbolics.expressions.BoundVariable;
+import graphogato.symbolics.expressions.Constant;
+import graphogato.symbolics.expressions.Expression;
+import graphogato.symbolics.expressions.FunctionCall;
+import graphogato.symbolics.expressions.UnaryOperation;
+import graphogato.symbolics.expressions.Variable;
+
+/**
+ * A factory that hash-conses expression nodes. Every node created through the
+ * factory is interned in a weak table, so structurally identical subtrees built
+ * through it are the same object, and comparing them is a reference check.
+ * Nodes are removed from the table once nothing else refers to them.
+ *
+ * @author Gavin Borne
+ */
+public final class NodeFactory {
+   private static final InternTable TABLE = new InternTable();
+
+   private NodeFactory() {
+   }
+
+   /**
+    * Get the interned constant with a value.
+    *
+    * @param value - The value of the constant
+    * @return The constant node
+    */
+   public static Constant constant(double value) {
+      return TABLE.intern(new Constant(value));
+   }
+
+   /**
+    * Get the interned variable with a name.
+    *
+    * @param name - The name of the variable
+    * @return The variable node
+    */
+   public static Variable variable(String name) {
+      return TABLE.intern(new Variable(name));
+   }
+
+   /**
+    * Get the interned bound variable with a name and slot.
+    *
+    * @param name - The name of the variable
+    * @param slot - The variable's slot in the frame
+    * @return The bound variable node
+    */
+   public static BoundVariable boundVariable(String name, int slot) {
+      return TABLE.intern(new BoundVariable(name, slot));
+   }
+
+   /**
+    * Get the interned unary operation on an expression.
+    *
+    * @param operator   - Unary operator to use on the expression
+    * @param expression - Expression to apply the operator on
+    * @return The unary operation node
+    */
+   public static UnaryOperation unary(UnaryOperation.UnaryOperator operator, Expression expression) {
+      return TABLE.intern(new UnaryOperation(operator, expression));
+   }
+
+   /**
+    * Get the interned binary operation on two expressions.
+    *
+    * @param operator - Binary operator to use on the two expressions
+    * @param left     - Left expression
+    * @param right    - Right expression
+    * @return The binary operation node
+    */
+   public static BinaryOperation binary(BinaryOperation.BinaryOperator operator, Expression left, Expression right) {
+      return TABLE.intern(new BinaryOperation(operator, left, right));
+   }
+
+   /**
+    * Get the interned call of a function.
+    *
+    * @param name      - Name of the function
+    * @param arguments - Arguments being passed to the function
+    * @return The function call node
+    */
+   public static FunctionCall call(String name, List<Expression> arguments) {
+      return TABLE.intern(new FunctionCall(name, List.copyOf(arguments)));
+   }
+
+   /**
+    * Get the number of nodes currently interned.
+    *
+    * @return The number of interned nodes
+    */
+   public static int size() {
+      return TABLE.size();
+   }
+
+   /**
+    * Check whether two nodes have the same shape: the same type, operator and
+    * values, and identical children. Since children are interned before their
+    * parents, this is enough to tell whether two nodes are structurally the same
+    * without walking either tree.
+    */
+   private static boolean sameShape(Expression first, Expression second) {
+      if (first.getClass() != second.getClass())
+         return false;
+
+      if (first instanceof Constant constant)
+         return Double.doubleToLongBits(constant.value()) == Double.doubleToLongBits(((Constant) second).value());
+      if (first instanceof Variable variable)
+         return variable.name().equals(((Variable) second).name());
+      if (first instanceof BoundVariable variable) {
+         BoundVariable other = (BoundVariable) second;
+         return variable.slot() == other.slot() && variable.name().equals(other.name());
+      }
+      if (first instanceof UnaryOperation unary) {
+         UnaryOperation other = (UnaryOperation) second;
+         return unary.operator() == other.operator() && unary.expression() == other.expression();
+      }
+      if (first instanceof BinaryOperation binary) {
+         BinaryOperation other = (BinaryOperation) second;
+         return binary.operator() == other.operator() && binary.left() == other.left()
+               && binary.right() == other.right();
+      }
+      if (first instanceof FunctionCall call) {
+         FunctionCall other = (FunctionCall) second;
+         if (!call.name.equals(other.name) || call.arguments.size() != other.arguments.size())
+            return false;
+         for (int i = 0; i < call.arguments.size(); i++)
+            if (call.arguments.get(i) != other.arguments.get(i))
+               return false;
+         return true;
+      }
+      return first.equals(second);
+   }
+
+   /**
+    * A hash table of weakly referenced nodes, bucketed by structural hash.
+    */
+   private static final class InternTable {
+      private final ReferenceQueue<Expression> queue = new ReferenceQueue<>();
+      private Entry[] buckets = new Entry[1024];
+      private int size = 0;
+
+      synchronized <T extends Expression> T intern(T candidate) {
+         expunge();
+
+         int hash = candidate.hashCode();
+         int index = indexFor(hash, buckets.length);
+         for (Entry entry = buckets[index]; entry != null; entry = entry.next) {
+            Expression existing = entry.get();
+            if (entry.hash == hash && existing != null && sameShape(existing, candidate)) {
+               @SuppressWarnings("unchecked")
+               T interned = (T) existing;
+               return interned;
+            }
+         }
+
+         buckets[index] = new Entry(candidate, hash, queue, buckets[index]);
+         if (++size > buckets.length * 3 / 4)
+            resize();
+         return candidate;
+      }
+
+      synchronized int size() {
+         expunge();
+         return size;
+      }
+
+      private void expunge() {
+         for (Object cleared; (cleared = queue.poll()) != null;) {
+            Entry entry = (Entry) cleared;
+            int index = indexFor(entry.hash, buckets.length);
+            Entry previous = null;
+            for (Entry current = buckets[index]; current != null; previous = current, current = current.next) {
+               if (current == entry) {
+                  if (previous == null)
+                     buckets[index] = current.next;
+                  else
+                     previous.next = current.next;
+                  size--;
+                  break;
+               }
+            }
+         }
+      }
+
+      private void resize() {
+         Entry[] resized = new Entry[buckets.length * 2];
+         for (Entry head : buckets) {
+            for (Entry entry = head; entry != null;) {
+               Entry next = entry.next;
+               int index = indexFor(entry.hash, resized.length);
+               entry.next = resized[index];
+               resized[index] = entry;
+               entry = next;
+            }
+         }
+         buckets = resized;
+      }
+
+      private static int indexFor(int hash, int length) {
+         return (hash ^ (hash >>> 16)) & (length - 1);
+      }
+   }
+
+   private static final class Entry extends WeakReference<Expression> {
+      private final int hash;
+      private Entry next;
+
+      Entry(Expression node, int hash, ReferenceQueue<Expression> queue, Entry next) {
+         super(node, queue);
+         this.hash = hash;
+         this.next = next;
+      }
+   }
+}
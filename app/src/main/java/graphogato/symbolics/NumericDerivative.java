@@ -0,0 +1,56 @@
+package graphogato.symbolics;
+
+import java.util.function.DoubleUnaryOperator;
+
+/**
+ * The numeric partial derivatives of a function, used to differentiate calls
+ * to it while evaluating, without building a symbolic derivative.
+ *
+ * @author Gavin Borne
+ */
+public interface NumericDerivative {
+   /**
+    * Get the partial derivative of the function with respect to one of its
+    * arguments.
+    *
+    * @param arguments - The values of the arguments
+    * @param index     - The index of the argument to differentiate with respect
+    *                  to
+    * @return The partial derivative
+    */
+   double partial(double[] arguments, int index);
+
+   /**
+    * Get the second partial derivative of the function with respect to two of
+    * its arguments.
+    *
+    * @param arguments - The values of the arguments
+    * @param first     - The index of the first argument to differentiate with
+    *                  respect to
+    * @param second    - The index of the second argument to differentiate with
+    *                  respect to
+    * @return The second partial derivative
+    */
+   double secondPartial(double[] arguments, int first, int second);
+
+   /**
+    * Create the numeric derivative of a function of one argument.
+    *
+    * @param first  - The first derivative of the function
+    * @param second - The second derivative of the function
+    * @return The numeric derivative
+    */
+   static NumericDerivative unary(DoubleUnaryOperator first, DoubleUnaryOperator second) {
+      return new NumericDerivative() {
+         @Override
+         public double partial(double[] arguments, int index) {
+            return first.applyAsDouble(arguments[0]);
+         }
+
+         @Override
+         public double secondPartial(double[] arguments, int firstIndex, int secondIndex) {
+            return second.applyAsDouble(arguments[0]);
+         }
+      };
+   }
+}
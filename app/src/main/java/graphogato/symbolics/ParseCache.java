@@ -0,0 +1,193 @@
+package graphogato.symbolics;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import graphogato.symbolics.expressions.Expression;
+
+/**
+ * A bounded, thread-safe cache of parsed expressions, which evicts the least
+ * recently used input when it's full. Inputs are keyed by their normalized
+ * whitespace, so retyping an expression with different spacing still hits.
+ *
+ * <p>
+ * Expressions are immutable, so the cached trees are shared between every
+ * caller.
+ *
+ * @author Gavin Borne
+ */
+public final class ParseCache {
+   /** The size of a cache created without one. */
+   public static final int DEFAULT_SIZE = 1024;
+
+   private final int maximumSize;
+   private final LinkedHashMap<String, Expression> entries;
+   private long hits = 0;
+   private long misses = 0;
+   private long evictions = 0;
+
+   /**
+    * Create a new parse cache holding up to {@link #DEFAULT_SIZE} expressions.
+    */
+   public ParseCache() {
+      this(DEFAULT_SIZE);
+   }
+
+   /**
+    * Create a new parse cache.
+    *
+    * @param maximumSize - The most expressions the cache can hold
+    */
+   public ParseCache(int maximumSize) {
+      if (maximumSize <= 0)
+         throw new IllegalArgumentException("Cache size must be positive: " + maximumSize);
+      this.maximumSize = maximumSize;
+      this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+         @Override
+         protected boolean removeEldestEntry(Map.Entry<String, Expression> eldest) {
+            if (size() <= ParseCache.this.maximumSize)
+               return false;
+            evictions++;
+            return true;
+         }
+      };
+   }
+
+   /**
+    * Parse an input into an expression, or get it from the cache if the same
+    * input has been parsed before. This gives the same result as
+    * {@link Parser#parse(CharSequence)}.
+    *
+    * @param input - Input
+    * @return The input as an expression
+    */
+   public Expression parse(String input) {
+      String key = normalize(input);
+      synchronized (this) {
+         Expression cached = entries.get(key);
+         if (cached != null) {
+            hits++;
+            return cached;
+         }
+         misses++;
+      }
+
+      // parsed outside the lock so a slow parse doesn't hold up every other
+      // thread; two threads missing on the same input build the same nodes
+      Expression expression = Parser.parse(key);
+      synchronized (this) {
+         entries.putIfAbsent(key, expression);
+      }
+      return expression;
+   }
+
+   /**
+    * Get the number of times an input was found in the cache.
+    *
+    * @return The number of hits
+    */
+   public synchronized long hits() {
+      return hits;
+   }
+
+   /**
+    * Get the number of times an input wasn't found in the cache and had to be
+    * parsed.
+    *
+    * @return The number of misses
+    */
+   public synchronized long misses() {
+      return misses;
+   }
+
+   /**
+    * Get the number of expressions removed to make room for new ones.
+    *
+    * @return The number of evictions
+    */
+   public synchronized long evictions() {
+      return evictions;
+   }
+
+   /**
+    * Get the number of expressions in the cache.
+    *
+    * @return The size of the cache
+    */
+   public synchronized int size() {
+      return entries.size();
+   }
+
+   /**
+    * Get the most expressions the cache can hold.
+    *
+    * @return The maximum size of the cache
+    */
+   public int maximumSize() {
+      return maximumSize;
+   }
+
+   /**
+    * Remove every expression from the cache. The counters are kept.
+    */
+   public synchronized void clear() {
+      entries.clear();
+   }
+
+   /**
+    * Normalize the whitespace of an input. Whitespace is removed, except between
+    * two word characters (like in {@code "2 3"}), or where removing it would
+    * join a number with the sign or digits of an exponent (like in
+    * {@code "1e -5"}), where it separates tokens and is collapsed to a single
+    * space.
+    *
+    * @param input - Input
+    * @return The normalized input
+    */
+   static String normalize(String input) {
+      StringBuilder normalized = new StringBuilder(input.length());
+      boolean space = false;
+      for (int i = 0; i < input.length(); i++) {
+         char ch = input.charAt(i);
+         if (Character.isWhitespace(ch)) {
+            space = true;
+            continue;
+         }
+         if (space && normalized.length() > 0
+               && (isWordChar(normalized.charAt(normalized.length() - 1)) && isWordChar(ch)
+                     || joinsExponent(normalized, ch)))
+            normalized.append(' ');
+         normalized.append(ch);
+         space = false;
+      }
+      return normalized.toString();
+   }
+
+   /**
+    * Check whether a character would continue the exponent of a number if it
+    * directly followed the normalized input, like the {@code -} after
+    * {@code 1e} or the {@code 5} after {@code 1e-}.
+    */
+   private static boolean joinsExponent(CharSequence normalized, char ch) {
+      int end = normalized.length();
+      if (ch == '+' || ch == '-')
+         return isExponentMarker(normalized, end - 1);
+      if (Character.isDigit(ch) && end >= 1) {
+         char sign = normalized.charAt(end - 1);
+         return (sign == '+' || sign == '-') && isExponentMarker(normalized, end - 2);
+      }
+      return false;
+   }
+
+   private static boolean isExponentMarker(CharSequence normalized, int index) {
+      if (index < 1)
+         return false;
+      char marker = normalized.charAt(index);
+      char before = normalized.charAt(index - 1);
+      return (marker == 'e' || marker == 'E') && (Character.isDigit(before) || before == '.');
+   }
+
+   private static boolean isWordChar(char ch) {
+      return Character.isLetterOrDigit(ch) || ch == '_' || ch == '.';
+   }
+}
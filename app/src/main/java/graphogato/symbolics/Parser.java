@@ -1,37 +1,54 @@
 package graphogato.symbolics;
 
-import java.util.ArrayDeque;
 import java.util.ArrayList;
-import java.util.Collections;
-import java.util.Deque;
 import java.util.List;
-import java.util.Map;
-import java.util.Objects;
-import java.util.Set;
 
-import graphogato.symbolics.expressions.BinaryOperation;
-import graphogato.symbolics.expressions.Constant;
+import graphogato.symbolics.expressions.BinaryOperation.BinaryOperator;
 import graphogato.symbolics.expressions.Expression;
-import graphogato.symbolics.expressions.FunctionCall;
 import graphogato.symbolics.expressions.UnaryOperation;
-import graphogato.symbolics.expressions.Variable;
 
 /**
  * A parser used to parse input strings into symbolic objects (like functions).
+ *
+ * <p>
+ * The input is scanned in one pass by a cursor, and the tree is built by
+ * precedence climbing as tokens are read, so no token objects or substrings
+ * are made except for names. Negation binds tighter than every binary
+ * operator, so {@code -x^2} is {@code (-x)^2}, and {@code ^} is right
+ * associative.
  */
 public final class Parser {
-   private static final Map<String, Integer> PRECEDENCE = Map.of(
-         "NEG", 5,
-         "^", 4,
-         "*", 3,
-         "/", 3,
-         "+", 2,
-         "-", 2);
-   private static final Set<String> OPERATE_ON_RIGHT_FIRST = Set.of("^", "NEG");
-
-   private static boolean isOperator(String s) {
-      return PRECEDENCE.containsKey(s);
-   }
+   // token types
+   static final int END = 0;
+   static final int NUMBER = 1;
+   static final int IDENTIFIER = 2;
+   static final int OPERATOR = 3;
+   static final int LEFT_PAREN = 4;
+   static final int RIGHT_PAREN = 5;
+   static final int COMMA = 6;
+
+   // operator codes, indexing the tables below
+   private static final int ADD = 0;
+   private static final int SUBTRACT = 1;
+   private static final int MULTIPLY = 2;
+   private static final int DIVIDE = 3;
+   private static final int EXPONENTIATE = 4;
+
+   // the precedence of terms (operands of + and -)
+   static final int TERM = 3;
+
+   static final int[] PRECEDENCE = { 2, 2, 3, 3, 4 };
+   private static final boolean[] RIGHT_ASSOCIATIVE = { false, false, false, false, true };
+   private static final BinaryOperator[] OPERATORS = {
+         BinaryOperator.ADD, BinaryOperator.SUBTRACT, BinaryOperator.MULTIPLY, BinaryOperator.DIVIDE,
+         BinaryOperator.EXPONENTIATE
+   };
+
+   // the powers of ten that are exactly representable as doubles
+   private static final double[] POWERS_OF_TEN = {
+         1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11, 1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18,
+         1e19, 1e20, 1e21, 1e22
+   };
 
    /**
     * Parse an input into an expression.
@@ -39,200 +56,265 @@ public final class Parser {
     * @param input - Input
     * @return The input as an expression
     */
-   public static Expression parse(String input) {
-      List<Token> tokens = tokenize(input);
-      Deque<String> operators = new ArrayDeque<>();
-      Deque<Expression> out = new ArrayDeque<>();
-      Deque<Integer> argc = new ArrayDeque<>(); // for function arg counts
-
-      String previous = "{START}";
-      for (int i = 0; i < tokens.size(); i++) {
-         Token token = tokens.get(i);
-         switch (token.type) {
-            case NUM -> out.push(new Constant(Double.parseDouble(token.text)));
-
-            case ID -> {
-               // check if there's a parenthesis next
-               // if so, it's a function call
-               boolean call = (i + 1 < tokens.size() && tokens.get(i + 1).type == TokenType.L_PAREN);
-               if (call)
-                  operators.push("FUNC:" + token.text);
-               else {
-                  if (token.text.equals("pi"))
-                     out.push(new Constant(Math.PI));
-                  else if (token.text.equals("e"))
-                     out.push(new Constant(Math.E));
-                  else
-                     out.push(new Variable(token.text));
-               }
-            }
+   public static Expression parse(CharSequence input) {
+      Cursor cursor = new Cursor(input);
+      cursor.next();
+      Expression expression = cursor.parseExpression(0);
 
-            case OP -> {
-               String operator = token.text;
-               // if it's a minus and there's not an expression before it, it's a negation
-               if (operator.equals("-") && (previous.equals("{START}") || previous.equals("OP")
-                     || previous.equals("LPAREN") || previous.equals("COMMA")))
-                  operator = "NEG";
-
-               // while there's still valid operators,
-               // the next operator's precedence is equal or greater,
-               // and it's not a right-first operator,
-               // pop the waiting operator and push a new node
-               while (!operators.isEmpty() && isOperator(operators.peek())
-                     && (PRECEDENCE.get(operators.peek()) > PRECEDENCE.get(operator)
-                           || (Objects.equals(PRECEDENCE.get(operators.peek()), PRECEDENCE.get(operator))
-                                 && !OPERATE_ON_RIGHT_FIRST.contains(operator))))
-                  popOperatorAndPushNode(operators.pop(), out);
-
-               operators.push(operator);
-            }
+      cursor.expect(END);
+      return expression.simplify();
+   }
+
+   /**
+    * Scans the input one token at a time, and parses it. Terms and
+    * parenthesized groups are parsed through {@link #parseTerm()} and
+    * {@link #parseGroup(String)}, which only depend on the input from where
+    * they start, so {@link IncrementalParser} can reuse them.
+    */
+   static class Cursor {
+      private final CharSequence input;
+      private final int length;
+      int position = 0;
+
+      // the current token
+      int type;
+      int start;
+      int operator;
+      private double number;
+      // where the token before the current one ended
+      int previousEnd;
+
+      Cursor(CharSequence input) {
+         this.input = input;
+         this.length = input.length();
+      }
+
+      /**
+       * Parse binary operations whose operators bind at least as tightly as a
+       * precedence.
+       */
+      Expression parseExpression(int minimumPrecedence) {
+         Expression left = minimumPrecedence < TERM ? parseTerm() : parseUnary();
+
+         while (type == OPERATOR && PRECEDENCE[operator] >= minimumPrecedence) {
+            int code = operator;
+            next();
+            int precedence = RIGHT_ASSOCIATIVE[code] ? PRECEDENCE[code] : PRECEDENCE[code] + 1;
+            Expression right = precedence == TERM ? parseTerm() : parseExpression(precedence);
+            left = NodeFactory.binary(OPERATORS[code], left, right);
+         }
+         return left;
+      }
 
-            case L_PAREN -> {
-               // if previous parsed item was a FUNC marker, start arg count
-               if (!operators.isEmpty() && operators.peek().startsWith("FUNC:"))
-                  argc.push(0);
-               operators.push("(");
+      /**
+       * Parse a term, the operations binding tighter than {@code +} and
+       * {@code -}.
+       */
+      Expression parseTerm() {
+         return parseExpression(TERM);
+      }
+
+      private Expression parseUnary() {
+         if (type == OPERATOR && operator == SUBTRACT) {
+            next();
+            return NodeFactory.unary(UnaryOperation.UnaryOperator.NEGATE, parseUnary());
+         }
+         return parsePrimary();
+      }
+
+      private Expression parsePrimary() {
+         switch (type) {
+            case NUMBER -> {
+               double value = number;
+               next();
+               return NodeFactory.constant(value);
             }
 
-            case COMMA -> {
-               while (!operators.isEmpty() && !operators.peek().equals("("))
-                  popOperatorAndPushNode(operators.pop(), out);
-               if (argc.isEmpty())
-                  throw new IllegalArgumentException("Comma outside function call");
-               argc.push(argc.pop() + 1); // increment
+            case IDENTIFIER -> {
+               String name = input.subSequence(start, position).toString();
+               next();
+               if (type == LEFT_PAREN)
+                  return NodeFactory.call(name, parseGroup(name));
+               if (name.equals("pi"))
+                  return NodeFactory.constant(Math.PI);
+               if (name.equals("e"))
+                  return NodeFactory.constant(Math.E);
+               return NodeFactory.variable(name);
             }
 
-            case R_PAREN -> {
-               while (!operators.isEmpty() && !operators.peek().equals("("))
-                  popOperatorAndPushNode(operators.pop(), out);
-               if (operators.isEmpty())
+            case LEFT_PAREN -> {
+               List<Expression> group = parseGroup(null);
+               if (group.size() > 1)
+                  throw new IllegalArgumentException("Comma outside function call");
+               if (group.isEmpty())
                   throw new IllegalArgumentException("Mismatched parenthesis");
-               operators.pop(); // pop '('
-
-               if (!operators.isEmpty() && operators.peek().startsWith("FUNC:")) {
-                  String funcName = operators.pop().substring(5);
-                  int commas = argc.pop();
-                  int numArgs = commas + 1;
+               return group.get(0);
+            }
 
-                  List<Expression> args = new ArrayList<>(numArgs);
-                  for (int k = 0; k < numArgs; k++)
-                     args.add(out.pop());
+            case COMMA -> throw new IllegalArgumentException("Comma outside function call");
+            case RIGHT_PAREN -> throw new IllegalArgumentException("Mismatched parenthesis");
+            default -> throw new IllegalStateException("Invalid expression");
+         }
+      }
 
-                  Collections.reverse(args);
-                  out.push(new FunctionCall(funcName, args));
-               }
-            }
+      /**
+       * Parse a parenthesized group, starting at its {@code (}.
+       *
+       * @param name - Name of the function called with the group, or null if it's
+       *             only parenthesized
+       * @return The expressions in the group
+       */
+      List<Expression> parseGroup(String name) {
+         next(); // '('
+         List<Expression> expressions = new ArrayList<>(2);
+         if (name != null && type == RIGHT_PAREN) {
+            next();
+            return expressions;
          }
 
-         switch (token.type) {
-            case OP:
-               previous = "OP";
-               break;
-            case L_PAREN:
-               previous = "L_PAREN";
-               break;
-            case COMMA:
-               previous = "COMMA";
-               break;
-            default:
-               previous = "OTHER";
-               break;
+         while (true) {
+            expressions.add(parseExpression(0));
+            if (type == COMMA && name != null) {
+               next();
+               continue;
+            }
+            if (name == null) {
+               expect(RIGHT_PAREN);
+               return expressions;
+            }
+            if (type != RIGHT_PAREN)
+               throw new IllegalArgumentException("Missing ')' for function call: " + name);
+            next();
+            return expressions;
          }
       }
 
-      while (!operators.isEmpty()) {
-         String operator = operators.pop();
-         if (operator.equals("("))
+      /**
+       * Check that the current token ends a group, either the whole input or a
+       * parenthesis.
+       */
+      void expect(int expected) {
+         if (type == expected) {
+            next();
+            return;
+         }
+         if (type == COMMA)
+            throw new IllegalArgumentException("Comma outside function call");
+         if (type == RIGHT_PAREN || expected == RIGHT_PAREN)
             throw new IllegalArgumentException("Mismatched parenthesis");
-         if (operator.startsWith("FUNC:"))
-            throw new IllegalArgumentException("Missing ')' for function call: " + operator.substring(5));
-         popOperatorAndPushNode(operator, out);
-      }
-      if (out.size() != 1)
          throw new IllegalStateException("Invalid expression");
+      }
 
-      return out.pop().simplify();
-   }
-
-   private enum TokenType {
-      NUM, ID, OP, L_PAREN, R_PAREN, COMMA
-   };
-
-   private record Token(TokenType type, String text) {
-   }
-
-   private static List<Token> tokenize(String input) {
-      ArrayList<Token> tokens = new ArrayList<>();
-
-      for (int i = 0; i < input.length();) {
-         char ch = input.charAt(i);
-
-         if (Character.isWhitespace(ch)) {
-            i++;
-            continue;
+      /**
+       * Move to the next token.
+       */
+      void next() {
+         previousEnd = position;
+         while (position < length && Character.isWhitespace(input.charAt(position)))
+            position++;
+
+         start = position;
+         if (position == length) {
+            type = END;
+            return;
          }
 
-         if (Character.isDigit(ch) || ch == '.') {
-            int j = i + 1;
-            while (j < input.length() && (Character.isDigit(input.charAt(j)) || input.charAt(j) == '.'))
-               j++;
-            tokens.add(new Token(TokenType.NUM, input.substring(i, j)));
-            i = j;
-            continue;
+         char ch = input.charAt(position);
+         if (isDigit(ch) || ch == '.') {
+            type = NUMBER;
+            number = scanNumber();
+            return;
          }
 
          if (Character.isLetter(ch) || ch == '_') {
-            int j = i + 1;
-            while (j < input.length() && (Character.isLetterOrDigit(input.charAt(j)) || input.charAt(j) == '_'))
-               j++;
-            tokens.add(new Token(TokenType.ID, input.substring(i, j)));
-            i = j;
-            continue;
+            position++;
+            while (position < length
+                  && (Character.isLetterOrDigit(input.charAt(position)) || input.charAt(position) == '_'))
+               position++;
+            type = IDENTIFIER;
+            return;
          }
 
-         // if the char is an operator
-         if ("+-*/^".indexOf(ch) >= 0) {
-            tokens.add(new Token(TokenType.OP, "" + ch));
-            i++;
-            continue;
+         position++;
+         switch (ch) {
+            case '+' -> operator(ADD);
+            case '-' -> operator(SUBTRACT);
+            case '*' -> operator(MULTIPLY);
+            case '/' -> operator(DIVIDE);
+            case '^' -> operator(EXPONENTIATE);
+            case '(' -> type = LEFT_PAREN;
+            case ')' -> type = RIGHT_PAREN;
+            case ',' -> type = COMMA;
+            default -> throw new IllegalArgumentException("Illegal char: " + ch);
          }
+      }
 
-         if (ch == '(') {
-            tokens.add(new Token(TokenType.L_PAREN, "("));
-            i++;
-            continue;
+      private void operator(int code) {
+         type = OPERATOR;
+         operator = code;
+      }
+
+      /**
+       * Scan a number like {@code 12}, {@code .5} or {@code 1.5e-9}. Numbers with
+       * few enough digits are converted exactly without a string; the rest fall
+       * back to {@link Double#parseDouble(String)}.
+       */
+      private double scanNumber() {
+         long mantissa = 0;
+         int digits = 0;
+         int scale = 0;
+         boolean point = false;
+
+         for (; position < length; position++) {
+            char ch = input.charAt(position);
+            if (isDigit(ch)) {
+               // leading zeros don't count towards the digits that fit exactly
+               if (digits > 0 || ch != '0')
+                  digits++;
+               if (digits <= 18)
+                  mantissa = mantissa * 10 + (ch - '0');
+               else if (!point)
+                  scale++;
+               if (point && digits <= 18)
+                  scale--;
+            } else if (ch == '.' && !point)
+               point = true;
+            else
+               break;
          }
-         if (ch == ')') {
-            tokens.add(new Token(TokenType.R_PAREN, ")"));
-            i++;
-            continue;
+
+         // malformed numbers like "1.2.3" or "." are left for parseDouble to
+         // reject
+         if (position < length && input.charAt(position) == '.' || position - start == 1 && point) {
+            while (position < length && (isDigit(input.charAt(position)) || input.charAt(position) == '.'))
+               position++;
+            return Double.parseDouble(input.subSequence(start, position).toString());
          }
-         if (ch == ',') {
-            tokens.add(new Token(TokenType.COMMA, ","));
-            i++;
-            continue;
+
+         // an exponent is only part of the number if digits follow it, since
+         // e on its own is a constant
+         if (position < length && (input.charAt(position) == 'e' || input.charAt(position) == 'E')) {
+            int mark = position + 1;
+            boolean negative = false;
+            if (mark < length && (input.charAt(mark) == '+' || input.charAt(mark) == '-')) {
+               negative = input.charAt(mark) == '-';
+               mark++;
+            }
+            if (mark < length && isDigit(input.charAt(mark))) {
+               int exponent = 0;
+               for (position = mark; position < length && isDigit(input.charAt(position)); position++)
+                  exponent = Math.min(exponent * 10 + (input.charAt(position) - '0'), 100_000);
+               scale += negative ? -exponent : exponent;
+            }
          }
 
-         throw new IllegalArgumentException("Illegal char: " + ch);
+         if (digits <= 15 && Math.abs(scale) < POWERS_OF_TEN.length)
+            return scale < 0 ? mantissa / POWERS_OF_TEN[-scale] : mantissa * POWERS_OF_TEN[scale];
+         return Double.parseDouble(input.subSequence(start, position).toString());
       }
 
-      return tokens;
-   }
-
-   private static void popOperatorAndPushNode(String operator, Deque<Expression> out) {
-      if (operator.equals("NEG")) {
-         out.push(new UnaryOperation(UnaryOperation.UnaryOperator.NEGATE, out.pop()));
-         return;
+      private static boolean isDigit(char ch) {
+         return ch >= '0' && ch <= '9';
       }
-
-      Expression second = out.pop(), first = out.pop();
-      out.push(new BinaryOperation(switch (operator) {
-         case "+" -> BinaryOperation.BinaryOperator.ADD;
-         case "-" -> BinaryOperation.BinaryOperator.SUBTRACT;
-         case "*" -> BinaryOperation.BinaryOperator.MULTIPLY;
-         case "/" -> BinaryOperation.BinaryOperator.DIVIDE;
-         case "^" -> BinaryOperation.BinaryOperator.EXPONENTIATE;
-         default -> throw new IllegalStateException("Illegal operator: " + operator);
-      }, first, second));
    }
 }
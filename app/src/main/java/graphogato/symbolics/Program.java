@@ -0,0 +1,334 @@
+package graphogato.symbolics;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import graphogato.symbolics.expressions.BinaryOperation;
+import graphogato.symbolics.expressions.BoundVariable;
+import graphogato.symbolics.expressions.Constant;
+import graphogato.symbolics.expressions.Expression;
+import graphogato.symbolics.expressions.FunctionCall;
+import graphogato.symbolics.expressions.UnaryOperation;
+import graphogato.symbolics.expressions.Variable;
+
+/**
+ * An expression flattened into postfix code for a stack machine: an array of
+ * opcodes and their operands, a pool of constants, and a table of the
+ * functions it calls. Running it is one loop over the code with no calls
+ * between nodes, and building it only takes a walk of the tree, so it's ready
+ * immediately, unlike {@link ExpressionCompiler}, which pays for generating
+ * and loading a class.
+ *
+ * <p>
+ * Builtin functions are run by their own opcodes, and any other function is
+ * called indirectly through its evaluator. Variables are read from an array of
+ * slots, like a {@link CompiledExpression}.
+ *
+ * <p>
+ * A program keeps its own operand stack for {@link #applyAsDouble(double[])},
+ * so it must not be shared between threads that way. Threads sharing a program
+ * pass their own stack to {@link #applyAsDouble(double[], double[])} instead.
+ *
+ * @author Gavin Borne
+ */
+public final class Program implements CompiledExpression {
+   static final int CONSTANT = 0;
+   static final int LOAD = 1;
+   static final int NEGATE = 2;
+   static final int ADD = 3;
+   static final int SUBTRACT = 4;
+   static final int MULTIPLY = 5;
+   static final int DIVIDE = 6;
+   static final int EXPONENTIATE = 7;
+   static final int SIN = 8;
+   static final int COS = 9;
+   static final int EXP = 10;
+   static final int LN = 11;
+   static final int ABS = 12;
+   static final int SIGN = 13;
+   static final int HEAVISIDE = 14;
+   static final int MAX = 15;
+   static final int CALL_UNARY = 16;
+   static final int CALL_BINARY = 17;
+   static final int CALL = 18;
+   // binary operations with a constant on the right, which saves a dispatch and
+   // a push for operations like x^2 or 2 * x after simplification
+   static final int ADD_CONSTANT = 19;
+   static final int SUBTRACT_CONSTANT = 20;
+   static final int MULTIPLY_CONSTANT = 21;
+   static final int DIVIDE_CONSTANT = 22;
+   static final int EXPONENTIATE_CONSTANT = 23;
+
+   private static final Map<String, Integer> INTRINSICS = Map.of(
+         "sin", SIN,
+         "cos", COS,
+         "exp", EXP,
+         "ln", LN,
+         "abs", ABS,
+         "sign", SIGN,
+         "heaviside", HEAVISIDE,
+         "max", MAX);
+
+   private final int[] code;
+   private final double[] constants;
+   private final Function[] functions;
+   private final String[] variables;
+   private final double[] stack;
+
+   private Program(Linearizer linearizer, String[] variables) {
+      this.code = Arrays.copyOf(linearizer.code, linearizer.size);
+      this.constants = linearizer.constants.stream().mapToDouble(Double::doubleValue).toArray();
+      this.functions = linearizer.functions.toArray(new Function[0]);
+      this.variables = variables;
+      this.stack = new double[linearizer.maximumDepth];
+   }
+
+   /**
+    * Flatten an expression into a program. The program mirrors the expression's
+    * tree exactly, giving the same results as
+    * {@link Expression#evaluate(EvaluationContext)}.
+    *
+    * @param expression - Expression to flatten
+    * @param context    - Context used to resolve functions
+    * @param variables  - Names of the variables, in slot order
+    * @return The program
+    */
+   public static Program compile(Expression expression, EvaluationContext context, String... variables) {
+      Map<String, Integer> slots = new HashMap<>();
+      for (int i = 0; i < variables.length; i++)
+         slots.put(variables[i], i);
+
+      Linearizer linearizer = new Linearizer(context, slots);
+      linearizer.emit(expression);
+      return new Program(linearizer, variables.clone());
+   }
+
+   @Override
+   public double applyAsDouble(double[] vars) {
+      return applyAsDouble(vars, stack);
+   }
+
+   /**
+    * Run the program on a caller's operand stack.
+    *
+    * @param vars  - The values of the variables, indexed by slot
+    * @param stack - The operand stack, at least {@link #stackSize()} long
+    * @return Evaluated expression
+    */
+   public double applyAsDouble(double[] vars, double[] stack) {
+      int[] code = this.code;
+      double[] constants = this.constants;
+      int top = -1;
+      int pc = 0;
+      while (pc < code.length) {
+         switch (code[pc++]) {
+            case CONSTANT -> stack[++top] = constants[code[pc++]];
+            case LOAD -> stack[++top] = vars[code[pc++]];
+            case NEGATE -> stack[top] = -stack[top];
+            case ADD -> {
+               top--;
+               stack[top] = stack[top] + stack[top + 1];
+            }
+            case SUBTRACT -> {
+               top--;
+               stack[top] = stack[top] - stack[top + 1];
+            }
+            case MULTIPLY -> {
+               top--;
+               stack[top] = stack[top] * stack[top + 1];
+            }
+            case DIVIDE -> {
+               top--;
+               stack[top] = stack[top] / stack[top + 1];
+            }
+            case EXPONENTIATE -> {
+               top--;
+               stack[top] = Math.pow(stack[top], stack[top + 1]);
+            }
+            case ADD_CONSTANT -> stack[top] = stack[top] + constants[code[pc++]];
+            case SUBTRACT_CONSTANT -> stack[top] = stack[top] - constants[code[pc++]];
+            case MULTIPLY_CONSTANT -> stack[top] = stack[top] * constants[code[pc++]];
+            case DIVIDE_CONSTANT -> stack[top] = stack[top] / constants[code[pc++]];
+            case EXPONENTIATE_CONSTANT -> stack[top] = Math.pow(stack[top], constants[code[pc++]]);
+            case SIN -> stack[top] = Math.sin(stack[top]);
+            case COS -> stack[top] = Math.cos(stack[top]);
+            case EXP -> stack[top] = Math.exp(stack[top]);
+            case LN -> stack[top] = Math.log(stack[top]);
+            case ABS -> stack[top] = Math.abs(stack[top]);
+            case SIGN -> stack[top] = Math.signum(stack[top]);
+            case HEAVISIDE -> stack[top] = ExpressionCompiler.heaviside(stack[top]);
+            case MAX -> {
+               top--;
+               stack[top] = Math.max(stack[top], stack[top + 1]);
+            }
+            case CALL_UNARY -> stack[top] = functions[code[pc++]].unaryEvaluator.applyAsDouble(stack[top]);
+            case CALL_BINARY -> {
+               top--;
+               stack[top] = functions[code[pc++]].binaryEvaluator.applyAsDouble(stack[top], stack[top + 1]);
+            }
+            case CALL -> {
+               Function function = functions[code[pc++]];
+               int argc = code[pc++];
+               top -= argc;
+               double[] arguments = Arrays.copyOfRange(stack, top + 1, top + 1 + argc);
+               stack[++top] = function.variadicEvaluator.applyAsDouble(arguments);
+            }
+            default -> throw new IllegalStateException("Illegal opcode: " + code[pc - 1]);
+         }
+      }
+      return stack[0];
+   }
+
+   /**
+    * Get the length of the code, counting opcodes and their operands.
+    *
+    * @return The length of the code
+    */
+   public int size() {
+      return code.length;
+   }
+
+   /**
+    * Get the deepest the operand stack gets while running.
+    *
+    * @return The size of the stack
+    */
+   public int stackSize() {
+      return stack.length;
+   }
+
+   /**
+    * Get the names of the variables, in slot order.
+    *
+    * @return The variables
+    */
+   public String[] variables() {
+      return variables.clone();
+   }
+
+   /**
+    * Flattens expressions into code, tracking how deep the stack gets.
+    */
+   private static final class Linearizer {
+      private final EvaluationContext context;
+      private final Map<String, Integer> slots;
+      // constants are equal to each other when 0 and -0, so they are keyed by bits
+      private final Map<Long, Integer> constantIndices = new HashMap<>();
+      private final List<Double> constants = new ArrayList<>();
+      private final List<Function> functions = new ArrayList<>();
+      private int[] code = new int[32];
+      private int size = 0;
+      private int depth = 0;
+      private int maximumDepth = 0;
+
+      Linearizer(EvaluationContext context, Map<String, Integer> slots) {
+         this.context = context;
+         this.slots = slots;
+      }
+
+      void emit(Expression expression) {
+         if (expression instanceof Constant constant) {
+            op(CONSTANT, 1);
+            write(constant(constant));
+         } else if (expression instanceof Variable variable) {
+            emitVariable(variable.name());
+         } else if (expression instanceof BoundVariable variable) {
+            emitVariable(variable.name());
+         } else if (expression instanceof UnaryOperation unary) {
+            emit(unary.expression());
+            switch (unary.operator()) {
+               case NEGATE -> op(NEGATE, 0);
+            }
+         } else if (expression instanceof BinaryOperation binary) {
+            emit(binary.left());
+            if (binary.right() instanceof Constant constant) {
+               op(switch (binary.operator()) {
+                  case ADD -> ADD_CONSTANT;
+                  case SUBTRACT -> SUBTRACT_CONSTANT;
+                  case MULTIPLY -> MULTIPLY_CONSTANT;
+                  case DIVIDE -> DIVIDE_CONSTANT;
+                  case EXPONENTIATE -> EXPONENTIATE_CONSTANT;
+               }, 0);
+               write(constant(constant));
+               return;
+            }
+            emit(binary.right());
+            op(switch (binary.operator()) {
+               case ADD -> ADD;
+               case SUBTRACT -> SUBTRACT;
+               case MULTIPLY -> MULTIPLY;
+               case DIVIDE -> DIVIDE;
+               case EXPONENTIATE -> EXPONENTIATE;
+            }, -1);
+         } else if (expression instanceof FunctionCall call) {
+            emitCall(call);
+         } else {
+            throw new IllegalArgumentException("Cannot compile expression: " + expression);
+         }
+      }
+
+      private int constant(Constant constant) {
+         return constantIndices.computeIfAbsent(Double.doubleToRawLongBits(constant.value()), bits -> {
+            constants.add(constant.value());
+            return constants.size() - 1;
+         });
+      }
+
+      private void emitVariable(String name) {
+         Integer slot = slots.get(name);
+         if (slot == null)
+            throw new IllegalStateException("No slot for variable " + name);
+         op(LOAD, 1);
+         write(slot);
+      }
+
+      private void emitCall(FunctionCall call) {
+         Function definition = context.functions().getOrDefault(call.name, Builtins.get(call.name));
+
+         if (definition == null)
+            throw new IllegalStateException("Unknown function: " + call.name);
+         int argc = call.arguments.size();
+         if (definition.arity >= 0 && definition.arity != argc)
+            throw new IllegalStateException("Arity mismatch for " + call.name + ": expected " + definition.arity
+                  + ", got " + argc);
+
+         for (Expression argument : call.arguments)
+            emit(argument);
+
+         Integer intrinsic = INTRINSICS.get(call.name);
+         if (intrinsic != null && definition == Builtins.get(call.name)) {
+            op(intrinsic, 1 - argc);
+            return;
+         }
+
+         functions.add(definition);
+         int index = functions.size() - 1;
+         if (definition.unaryEvaluator != null && argc == 1) {
+            op(CALL_UNARY, 0);
+            write(index);
+         } else if (definition.binaryEvaluator != null && argc == 2) {
+            op(CALL_BINARY, -1);
+            write(index);
+         } else {
+            op(CALL, 1 - argc);
+            write(index);
+            write(argc);
+         }
+      }
+
+      private void op(int opcode, int stackChange) {
+         write(opcode);
+         depth += stackChange;
+         maximumDepth = Math.max(maximumDepth, depth);
+      }
+
+      private void write(int value) {
+         if (size == code.length)
+            code = Arrays.copyOf(code, size * 2);
+         code[size++] = value;
+      }
+   }
+}
@@ -0,0 +1,76 @@
+package graphogato.symbolics;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+
+import graphogato.symbolics.expressions.BinaryOperation;
+import graphogato.symbolics.expressions.BinaryOperation.BinaryOperator;
+import graphogato.symbolics.expressions.Constant;
+import graphogato.symbolics.expressions.Expression;
+
+/**
+ * Simplifies binary operations by applying the rewrite rules in
+ * {@link SimplificationRules}. The operands of an operation are simplified
+ * first, then the rules for its operator are tried in order, and the
+ * replacement of the first one that matches is simplified in turn until no rule
+ * matches.
+ *
+ * <p>
+ * Each binary operation memoizes the result of its {@link Expression#simplify()},
+ * and results remember that they're already simplified, so subtrees shared
+ * across a tree or simplified before are never revisited.
+ *
+ * @author Gavin Borne
+ */
+public final class RewriteEngine {
+   private static final EnumMap<BinaryOperator, RewriteRule[]> RULES = index(SimplificationRules.RULES);
+
+   private RewriteEngine() {
+   }
+
+   /**
+    * Simplify a binary operation, without looking at its memoized result.
+    *
+    * @param operation - Operation to simplify
+    * @return The simplified expression
+    */
+   public static Expression rewrite(BinaryOperation operation) {
+      BinaryOperator operator = operation.operator();
+      Expression left = operation.left().simplify();
+      Expression right = operation.right().simplify();
+
+      if (left instanceof Constant leftConstant && right instanceof Constant rightConstant)
+         return NodeFactory.constant(fold(operator, leftConstant.value(), rightConstant.value()));
+
+      for (RewriteRule rule : RULES.get(operator)) {
+         Expression replacement = rule.apply(left, right);
+         if (replacement != null)
+            return replacement.simplify();
+      }
+
+      return (left == operation.left() && right == operation.right()) ? operation
+            : NodeFactory.binary(operator, left, right);
+   }
+
+   private static EnumMap<BinaryOperator, RewriteRule[]> index(List<RewriteRule> rules) {
+      EnumMap<BinaryOperator, List<RewriteRule>> grouped = new EnumMap<>(BinaryOperator.class);
+      for (RewriteRule rule : rules)
+         grouped.computeIfAbsent(rule.operator(), operator -> new ArrayList<>()).add(rule);
+
+      EnumMap<BinaryOperator, RewriteRule[]> indexed = new EnumMap<>(BinaryOperator.class);
+      for (BinaryOperator operator : BinaryOperator.values())
+         indexed.put(operator, grouped.getOrDefault(operator, List.of()).toArray(new RewriteRule[0]));
+      return indexed;
+   }
+
+   private static double fold(BinaryOperator operator, double left, double right) {
+      return switch (operator) {
+         case ADD -> left + right;
+         case SUBTRACT -> left - right;
+         case MULTIPLY -> left * right;
+         case DIVIDE -> left / right;
+         case EXPONENTIATE -> Math.pow(left, right);
+      };
+   }
+}
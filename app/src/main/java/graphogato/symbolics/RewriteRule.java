@@ -0,0 +1,39 @@
+package graphogato.symbolics;
+
+import java.util.function.BiFunction;
+import java.util.function.BiPredicate;
+
+import graphogato.symbolics.expressions.BinaryOperation.BinaryOperator;
+import graphogato.symbolics.expressions.Expression;
+
+/**
+ * A rule that rewrites a binary operation. The rule matches the simplified
+ * operands of an operation with its root operator, and replaces the operation
+ * with a new expression.
+ *
+ * @param name        - A description of the rule, like "x * 1 = x"
+ * @param operator    - The root operator the rule applies to
+ * @param pattern     - Whether the rule matches the left and right operands
+ * @param replacement - The expression to replace the operation with, given the
+ *                    left and right operands
+ * @author Gavin Borne
+ */
+public record RewriteRule(String name, BinaryOperator operator, BiPredicate<Expression, Expression> pattern,
+      BiFunction<Expression, Expression, Expression> replacement) {
+
+   /**
+    * Apply this rule to the operands of an operation.
+    *
+    * @param left  - The simplified left operand
+    * @param right - The simplified right operand
+    * @return The replacement, or null if the rule doesn't match
+    */
+   public Expression apply(Expression left, Expression right) {
+      return pattern.test(left, right) ? replacement.apply(left, right) : null;
+   }
+
+   @Override
+   public String toString() {
+      return name;
+   }
+}
@@ -0,0 +1,171 @@
+package graphogato.symbolics;
+
+import java.util.List;
+
+import graphogato.symbolics.expressions.BinaryOperation;
+import graphogato.symbolics.expressions.BinaryOperation.BinaryOperator;
+import graphogato.symbolics.expressions.Constant;
+import graphogato.symbolics.expressions.Expression;
+import graphogato.symbolics.expressions.Variable;
+
+/**
+ * The rules used to simplify binary operations. Rules for the same operator are
+ * tried in the order they're listed here.
+ *
+ * @author Gavin Borne
+ */
+public final class SimplificationRules {
+   /** Every simplification rule. */
+   public static final List<RewriteRule> RULES = List.of(
+         // addition
+         new RewriteRule("0 + x = x", BinaryOperator.ADD,
+               (left, right) -> isZero(left), (left, right) -> right),
+         new RewriteRule("x + 0 = x", BinaryOperator.ADD,
+               (left, right) -> isZero(right), (left, right) -> left),
+
+         // subtraction
+         new RewriteRule("x - 0 = x", BinaryOperator.SUBTRACT,
+               (left, right) -> isZero(right), (left, right) -> left),
+
+         // multiplication
+         new RewriteRule("0 * x = x * 0 = 0", BinaryOperator.MULTIPLY,
+               (left, right) -> isZero(left) || isZero(right), (left, right) -> Symbolics.ZERO),
+         new RewriteRule("1 * x = x", BinaryOperator.MULTIPLY,
+               (left, right) -> isOne(left), (left, right) -> right),
+         new RewriteRule("x * 1 = x", BinaryOperator.MULTIPLY,
+               (left, right) -> isOne(right), (left, right) -> left),
+         new RewriteRule("k * (1 / x) = k / x", BinaryOperator.MULTIPLY,
+               (left, right) -> left instanceof Constant && isReciprocal(right),
+               (left, right) -> NodeFactory.binary(BinaryOperator.DIVIDE, left, ((BinaryOperation) right).right())),
+         new RewriteRule("(1 / x) * k = k / x", BinaryOperator.MULTIPLY,
+               (left, right) -> right instanceof Constant && isReciprocal(left),
+               (left, right) -> NodeFactory.binary(BinaryOperator.DIVIDE, right, ((BinaryOperation) left).right())),
+         new RewriteRule("x * (1 / x) = 1", BinaryOperator.MULTIPLY,
+               (left, right) -> isVariable(left) && isReciprocalOfVariable(right, ((Variable) left).name()),
+               (left, right) -> Symbolics.ONE),
+         new RewriteRule("(1 / x) * x = 1", BinaryOperator.MULTIPLY,
+               (left, right) -> isVariable(right) && isReciprocalOfVariable(left, ((Variable) right).name()),
+               (left, right) -> Symbolics.ONE),
+         new RewriteRule("(x^a) * (1 / x) = x^(a - 1)", BinaryOperator.MULTIPLY,
+               (left, right) -> isVariableRaisedToConstant(left)
+                     && isReciprocalOfVariable(right, getBase(left).name()),
+               (left, right) -> lowerExponent(left)),
+         new RewriteRule("(1 / x) * (x^a) = x^(a - 1)", BinaryOperator.MULTIPLY,
+               (left, right) -> isVariableRaisedToConstant(right)
+                     && isReciprocalOfVariable(left, getBase(right).name()),
+               (left, right) -> lowerExponent(right)),
+         new RewriteRule("(x^a) * (x^b) = x^(a + b)", BinaryOperator.MULTIPLY,
+               (left, right) -> isVariableRaisedToConstant(left)
+                     && isVariableRaisedToConstant(right, getBase(left).name()),
+               (left, right) -> addExponents(getBase(left).name(), getExponent(left).value(),
+                     getExponent(right).value())),
+         new RewriteRule("(x^a) * (c / x) = c * x^(a - 1)", BinaryOperator.MULTIPLY,
+               (left, right) -> isVariableRaisedToConstant(left)
+                     && isConstantOverVariable(right, getBase(left).name()),
+               (left, right) -> NodeFactory.binary(BinaryOperator.MULTIPLY, ((BinaryOperation) right).left(),
+                     lowerExponent(left))),
+         new RewriteRule("(c / x) * (x^a) = c * x^(a - 1)", BinaryOperator.MULTIPLY,
+               (left, right) -> isVariableRaisedToConstant(right)
+                     && isConstantOverVariable(left, getBase(right).name()),
+               (left, right) -> NodeFactory.binary(BinaryOperator.MULTIPLY, ((BinaryOperation) left).left(),
+                     lowerExponent(right))),
+
+         // division
+         new RewriteRule("0 / x = 0", BinaryOperator.DIVIDE,
+               (left, right) -> isZero(left), (left, right) -> Symbolics.ZERO),
+         new RewriteRule("x / 1 = x", BinaryOperator.DIVIDE,
+               (left, right) -> isOne(right), (left, right) -> left),
+         new RewriteRule("(k * x) / x = k", BinaryOperator.DIVIDE,
+               (left, right) -> left instanceof BinaryOperation binary
+                     && binary.operator() == BinaryOperator.MULTIPLY && binary.left() instanceof Constant
+                     && right instanceof Variable && binary.right().equals(right),
+               (left, right) -> ((BinaryOperation) left).left()),
+         new RewriteRule("x^a / x = x^(a - 1)", BinaryOperator.DIVIDE,
+               (left, right) -> isVariableRaisedToConstant(left) && isVariable(right, getBase(left).name()),
+               (left, right) -> getExponent(left).value() == 1.0 ? Symbolics.ONE : lowerExponent(left)),
+
+         // exponentiation
+         new RewriteRule("x ^ 1 = x", BinaryOperator.EXPONENTIATE,
+               (left, right) -> isOne(right), (left, right) -> left),
+         new RewriteRule("x ^ 0 = 1", BinaryOperator.EXPONENTIATE,
+               (left, right) -> isZero(right), (left, right) -> Symbolics.ONE),
+         new RewriteRule("1 ^ x = 1", BinaryOperator.EXPONENTIATE,
+               (left, right) -> isOne(left), (left, right) -> Symbolics.ONE),
+         new RewriteRule("0 ^ x = 0", BinaryOperator.EXPONENTIATE,
+               (left, right) -> isZero(left), (left, right) -> Symbolics.ZERO));
+
+   private SimplificationRules() {
+   }
+
+   private static boolean isZero(Expression expression) {
+      return (expression instanceof Constant constant) && constant.value() == 0.0;
+   }
+
+   private static boolean isOne(Expression expression) {
+      return (expression instanceof Constant constant) && constant.value() == 1.0;
+   }
+
+   private static boolean isVariable(Expression expression, String name) {
+      return (expression instanceof Variable variable) && variable.name().equals(name);
+   }
+
+   private static boolean isVariable(Expression expression) {
+      return expression instanceof Variable;
+   }
+
+   private static boolean isConstant(Expression expression, double value) {
+      return (expression instanceof Constant constant) && constant.value() == value;
+   }
+
+   private static boolean isVariableRaisedToConstant(Expression expression) {
+      if (!(expression instanceof BinaryOperation binaryOperation))
+         return false;
+      if (binaryOperation.operator() != BinaryOperator.EXPONENTIATE)
+         return false;
+      return isVariable(binaryOperation.left()) && (binaryOperation.right() instanceof Constant);
+   }
+
+   private static boolean isVariableRaisedToConstant(Expression expression, String variableName) {
+      return isVariableRaisedToConstant(expression) && getBase(expression).name().equals(variableName);
+   }
+
+   private static Variable getBase(Expression expression) {
+      return (Variable) ((BinaryOperation) expression).left();
+   }
+
+   private static Constant getExponent(Expression expression) {
+      return (Constant) ((BinaryOperation) expression).right();
+   }
+
+   private static boolean isReciprocal(Expression expression) {
+      return (expression instanceof BinaryOperation binaryOperation)
+            && binaryOperation.operator() == BinaryOperator.DIVIDE && isConstant(binaryOperation.left(), 1.0);
+   }
+
+   private static boolean isReciprocalOfVariable(Expression expression, String variableName) {
+      return isReciprocal(expression) && isVariable(((BinaryOperation) expression).right(), variableName);
+   }
+
+   private static boolean isConstantOverVariable(Expression expression, String variableName) {
+      if (!(expression instanceof BinaryOperation binaryOperation))
+         return false;
+      if (binaryOperation.operator() != BinaryOperator.DIVIDE)
+         return false;
+      return binaryOperation.left() instanceof Constant && isVariable(binaryOperation.right(), variableName);
+   }
+
+   /**
+    * Lower the exponent of a variable raised to a constant by one, giving the
+    * variable itself for x^1.
+    */
+   private static Expression lowerExponent(Expression power) {
+      double exponent = getExponent(power).value();
+      return (exponent == 1.0) ? getBase(power)
+            : NodeFactory.binary(BinaryOperator.EXPONENTIATE, getBase(power), NodeFactory.constant(exponent - 1));
+   }
+
+   private static Expression addExponents(String variableName, double a, double b) {
+      return NodeFactory.binary(BinaryOperator.EXPONENTIATE, NodeFactory.variable(variableName),
+            NodeFactory.constant(a + b));
+   }
+}
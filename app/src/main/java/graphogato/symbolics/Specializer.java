@@ -0,0 +1,255 @@
+package graphogato.symbolics;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import graphogato.symbolics.expressions.BinaryOperation;
+import graphogato.symbolics.expressions.BoundVariable;
+import graphogato.symbolics.expressions.Constant;
+import graphogato.symbolics.expressions.Expression;
+import graphogato.symbolics.expressions.FunctionCall;
+import graphogato.symbolics.expressions.UnaryOperation;
+import graphogato.symbolics.expressions.Variable;
+
+/**
+ * A bounded, thread-safe cache of specialized expressions, which evicts the
+ * least recently used one when it's full.
+ *
+ * <p>
+ * Specializing an expression substitutes the values of its parameters, which
+ * are every variable except the free ones, folds every operation and function
+ * call whose operands end up constant, and simplifies what's left. The result
+ * only depends on the free variables, and is usually much smaller, so it's
+ * cheaper to evaluate for every sample of a render. Specializations are keyed
+ * by the expression, the free variables and the parameters' values and
+ * functions, so rendering again with the same parameters hits the cache.
+ *
+ * @author Gavin Borne
+ */
+public final class Specializer {
+   /** The size of a specializer created without one. */
+   public static final int DEFAULT_SIZE = 256;
+
+   private final int maximumSize;
+   private final LinkedHashMap<Key, Expression> entries;
+   private long hits = 0;
+   private long misses = 0;
+   private long evictions = 0;
+
+   /**
+    * Create a new specializer holding up to {@link #DEFAULT_SIZE} expressions.
+    */
+   public Specializer() {
+      this(DEFAULT_SIZE);
+   }
+
+   /**
+    * Create a new specializer.
+    *
+    * @param maximumSize - The most expressions the cache can hold
+    */
+   public Specializer(int maximumSize) {
+      if (maximumSize <= 0)
+         throw new IllegalArgumentException("Cache size must be positive: " + maximumSize);
+      this.maximumSize = maximumSize;
+      this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+         @Override
+         protected boolean removeEldestEntry(Map.Entry<Key, Expression> eldest) {
+            if (size() <= Specializer.this.maximumSize)
+               return false;
+            evictions++;
+            return true;
+         }
+      };
+   }
+
+   /**
+    * Specialize an expression against the parameters in a context, or get it
+    * from the cache if it has been specialized with the same parameters
+    * before. This gives the same result as
+    * {@link Symbolics#specialize(Expression, EvaluationContext, Set)}.
+    *
+    * @param expression    - Expression to specialize
+    * @param context       - Context holding the parameters and functions
+    * @param freeVariables - Names of the variables that are left in
+    * @return The specialized expression
+    */
+   public Expression specialize(Expression expression, EvaluationContext context, Set<String> freeVariables) {
+      Key key = Key.of(expression, context, freeVariables);
+      synchronized (this) {
+         Expression cached = entries.get(key);
+         if (cached != null) {
+            hits++;
+            return cached;
+         }
+         misses++;
+      }
+
+      // specialized outside the lock, like parsing in ParseCache
+      Expression specialized = apply(expression, context, freeVariables);
+      synchronized (this) {
+         entries.putIfAbsent(key, specialized);
+      }
+      return specialized;
+   }
+
+   /**
+    * Get the number of times a specialization was found in the cache.
+    *
+    * @return The number of hits
+    */
+   public synchronized long hits() {
+      return hits;
+   }
+
+   /**
+    * Get the number of times a specialization wasn't found in the cache.
+    *
+    * @return The number of misses
+    */
+   public synchronized long misses() {
+      return misses;
+   }
+
+   /**
+    * Get the number of specializations removed to make room for new ones.
+    *
+    * @return The number of evictions
+    */
+   public synchronized long evictions() {
+      return evictions;
+   }
+
+   /**
+    * Get the number of specializations in the cache.
+    *
+    * @return The size of the cache
+    */
+   public synchronized int size() {
+      return entries.size();
+   }
+
+   /**
+    * Get the most specializations the cache can hold.
+    *
+    * @return The maximum size of the cache
+    */
+   public int maximumSize() {
+      return maximumSize;
+   }
+
+   /**
+    * Remove every specialization from the cache. The counters are kept.
+    */
+   public synchronized void clear() {
+      entries.clear();
+   }
+
+   static Expression apply(Expression expression, EvaluationContext context, Set<String> freeVariables) {
+      return fold(expression, context, freeVariables, new IdentityHashMap<>()).simplify();
+   }
+
+   private static Expression fold(Expression expression, EvaluationContext context, Set<String> freeVariables,
+         Map<Expression, Expression> folded) {
+      Expression result = folded.get(expression);
+      if (result != null)
+         return result;
+
+      if (expression instanceof Variable variable) {
+         result = parameter(variable.name(), context, freeVariables);
+      } else if (expression instanceof BoundVariable variable) {
+         result = parameter(variable.name(), context, freeVariables);
+      } else if (expression instanceof UnaryOperation unary) {
+         Expression operand = fold(unary.expression(), context, freeVariables, folded);
+         result = (operand == unary.expression()) ? unary : NodeFactory.unary(unary.operator(), operand);
+         if (operand instanceof Constant)
+            result = constant(result, context);
+      } else if (expression instanceof BinaryOperation binary) {
+         Expression left = fold(binary.left(), context, freeVariables, folded);
+         Expression right = fold(binary.right(), context, freeVariables, folded);
+         result = (left == binary.left() && right == binary.right()) ? binary
+               : NodeFactory.binary(binary.operator(), left, right);
+         if (left instanceof Constant && right instanceof Constant)
+            result = constant(result, context);
+      } else if (expression instanceof FunctionCall call) {
+         boolean changed = false;
+         boolean constant = true;
+         List<Expression> arguments = new ArrayList<>(call.arguments.size());
+         for (Expression argument : call.arguments) {
+            Expression argumentFolded = fold(argument, context, freeVariables, folded);
+            arguments.add(argumentFolded);
+            changed |= (argumentFolded != argument);
+            constant &= (argumentFolded instanceof Constant);
+         }
+         result = changed ? NodeFactory.call(call.name, arguments) : call;
+         if (constant)
+            result = constant(result, context);
+      } else {
+         result = expression;
+      }
+
+      folded.put(expression, result);
+      return result;
+   }
+
+   private static Expression parameter(String name, EvaluationContext context, Set<String> freeVariables) {
+      if (freeVariables.contains(name))
+         return NodeFactory.variable(name);
+      Double value = context.variables().get(name);
+      if (value == null)
+         throw new IllegalStateException("No value for variable " + name);
+      return NodeFactory.constant(value);
+   }
+
+   private static Expression constant(Expression expression, EvaluationContext context) {
+      try {
+         return NodeFactory.constant(expression.evaluate(context));
+      } catch (RuntimeException e) {
+         // calls that can't be evaluated, like unknown functions, are left in
+         // to be reported when they're evaluated
+         return expression;
+      }
+   }
+
+   /**
+    * The key of a specialization: the expression, its free variables, and the
+    * values of the parameters and functions it uses.
+    */
+   private record Key(Expression expression, Set<String> freeVariables, Map<String, Double> parameters,
+         Map<String, Function> functions) {
+      static Key of(Expression expression, EvaluationContext context, Set<String> freeVariables) {
+         Map<String, Double> parameters = new HashMap<>();
+         Map<String, Function> functions = new HashMap<>();
+         collect(expression, context, freeVariables, parameters, functions, new IdentityHashMap<>());
+         return new Key(expression, Set.copyOf(freeVariables), parameters, functions);
+      }
+
+      private static void collect(Expression expression, EvaluationContext context, Set<String> freeVariables,
+            Map<String, Double> parameters, Map<String, Function> functions, Map<Expression, Boolean> visited) {
+         if (visited.put(expression, Boolean.TRUE) != null)
+            return;
+
+         if (expression instanceof Variable variable) {
+            if (!freeVariables.contains(variable.name()))
+               parameters.put(variable.name(), context.variables().get(variable.name()));
+         } else if (expression instanceof BoundVariable variable) {
+            if (!freeVariables.contains(variable.name()))
+               parameters.put(variable.name(), context.variables().get(variable.name()));
+         } else if (expression instanceof UnaryOperation unary) {
+            collect(unary.expression(), context, freeVariables, parameters, functions, visited);
+         } else if (expression instanceof BinaryOperation binary) {
+            collect(binary.left(), context, freeVariables, parameters, functions, visited);
+            collect(binary.right(), context, freeVariables, parameters, functions, visited);
+         } else if (expression instanceof FunctionCall call) {
+            functions.put(call.name, context.functions().getOrDefault(call.name, Builtins.get(call.name)));
+            for (Expression argument : call.arguments)
+               collect(argument, context, freeVariables, parameters, functions, visited);
+         }
+      }
+   }
+}
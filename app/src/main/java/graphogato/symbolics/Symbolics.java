@@ -1,21 +1,44 @@
 package graphogato.symbolics;
 
 import java.util.List;
+import java.util.Set;
 
 import graphogato.symbolics.expressions.BinaryOperation;
 import graphogato.symbolics.expressions.Constant;
 import graphogato.symbolics.expressions.Expression;
 import graphogato.symbolics.expressions.FunctionCall;
 import graphogato.symbolics.expressions.UnaryOperation;
+import graphogato.symbolics.expressions.Variable;
 
 /**
- * The main class of symbolics.
+ * The main class of symbolics. Every node created here is hash-consed through
+ * {@link NodeFactory}.
  */
 public final class Symbolics {
    /** A constant with a value of zero. */
-   public static final Constant ZERO = new Constant(0);
+   public static final Constant ZERO = NodeFactory.constant(0);
    /** A constant with a value of one. */
-   public static final Constant ONE = new Constant(1);
+   public static final Constant ONE = NodeFactory.constant(1);
+
+   /**
+    * Create a constant.
+    *
+    * @param value - The value of the constant
+    * @return The constant node
+    */
+   public static Constant constant(double value) {
+      return NodeFactory.constant(value);
+   }
+
+   /**
+    * Create a variable.
+    *
+    * @param name - The name of the variable
+    * @return The variable node
+    */
+   public static Variable variable(String name) {
+      return NodeFactory.variable(name);
+   }
 
    /**
     * Call a function with the arguments given.
@@ -25,7 +48,7 @@ public final class Symbolics {
     * @return The function call node
     */
    public static FunctionCall call(String name, Expression... arguments) {
-      return new FunctionCall(name, List.of(arguments));
+      return NodeFactory.call(name, List.of(arguments));
    }
 
    /**
@@ -36,7 +59,7 @@ public final class Symbolics {
     * @return Added expression
     */
    public static Expression add(Expression first, Expression second) {
-      return new BinaryOperation(BinaryOperation.BinaryOperator.ADD, first, second);
+      return NodeFactory.binary(BinaryOperation.BinaryOperator.ADD, first, second);
    }
 
    /**
@@ -47,7 +70,7 @@ public final class Symbolics {
     * @return Subtracted expression
     */
    public static Expression subtract(Expression first, Expression second) {
-      return new BinaryOperation(BinaryOperation.BinaryOperator.SUBTRACT, first, second);
+      return NodeFactory.binary(BinaryOperation.BinaryOperator.SUBTRACT, first, second);
    }
 
    /**
@@ -69,7 +92,7 @@ public final class Symbolics {
     * @return Multiplied expression
     */
    public static Expression multiply(Expression first, Expression second) {
-      return new BinaryOperation(BinaryOperation.BinaryOperator.MULTIPLY, first, second);
+      return NodeFactory.binary(BinaryOperation.BinaryOperator.MULTIPLY, first, second);
    }
 
    /**
@@ -91,7 +114,7 @@ public final class Symbolics {
     * @return Divided expression
     */
    public static Expression divide(Expression first, Expression second) {
-      return new BinaryOperation(BinaryOperation.BinaryOperator.DIVIDE, first, second);
+      return NodeFactory.binary(BinaryOperation.BinaryOperator.DIVIDE, first, second);
    }
 
    /**
@@ -113,7 +136,7 @@ public final class Symbolics {
     * @return Exponentiated expression
     */
    public static Expression exponentiate(Expression first, Expression second) {
-      return new BinaryOperation(BinaryOperation.BinaryOperator.EXPONENTIATE, first, second);
+      return NodeFactory.binary(BinaryOperation.BinaryOperator.EXPONENTIATE, first, second);
    }
 
    /**
@@ -124,7 +147,7 @@ public final class Symbolics {
     * @return Exponentiated expression
     */
    public static Expression pow(Expression first, Expression second) {
-      return new BinaryOperation(BinaryOperation.BinaryOperator.EXPONENTIATE, first, second);
+      return NodeFactory.binary(BinaryOperation.BinaryOperator.EXPONENTIATE, first, second);
    }
 
    /**
@@ -134,7 +157,7 @@ public final class Symbolics {
     * @return Negated expression
     */
    public static Expression negate(Expression expression) {
-      return new UnaryOperation(UnaryOperation.UnaryOperator.NEGATE, expression);
+      return NodeFactory.unary(UnaryOperation.UnaryOperator.NEGATE, expression);
    }
 
    /**
@@ -146,4 +169,33 @@ public final class Symbolics {
    public static Expression neg(Expression expression) {
       return negate(expression);
    }
+
+   /**
+    * Take the nth derivative of an expression, simplifying after every order.
+    * Subtrees shared between the orders are only differentiated once; use a
+    * {@link DerivativeCache} directly to share them between calls too.
+    *
+    * @param expression - Expression to differentiate
+    * @param variable   - Variable to differentiate with respect to
+    * @param n          - Order of the derivative
+    * @return The simplified nth derivative, or the expression itself if n is 0
+    */
+   public static Expression nthDerivative(Expression expression, String variable, int n) {
+      return new DerivativeCache().nthDerivative(expression, variable, n);
+   }
+
+   /**
+    * Specialize an expression against fixed parameters. Every variable except
+    * the free ones is replaced with its value in the context, everything that
+    * becomes constant is folded, and the result is simplified. Use a
+    * {@link Specializer} to reuse specializations between renders.
+    *
+    * @param expression    - Expression to specialize
+    * @param context       - Context holding the parameters and functions
+    * @param freeVariables - Names of the variables that are left in
+    * @return The specialized expression, in only the free variables
+    */
+   public static Expression specialize(Expression expression, EvaluationContext context, Set<String> freeVariables) {
+      return Specializer.apply(expression, context, freeVariables);
+   }
 }
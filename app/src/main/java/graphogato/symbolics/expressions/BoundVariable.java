@@ -0,0 +1,86 @@
+package graphogato.symbolics.expressions;
+
+import graphogato.symbolics.EvaluationContext;
+import graphogato.symbolics.NodeFactory;
+import graphogato.symbolics.Symbolics;
+
+/**
+ * A symbolic variable that has been bound to a slot in an evaluation context's
+ * frame.
+ *
+ * @author Gavin Borne
+ */
+public final class BoundVariable implements Expression {
+   private final String name;
+   private final int slot;
+
+   /**
+    * Create a new bound variable.
+    *
+    * @param name - The name of the variable
+    * @param slot - The variable's slot in the frame
+    */
+   public BoundVariable(String name, int slot) {
+      this.name = name;
+      this.slot = slot;
+   }
+
+   @Override
+   public double evaluate(EvaluationContext context) {
+      return context.getSlot(slot);
+   }
+
+   @Override
+   public Expression differentiate(String variable) {
+      return name.equals(variable) ? Symbolics.ONE : Symbolics.ZERO;
+   }
+
+   @Override
+   public Expression simplify() {
+      return this;
+   }
+
+   @Override
+   public Expression bind(EvaluationContext context) {
+      int bound = context.slot(name);
+      return (bound == slot) ? this : NodeFactory.boundVariable(name, bound);
+   }
+
+   @Override
+   public String toString() {
+      return name;
+   }
+
+   @Override
+   public boolean equals(Object other) {
+      if (this == other)
+         return true;
+      if (other instanceof BoundVariable variable) {
+         return this.name.equals(variable.name) && this.slot == variable.slot;
+      }
+      return false;
+   }
+
+   @Override
+   public int hashCode() {
+      return 31 * name.hashCode() + slot;
+   }
+
+   /**
+    * Get this variable's name.
+    *
+    * @return The variable's name
+    */
+   public String name() {
+      return this.name;
+   }
+
+   /**
+    * Get this variable's slot.
+    *
+    * @return The variable's slot in the frame
+    */
+   public int slot() {
+      return this.slot;
+   }
+}
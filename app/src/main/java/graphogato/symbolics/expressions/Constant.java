@@ -1,6 +1,7 @@
 package graphogato.symbolics.expressions;
 
 import graphogato.symbolics.EvaluationContext;
+import graphogato.symbolics.Symbolics;
 
 /**
  * Representation of a constant value.
@@ -9,6 +10,7 @@ import graphogato.symbolics.EvaluationContext;
  */
 public final class Constant implements Expression {
    private final double value;
+   private final int hash;
 
    /**
     * Create a new constant.
@@ -17,6 +19,8 @@ public final class Constant implements Expression {
     */
    public Constant(double value) {
       this.value = value;
+      // 0 and -0 are equal, so they need the same hash
+      this.hash = (value == 0.0) ? 0 : Double.hashCode(value);
    }
 
    @Override
@@ -26,7 +30,7 @@ public final class Constant implements Expression {
 
    @Override
    public Expression differentiate(String variable) {
-      return new Constant(0);
+      return Symbolics.ZERO;
    }
 
    @Override
@@ -34,6 +38,11 @@ public final class Constant implements Expression {
       return this;
    }
 
+   @Override
+   public Expression bind(EvaluationContext context) {
+      return this;
+   }
+
    @Override
    public String toString() {
       // if the number can be represented as an int, do that
@@ -52,6 +61,11 @@ public final class Constant implements Expression {
       return false;
    }
 
+   @Override
+   public int hashCode() {
+      return hash;
+   }
+
    /**
     * Get this constant's value.
     *
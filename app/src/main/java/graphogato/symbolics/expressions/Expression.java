@@ -30,4 +30,18 @@ public interface Expression {
     * @return Simplified expression
     */
    Expression simplify();
+
+   /**
+    * Bind this expression to an evaluation context, resolving every variable to
+    * a slot in the context's frame. Evaluating the bound expression reads the
+    * variables with {@link EvaluationContext#getSlot(int)} instead of looking
+    * them up by name, so it should only be evaluated with the context it was
+    * bound to (or a child of it). A variable with no value when it's bound
+    * fails when it's evaluated, unless its slot is set first, just like an
+    * unbound variable with no value. Bind expressions after simplifying them.
+    *
+    * @param context - Context to bind to
+    * @return Bound expression
+    */
+   Expression bind(EvaluationContext context);
 }
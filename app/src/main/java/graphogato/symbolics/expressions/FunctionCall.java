@@ -6,6 +6,7 @@ import java.util.List;
 import graphogato.symbolics.Builtins;
 import graphogato.symbolics.EvaluationContext;
 import graphogato.symbolics.Function;
+import graphogato.symbolics.NodeFactory;
 
 /**
  * A function call node.
@@ -17,6 +18,7 @@ public final class FunctionCall implements Expression {
    public final String name;
    /** The arguments being passed to the function. */
    public final List<Expression> arguments;
+   private final int hash;
 
    /**
     * Create a function call.
@@ -27,6 +29,7 @@ public final class FunctionCall implements Expression {
    public FunctionCall(String name, List<Expression> arguments) {
       this.name = name;
       this.arguments = arguments;
+      this.hash = 31 * name.hashCode() + arguments.hashCode();
    }
 
    @Override
@@ -39,10 +42,17 @@ public final class FunctionCall implements Expression {
          throw new IllegalStateException(
                "Arity mismatch for " + name + ": expected " + definition.arity + ", got " + arguments.size());
 
-      ArrayList<Double> values = new ArrayList<>(arguments.size());
-      for (Expression expression : arguments)
-         values.add(expression.evaluate(context));
-      return definition.evaluator.apply(values);
+      // dispatch to the primitive shapes so common calls don't allocate
+      if (definition.unaryEvaluator != null)
+         return definition.unaryEvaluator.applyAsDouble(arguments.get(0).evaluate(context));
+      if (definition.binaryEvaluator != null)
+         return definition.binaryEvaluator.applyAsDouble(arguments.get(0).evaluate(context),
+               arguments.get(1).evaluate(context));
+
+      double[] values = new double[arguments.size()];
+      for (int i = 0; i < values.length; i++)
+         values[i] = arguments.get(i).evaluate(context);
+      return definition.variadicEvaluator.applyAsDouble(values);
    }
 
    @Override
@@ -52,7 +62,7 @@ public final class FunctionCall implements Expression {
       if (definition == null || definition.derivative == null)
          throw new UnsupportedOperationException("No derivative defined for function: " + name);
 
-      return definition.derivative.apply(arguments, variable).simplify();
+      return definition.derivative.apply(arguments, variable);
    }
 
    @Override
@@ -68,18 +78,32 @@ public final class FunctionCall implements Expression {
 
       Function definition = Builtins.get(name);
       if (definition != null && simplifiedArguments.stream().allMatch(exp -> exp instanceof Constant)) {
-         ArrayList<Double> values = new ArrayList<>();
+         double[] values = new double[simplifiedArguments.size()];
 
-         for (Expression expression : simplifiedArguments)
-            values.add(((Constant) expression).value());
+         for (int i = 0; i < values.length; i++)
+            values[i] = ((Constant) simplifiedArguments.get(i)).value();
 
          try {
-            return new Constant(definition.evaluator.apply(values));
+            return NodeFactory.constant(definition.variadicEvaluator.applyAsDouble(values));
          } catch (Exception ignored) {
          }
       }
 
-      return changed ? new FunctionCall(name, simplifiedArguments) : this;
+      return changed ? NodeFactory.call(name, simplifiedArguments) : this;
+   }
+
+   @Override
+   public Expression bind(EvaluationContext context) {
+      boolean changed = false;
+      ArrayList<Expression> boundArguments = new ArrayList<>(arguments.size());
+
+      for (Expression expression : arguments) {
+         Expression bound = expression.bind(context);
+         boundArguments.add(bound);
+         changed |= (bound != expression);
+      }
+
+      return changed ? NodeFactory.call(name, boundArguments) : this;
    }
 
    @Override
@@ -92,8 +116,15 @@ public final class FunctionCall implements Expression {
       if (this == other)
          return true;
       if (other instanceof FunctionCall functionCall) {
+         if (this.hash != functionCall.hash)
+            return false;
          return this.name.equals(functionCall.name) && this.arguments.equals(functionCall.arguments);
       }
       return false;
    }
+
+   @Override
+   public int hashCode() {
+      return hash;
+   }
 }
@@ -1,6 +1,7 @@
 package graphogato.symbolics.expressions;
 
 import graphogato.symbolics.EvaluationContext;
+import graphogato.symbolics.NodeFactory;
 
 /**
  * A unary operator that acts on an expression.
@@ -10,6 +11,7 @@ import graphogato.symbolics.EvaluationContext;
 public final class UnaryOperation implements Expression {
    private final UnaryOperator operator;
    private final Expression expression;
+   private final int hash;
 
    /**
     * Create a unary operation node with an operator and expression.
@@ -20,6 +22,7 @@ public final class UnaryOperation implements Expression {
    public UnaryOperation(UnaryOperator operator, Expression expression) {
       this.operator = operator;
       this.expression = expression;
+      this.hash = 31 * operator.ordinal() + expression.hashCode();
    }
 
    @Override
@@ -34,7 +37,7 @@ public final class UnaryOperation implements Expression {
    public Expression differentiate(String variable) {
       Expression derivative = expression.differentiate(variable);
       return switch (operator) {
-         case NEGATE -> new UnaryOperation(UnaryOperator.NEGATE, derivative);
+         case NEGATE -> NodeFactory.unary(UnaryOperator.NEGATE, derivative);
       };
    }
 
@@ -43,11 +46,17 @@ public final class UnaryOperation implements Expression {
       Expression simplified = expression.simplify();
 
       if (simplified instanceof Constant constant)
-         return new Constant(-constant.value());
+         return NodeFactory.constant(-constant.value());
       if (simplified instanceof UnaryOperation unary && unary.operator() == UnaryOperator.NEGATE)
          return unary.expression;
 
-      return (simplified == expression) ? this : new UnaryOperation(operator, simplified);
+      return (simplified == expression) ? this : NodeFactory.unary(operator, simplified);
+   }
+
+   @Override
+   public Expression bind(EvaluationContext context) {
+      Expression bound = expression.bind(context);
+      return (bound == expression) ? this : NodeFactory.unary(operator, bound);
    }
 
    @Override
@@ -62,11 +71,18 @@ public final class UnaryOperation implements Expression {
       if (this == other)
          return true;
       if (other instanceof UnaryOperation unaryOperation) {
+         if (this.hash != unaryOperation.hash)
+            return false;
          return this.operator == unaryOperation.operator && this.expression.equals(unaryOperation.expression);
       }
       return false;
    }
 
+   @Override
+   public int hashCode() {
+      return hash;
+   }
+
    /**
     * Get this UnUnaryOperation's operator.
     *
@@ -1,6 +1,7 @@
 package graphogato.symbolics.expressions;
 
 import graphogato.symbolics.EvaluationContext;
+import graphogato.symbolics.NodeFactory;
 import graphogato.symbolics.Symbolics;
 
 /**
@@ -38,6 +39,11 @@ public final class Variable implements Expression {
       return this;
    }
 
+   @Override
+   public Expression bind(EvaluationContext context) {
+      return NodeFactory.boundVariable(name, context.slot(name));
+   }
+
    @Override
    public String toString() {
       return name;
@@ -53,6 +59,11 @@ public final class Variable implements Expression {
       return false;
    }
 
+   @Override
+   public int hashCode() {
+      return name.hashCode();
+   }
+
    /**
     * Get this variable's name.
     *
@@ -0,0 +1,105 @@
+package graphogato.plot;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+import graphogato.symbolics.Builtins;
+import graphogato.symbolics.EvaluationContext;
+import graphogato.symbolics.Parser;
+
+public class TestAdaptiveSampler {
+   private static Polyline sample(String input, Viewport viewport) {
+      EvaluationContext context = new EvaluationContext();
+      Builtins.install(context);
+      return new AdaptiveSampler().sample(Parser.parse(input), context, "x", viewport);
+   }
+
+   @Test
+   public void testLine() {
+      Polyline line = sample("2 * x + 1", new Viewport(-10, 10, -10, 10, 800, 600));
+      assertEquals(1, line.segments());
+      // every interval of the grid on screen is straight after checking its
+      // midpoint, and the rest are skipped
+      assertEquals(152, line.evaluations());
+      assertEquals(101, line.size());
+      assertEquals(-19, line.ys(0)[0]);
+      assertEquals(21, line.ys(0)[100]);
+   }
+
+   @Test
+   public void testTolerance() {
+      Viewport viewport = new Viewport(-10, 10, -1.5, 1.5, 800, 600);
+      Polyline sine = sample("sin(x^2 / 4)", viewport);
+      assertEquals(1, sine.segments());
+
+      // the polyline stays within about a pixel of the curve between its points
+      double[] xs = sine.xs(0), ys = sine.ys(0);
+      for (int i = 0; i + 1 < xs.length; i++) {
+         for (double t = 0.125; t < 1; t += 0.125) {
+            double x = xs[i] + t * (xs[i + 1] - xs[i]);
+            double y = ys[i] + t * (ys[i + 1] - ys[i]);
+            double error = viewport.toPixelY(y) - viewport.toPixelY(Math.sin(x * x / 4));
+            assertTrue(Math.abs(error) < 1.5, "at x = " + x);
+         }
+      }
+      // and it's cheaper than evaluating every pixel
+      assertTrue(sine.evaluations() < viewport.width(), "evaluations: " + sine.evaluations());
+   }
+
+   @Test
+   public void testPoles() {
+      Polyline reciprocal = sample("1 / x", new Viewport(-1, 1, -10, 10, 640, 480));
+      assertEquals(2, reciprocal.segments());
+      assertTrue(reciprocal.xs(0)[reciprocal.xs(0).length - 1] < 0);
+      assertTrue(reciprocal.xs(1)[0] > 0);
+
+      // tan has poles at -3pi/2, -pi/2, pi/2 and 3pi/2
+      Polyline tangent = sample("sin(x) / cos(x)", new Viewport(-5, 5, -10, 10, 640, 480));
+      assertEquals(5, tangent.segments());
+      for (int segment = 0; segment < tangent.segments(); segment++) {
+         double[] xs = tangent.xs(segment);
+         double pole = Math.PI / 2 + Math.PI * Math.floor((xs[0] - Math.PI / 2) / Math.PI);
+         assertTrue(xs[xs.length - 1] < pole + Math.PI);
+      }
+   }
+
+   @Test
+   public void testJumpsAndGaps() {
+      Polyline step = sample("heaviside(x - 0.3)", new Viewport(-1, 1, -2, 2, 640, 480));
+      assertEquals(2, step.segments());
+
+      // ln is approached closely at 0, and undefined before it
+      Polyline ln = sample("ln(x)", new Viewport(-1, 2, -5, 5, 600, 400));
+      assertEquals(1, ln.segments());
+      double[] xs = ln.xs(0);
+      assertTrue(xs[0] > 0 && xs[0] < 1e-3, "starts at " + xs[0]);
+
+      Polyline root = sample("x^0.5", new Viewport(-1, 1, -1, 1, 400, 400));
+      assertEquals(1, root.segments());
+      assertTrue(root.xs(0)[0] < 1e-3);
+   }
+
+   @Test
+   public void testPruning() {
+      // only the part of the parabola between -1 and 1 is on screen
+      Polyline parabola = sample("x^2", new Viewport(-10, 10, -1, 1, 800, 600));
+      assertEquals(1, parabola.segments());
+      assertTrue(parabola.evaluations() < 200, "evaluations: " + parabola.evaluations());
+
+      // and ln is undefined left of 0
+      Polyline ln = sample("ln(x)", new Viewport(-100, 1, -5, 5, 800, 600));
+      assertEquals(1, ln.segments());
+      assertTrue(ln.evaluations() < 300, "evaluations: " + ln.evaluations());
+   }
+
+   @Test
+   public void testInvalidSettings() {
+      assertThrows(IllegalArgumentException.class, () -> new Viewport(1, 1, 0, 1, 100, 100));
+      assertThrows(IllegalArgumentException.class, () -> new Viewport(0, 1, 0, 1, 0, 100));
+      assertThrows(IllegalArgumentException.class, () -> new AdaptiveSampler(0, 8, 10));
+      assertThrows(IllegalArgumentException.class, () -> new AdaptiveSampler(0.5, 8, -1));
+   }
+}
@@ -0,0 +1,71 @@
+package graphogato.plot;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import graphogato.symbolics.Builtins;
+import graphogato.symbolics.EvaluationContext;
+import graphogato.symbolics.Parser;
+import graphogato.symbolics.expressions.Expression;
+
+public class TestParallelSampler {
+   private final ForkJoinPool pool = new ForkJoinPool(4);
+
+   @AfterEach
+   public void shutdown() {
+      pool.shutdown();
+   }
+
+   private static EvaluationContext context() {
+      EvaluationContext context = new EvaluationContext();
+      Builtins.install(context);
+      context.variables().put("a", 3.0);
+      return context;
+   }
+
+   @Test
+   public void testCurve() {
+      EvaluationContext context = context();
+      Expression expression = Parser.parse("sin(a * x) + x^2");
+      double[] out = new double[10_001];
+      new ParallelSampler(pool, 64).sample(expression, context, "x", -2, 2, out);
+
+      double[] expected = new double[out.length];
+      for (int i = 0; i < out.length; i++) {
+         double x = (i == out.length - 1) ? 2 : -2 + i * (4.0 / (out.length - 1));
+         expected[i] = Math.sin(3 * x) + x * x;
+      }
+      assertArrayEquals(expected, out, 1e-12);
+      // the context is left alone
+      assertEquals(1, context.variables().size());
+   }
+
+   @Test
+   public void testGrid() {
+      Viewport viewport = new Viewport(-1, 1, 0, 2, 37, 23);
+      double[] out = new double[37 * 23];
+      new ParallelSampler(pool, 100).sample(Parser.parse("x * y - a"), context(), "x", "y", viewport, out);
+
+      for (int row = 0; row < 23; row++) {
+         for (int column = 0; column < 37; column++) {
+            double x = -1 + (column + 0.5) / 37 * 2, y = (row + 0.5) / 23 * 2;
+            assertEquals(x * y - 3, out[row * 37 + column], 1e-12);
+         }
+      }
+      assertThrows(IllegalArgumentException.class, () -> new ParallelSampler(pool, 100)
+            .sample(Parser.parse("x * y"), context(), "x", "y", viewport, new double[10]));
+   }
+
+   @Test
+   public void testErrors() {
+      assertThrows(IllegalStateException.class, () -> new ParallelSampler(pool, 16)
+            .sample(Parser.parse("f(x)"), context(), "x", 0, 1, new double[1000]));
+      assertThrows(IllegalArgumentException.class, () -> new ParallelSampler(pool, 0));
+   }
+}
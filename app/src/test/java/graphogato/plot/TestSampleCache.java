@@ -0,0 +1,125 @@
+package graphogato.plot;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+import graphogato.symbolics.Builtins;
+import graphogato.symbolics.EvaluationContext;
+import graphogato.symbolics.Parser;
+import graphogato.symbolics.expressions.Expression;
+
+public class TestSampleCache {
+   private static final Expression CURVE = Parser.parse("a * sin(x) + x / 4");
+
+   private static EvaluationContext context(double a) {
+      EvaluationContext context = new EvaluationContext();
+      Builtins.install(context);
+      context.variables().put("a", a);
+      return context;
+   }
+
+   private static void assertSamples(Polyline polyline, double a) {
+      for (int segment = 0; segment < polyline.segments(); segment++) {
+         double[] xs = polyline.xs(segment), ys = polyline.ys(segment);
+         for (int i = 0; i < xs.length; i++)
+            assertEquals(a * Math.sin(xs[i]) + xs[i] / 4, ys[i], 1e-12);
+      }
+   }
+
+   @Test
+   public void testPan() {
+      SampleCache cache = new SampleCache();
+      EvaluationContext context = context(2);
+      Viewport viewport = new Viewport(-10, 10, -5, 5, 800, 400);
+      Polyline first = cache.sample(CURVE, context, "x", viewport);
+      assertSamples(first, 2);
+      assertTrue(first.size() >= 800 && first.size() <= 1602, "size " + first.size());
+      assertEquals(first.evaluations(), cache.evaluations());
+
+      // the same view again is free
+      Polyline again = cache.sample(CURVE, context, "x", viewport);
+      assertEquals(0, again.evaluations());
+      assertEquals(first.size(), again.size());
+
+      // panning by a tenth only samples the tiles of the exposed strip
+      Polyline panned = cache.sample(CURVE, context, "x", new Viewport(-8, 12, -5, 5, 800, 400));
+      assertSamples(panned, 2);
+      assertTrue(panned.evaluations() <= 2 * SampleCache.TILE_SIZE, "evaluations " + panned.evaluations());
+      assertTrue(cache.hitRate() > 0.5);
+      assertEquals(cache.misses(), cache.size());
+   }
+
+   @Test
+   public void testZoom() {
+      SampleCache cache = new SampleCache();
+      EvaluationContext context = context(1);
+      Viewport viewport = new Viewport(-10, 10, -5, 5, 800, 400);
+      Polyline coarse = cache.sample(CURVE, context, "x", viewport);
+
+      // zooming in takes every other sample from the level above
+      Polyline fine = cache.sample(CURVE, context, "x", new Viewport(-5, 5, -5, 5, 800, 400));
+      assertSamples(fine, 1);
+      assertTrue(fine.evaluations() <= fine.size() / 2 + SampleCache.TILE_SIZE,
+            "evaluations " + fine.evaluations() + " of " + fine.size());
+
+      // zooming back out is covered by both levels
+      assertEquals(0, cache.sample(CURVE, context, "x", viewport).evaluations());
+      assertTrue(coarse.evaluations() > 0);
+
+      // zooming out over sampled tiles takes everything from the level below
+      SampleCache outward = new SampleCache();
+      outward.sample(CURVE, context, "x", new Viewport(-10, 10, -5, 5, 800, 400));
+      Polyline wide = outward.sample(CURVE, context, "x", new Viewport(-20, 20, -5, 5, 800, 400));
+      assertSamples(wide, 1);
+      assertTrue(wide.evaluations() < wide.size() * 3 / 4, "evaluations " + wide.evaluations());
+   }
+
+   @Test
+   public void testBindings() {
+      SampleCache cache = new SampleCache();
+      Viewport viewport = new Viewport(0, 4, -5, 5, 200, 100);
+      cache.sample(CURVE, context(1), "x", viewport);
+
+      // variables the curve doesn't use don't matter
+      EvaluationContext unrelated = context(1);
+      unrelated.variables().put("b", 7.0);
+      assertEquals(0, cache.sample(CURVE, unrelated, "x", viewport).evaluations());
+      assertEquals(0, cache.sample(CURVE, EvaluationContext.withBuiltins().extend().variable("a", 1).build(), "x",
+            viewport).evaluations());
+
+      Polyline changed = cache.sample(CURVE, context(3), "x", viewport);
+      assertTrue(changed.evaluations() > 0);
+      assertSamples(changed, 3);
+
+      // sampling along another variable is another curve
+      EvaluationContext along = context(1);
+      along.variables().put("x", 2.0);
+      assertTrue(cache.sample(Parser.parse("a * sin(x) + x / 4"), along, "a", viewport).evaluations() > 0);
+   }
+
+   @Test
+   public void testEviction() {
+      SampleCache cache = new SampleCache(4 * (SampleCache.TILE_SIZE * Double.BYTES + 128));
+      EvaluationContext context = context(1);
+      for (int i = 0; i < 20; i++)
+         cache.sample(CURVE, context, "x", new Viewport(i * 100, i * 100 + 50, -1, 1, 500, 100));
+      assertTrue(cache.evictions() > 0);
+      assertTrue(cache.bytes() <= cache.budget());
+      assertEquals(4, cache.size());
+
+      cache.clear();
+      assertEquals(0, cache.size());
+      assertThrows(IllegalArgumentException.class, () -> new SampleCache(100));
+   }
+
+   @Test
+   public void testUndefined() {
+      Polyline polyline = new SampleCache().sample(Parser.parse("ln(x)"), context(1), "x",
+            new Viewport(-2, 2, -5, 5, 100, 100));
+      assertEquals(1, polyline.segments());
+      assertTrue(polyline.xs(0)[0] > 0);
+   }
+}
@@ -0,0 +1,104 @@
+package graphogato.storage;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import graphogato.symbolics.EvaluationContext;
+import graphogato.symbolics.NodeFactory;
+import graphogato.symbolics.Parser;
+import graphogato.symbolics.expressions.BinaryOperation.BinaryOperator;
+import graphogato.symbolics.expressions.Expression;
+
+public class TestExpressionCodec {
+   private static final String[] INPUTS = {
+         "x",
+         "-x^2 + 3 * x - 1",
+         "sin(x)^2 * exp(x) / x",
+         "max(x, 2, ln(x)) - f()",
+         "(x + 1) * (x + 1) - (x + 1) / 2.5e-7",
+         "heaviside(sin(3 * x)) * x^-2 + 123456789 * y"
+   };
+
+   @Test
+   public void testRoundTrip() {
+      for (String input : INPUTS) {
+         Expression expression = Parser.parse(input);
+         Expression decoded = ExpressionCodec.decode(ExpressionCodec.encode(expression));
+         assertEquals(expression, decoded, input);
+         assertEquals(expression.toString(), decoded.toString(), input);
+         // rebuilt through the factory, so it's the same node
+         assertSame(expression, decoded, input);
+      }
+   }
+
+   @Test
+   public void testConstantsAreExact() {
+      double[] values = { 0, -0.0, 1, -1, 0.1, Math.PI, 1e300, -Double.MIN_VALUE, Double.NaN,
+            Double.POSITIVE_INFINITY, 3_000_000_000.0, 1L << 60 };
+      for (double value : values) {
+         Expression decoded = ExpressionCodec.decode(ExpressionCodec.encode(NodeFactory.constant(value)));
+         assertEquals(Double.doubleToRawLongBits(value),
+               Double.doubleToRawLongBits(decoded.evaluate(EvaluationContext.EMPTY)), "constant " + value);
+      }
+   }
+
+   @Test
+   public void testSharedSubtrees() {
+      // a chain where each level uses the one below twice is exponential as a tree
+      Expression chain = NodeFactory.variable("x");
+      for (int i = 0; i < 40; i++)
+         chain = NodeFactory.binary(BinaryOperator.ADD, chain, NodeFactory.binary(BinaryOperator.MULTIPLY, chain,
+               NodeFactory.constant(2)));
+      byte[] data = ExpressionCodec.encode(chain);
+      assertTrue(data.length < 400, "size " + data.length);
+      assertSame(chain, ExpressionCodec.decode(data));
+
+      // expressions encoded together share their names and subtrees
+      List<Expression> expressions = Arrays.stream(INPUTS).map(Parser::parse).toList();
+      byte[] together = ExpressionCodec.encode(expressions);
+      int apart = expressions.stream().mapToInt(e -> ExpressionCodec.encode(e).length).sum();
+      assertTrue(together.length < apart);
+      assertEquals(expressions, ExpressionCodec.decodeAll(together));
+   }
+
+   @Test
+   public void testSmallerThanText() {
+      // derivatives repeat subtrees, which text writes out every time
+      Expression derivative = Parser.parse("sin(x)^2 + 3 * cos(x) * sin(x) - x^2 / (x + 1)").differentiate("x");
+      assertTrue(ExpressionCodec.encode(derivative).length < derivative.toString().length() * 2 / 3);
+   }
+
+   @Test
+   public void testMalformed() {
+      byte[] data = ExpressionCodec.encode(Parser.parse("sin(x) + 2"));
+      assertThrows(IllegalArgumentException.class, () -> ExpressionCodec.decode(new byte[0]));
+      assertThrows(IllegalArgumentException.class, () -> ExpressionCodec.decode("text".getBytes()));
+      for (int length = 0; length < data.length; length++) {
+         byte[] truncated = Arrays.copyOf(data, length);
+         assertThrows(IllegalArgumentException.class, () -> ExpressionCodec.decode(truncated));
+      }
+      assertThrows(IllegalArgumentException.class, () -> ExpressionCodec.decode(Arrays.copyOf(data, data.length + 1)));
+      assertThrows(IllegalArgumentException.class, () -> ExpressionCodec.decode(ExpressionCodec.encode(List.of())));
+
+      // corrupt bytes never get past the checks as anything but an
+      // IllegalArgumentException
+      Random random = new Random(20);
+      for (int i = 0; i < 2000; i++) {
+         byte[] corrupt = data.clone();
+         corrupt[5 + random.nextInt(data.length - 5)] = (byte) random.nextInt(256);
+         try {
+            ExpressionCodec.decode(corrupt);
+         } catch (IllegalArgumentException e) {
+            // expected for most corruptions
+         }
+      }
+   }
+}
@@ -0,0 +1,54 @@
+package graphogato.storage;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import graphogato.symbolics.EvaluationContext;
+import graphogato.symbolics.Parser;
+
+public class TestWorksheet {
+   @Test
+   public void testRoundTrip(@TempDir Path directory) throws IOException {
+      EvaluationContext context = EvaluationContext.withBuiltins().extend()
+            .variable("a", 2.5)
+            .variable("b", -1)
+            .build();
+      Worksheet worksheet = Worksheet.of(List.of(Parser.parse("a * sin(x)"), Parser.parse("b + x^2")), context);
+
+      Path path = directory.resolve("sheet.grph");
+      worksheet.write(path);
+      Worksheet read = Worksheet.read(path);
+      assertEquals(worksheet, read);
+      assertEquals(List.of("a", "b"), List.copyOf(read.variables().keySet()));
+
+      EvaluationContext loaded = read.context();
+      assertTrue(loaded.isFrozen());
+      EvaluationContext local = loaded.child();
+      local.variables().put("x", 2.0);
+      assertEquals(2.5 * Math.sin(2), read.expressions().get(0).evaluate(local), 1e-12);
+      assertEquals(3, read.expressions().get(1).evaluate(local), 1e-12);
+   }
+
+   @Test
+   public void testEmpty() {
+      Worksheet empty = new Worksheet(List.of(), Map.of());
+      assertEquals(empty, Worksheet.fromBytes(empty.toBytes()));
+      assertThrows(IllegalArgumentException.class, () -> ExpressionCodec.decode(empty.toBytes()));
+   }
+
+   @Test
+   public void testImmutable() {
+      Worksheet worksheet = new Worksheet(List.of(Parser.parse("x")), Map.of("x", 1.0));
+      assertThrows(UnsupportedOperationException.class, () -> worksheet.variables().put("y", 2.0));
+      assertThrows(UnsupportedOperationException.class, () -> worksheet.expressions().clear());
+   }
+}
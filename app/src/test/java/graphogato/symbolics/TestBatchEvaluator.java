@@ -0,0 +1,72 @@
+package graphogato.symbolics;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import org.junit.jupiter.api.Test;
+
+import graphogato.symbolics.expressions.Expression;
+
+public class TestBatchEvaluator {
+   private static final String[] testInputs = {
+         "2",
+         "x",
+         "a * x ^ 2 - x / 3 + a",
+         "sin(x)^2 + ln(x) * exp(0 - x)",
+         "max(x, a) - abs(x) + heaviside(x) * sign(x)"
+   };
+
+   @Test
+   public void testMatchesEvaluate() {
+      EvaluationContext context = new EvaluationContext();
+      Builtins.install(context);
+      context.variables().put("a", 1.5);
+
+      double[] xs = new double[257];
+      for (int i = 0; i < xs.length; i++)
+         xs[i] = -4 + i / 32.0;
+      double[] out = new double[xs.length];
+
+      BatchEvaluator evaluator = new BatchEvaluator();
+      for (String input : testInputs) {
+         Expression expression = Parser.parse(input);
+         evaluator.evaluate(expression, context, "x", xs, out);
+
+         for (int i = 0; i < xs.length; i++) {
+            context.variables().put("x", xs[i]);
+            assertEquals(expression.evaluate(context), out[i], input + " at x = " + xs[i]);
+         }
+      }
+   }
+
+   @Test
+   public void testVariadicCalls() {
+      EvaluationContext context = new EvaluationContext();
+      context.functions().put("sum3", Function.variadic("sum3", 3, args -> args[0] + args[1] + args[2],
+            (args, var) -> Symbolics.ONE));
+      // the functions see exactly as many values as arguments
+      context.functions().put("count", Function.variadic("count", -1, args -> args.length,
+            (args, var) -> Symbolics.ZERO));
+      Expression expression = Parser.parse("sum3(x, count(x, 1), sum3(1, x, count(x, x, x))) * count(x)");
+
+      double[] xs = { -1, 0.5, 2 };
+      double[] out = new double[xs.length];
+      BatchEvaluator evaluator = new BatchEvaluator();
+      // pooled arrays are reused between evaluations
+      for (int round = 0; round < 3; round++) {
+         evaluator.evaluate(expression, context, "x", xs, out);
+         for (int i = 0; i < xs.length; i++)
+            assertEquals(xs[i] + 2 + 1 + xs[i] + 3, out[i]);
+      }
+   }
+
+   @Test
+   public void testShortOutput() {
+      assertThrows(IllegalArgumentException.class,
+            () -> new BatchEvaluator().evaluate(Parser.parse("x"), EvaluationContext.EMPTY, "x", new double[4],
+                  new double[3]));
+      double[] xs = new double[4];
+      assertThrows(IllegalArgumentException.class,
+            () -> new BatchEvaluator().evaluate(Parser.parse("x"), EvaluationContext.EMPTY, "x", xs, xs));
+   }
+}
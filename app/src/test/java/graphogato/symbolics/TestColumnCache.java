@@ -0,0 +1,139 @@
+package graphogato.symbolics;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import org.junit.jupiter.api.Test;
+
+import graphogato.symbolics.expressions.Expression;
+
+public class TestColumnCache {
+   private static final String[] testInputs = {
+         "2",
+         "x",
+         "a * sin(x) + ln(x)^3",
+         "a * x ^ 2 - x / 3 + b * a",
+         "max(x, a) - abs(x) + heaviside(x - b) * sign(x)",
+         "sin(a * x)^2 + sin(a * x) * exp(b)"
+   };
+
+   private static double[] samples() {
+      double[] xs = new double[129];
+      for (int i = 0; i < xs.length; i++)
+         xs[i] = 0.05 + i / 16.0;
+      return xs;
+   }
+
+   @Test
+   public void testMatchesBatch() {
+      EvaluationContext context = new EvaluationContext();
+      Builtins.install(context);
+      double[] xs = samples();
+      double[] expected = new double[xs.length];
+      double[] out = new double[xs.length];
+      BatchEvaluator batch = new BatchEvaluator();
+
+      for (String input : testInputs) {
+         Expression expression = Parser.parse(input);
+         ColumnCache cache = new ColumnCache(expression, "x", xs);
+         // drag a, then b, then both
+         for (int step = 0; step < 12; step++) {
+            context.variables().put("a", (step < 8) ? step * 0.25 : 2.0);
+            context.variables().put("b", (step < 4) ? 1.0 : step - 3.5);
+            batch.evaluate(expression, context, "x", xs, expected);
+            cache.evaluate(context, out);
+            for (int i = 0; i < xs.length; i++)
+               assertEquals(Double.doubleToRawLongBits(expected[i]), Double.doubleToRawLongBits(out[i]),
+                     input + " at step " + step + ", x = " + xs[i]);
+         }
+      }
+   }
+
+   @Test
+   public void testRecomputesDependents() {
+      EvaluationContext context = new EvaluationContext();
+      Builtins.install(context);
+      context.variables().put("a", 1.0);
+      double[] out = new double[129];
+
+      // a, x, a * sin(x), sin(x), ln(x), ln(x)^3, 3 and the sum
+      ColumnCache cache = new ColumnCache(Parser.parse("a * sin(x) + ln(x)^3"), "x", samples());
+      assertEquals(8, cache.size());
+      cache.evaluate(context, out);
+      assertEquals(8, cache.misses());
+
+      // only a, the product and the sum depend on a
+      context.variables().put("a", 2.0);
+      cache.evaluate(context, out);
+      assertEquals(11, cache.misses());
+      assertEquals(5, cache.hits());
+
+      // nothing changed
+      cache.evaluate(context, out);
+      assertEquals(11, cache.misses());
+
+      // redefining a function recomputes its calls and everything above them
+      context.functions().put("ln", Function.unary("ln", x -> 0, null));
+      cache.evaluate(context, out);
+      assertEquals(14, cache.misses());
+      assertEquals(2.0 * Math.sin(0.05), out[0]);
+   }
+
+   @Test
+   public void testErrors() {
+      EvaluationContext context = new EvaluationContext();
+      Builtins.install(context);
+      ColumnCache cache = new ColumnCache(Parser.parse("a * f(x)"), "x", samples());
+
+      assertThrows(IllegalArgumentException.class, () -> cache.evaluate(context, new double[3]));
+      assertThrows(IllegalStateException.class, () -> cache.evaluate(context, new double[129]));
+      context.variables().put("a", 3.0);
+      assertThrows(IllegalStateException.class, () -> cache.evaluate(context, new double[129]));
+
+      // a function defined later is picked up
+      context.functions().put("f", Function.unary("f", x -> x * 2, null));
+      double[] out = new double[129];
+      cache.evaluate(context, out);
+      assertEquals(3.0 * 0.1, out[0]);
+   }
+
+   @Test
+   public void testRecoversFromFailure() {
+      EvaluationContext context = new EvaluationContext();
+      ColumnCache cache = new ColumnCache(Parser.parse("a * f(x)"), "x", new double[] { 1, 2, 3 });
+      double[] out = new double[3];
+
+      context.variables().put("a", 1.0);
+      context.functions().put("f", Function.unary("f", x -> x, null));
+      cache.evaluate(context, out);
+
+      // the a column is recomputed before f fails
+      context.variables().put("a", 2.0);
+      context.functions().put("f", Function.unary("f", x -> {
+         throw new ArithmeticException();
+      }, null));
+      assertThrows(ArithmeticException.class, () -> cache.evaluate(context, out));
+
+      context.variables().put("a", 1.0);
+      context.functions().put("f", Function.unary("f", x -> x * 2, null));
+      cache.evaluate(context, out);
+      assertArrayEquals(new double[] { 2, 4, 6 }, out);
+   }
+
+   @Test
+   public void testBoundVariables() {
+      // bound variables are read by name, not from the slots they were bound to
+      EvaluationContext bound = new EvaluationContext();
+      bound.slot("q");
+      bound.slot("r");
+      ColumnCache cache = new ColumnCache(Parser.parse("a * x").bind(bound), "x", new double[] { 1, 2 });
+      double[] out = new double[2];
+
+      EvaluationContext context = new EvaluationContext();
+      assertThrows(IllegalStateException.class, () -> cache.evaluate(context, out));
+      context.variables().put("a", 3.0);
+      cache.evaluate(context, out);
+      assertArrayEquals(new double[] { 3, 6 }, out);
+   }
+}
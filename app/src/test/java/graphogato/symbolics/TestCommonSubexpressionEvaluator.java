@@ -0,0 +1,67 @@
+package graphogato.symbolics;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+import graphogato.symbolics.expressions.BinaryOperation;
+import graphogato.symbolics.expressions.Expression;
+import graphogato.symbolics.expressions.FunctionCall;
+import graphogato.symbolics.expressions.UnaryOperation;
+
+public class TestCommonSubexpressionEvaluator {
+   private static final String[] testInputs = {
+         "x",
+         "sin(exp(x))^2",
+         "exp(sin(x)) ^ x / (x + 1)",
+         "max(x, 1) * abs(x - 2)"
+   };
+
+   @Test
+   public void testMatchesEvaluate() {
+      EvaluationContext context = new EvaluationContext();
+      Builtins.install(context);
+
+      for (String input : testInputs) {
+         Expression expression = Parser.parse(input);
+         for (int order = 0; order <= 3; order++) {
+            CommonSubexpressionEvaluator evaluator = CommonSubexpressionEvaluator.of(expression);
+            for (double x = 0.125; x < 3; x += 0.25) {
+               context.variables().put("x", x);
+               assertEquals(expression.evaluate(context), evaluator.evaluate(context), expression + " at x = " + x);
+            }
+            expression = expression.differentiate("x").simplify();
+         }
+      }
+   }
+
+   @Test
+   public void testSharesSubtrees() {
+      // the power rule repeats sin(x)^x in every term of the derivative
+      Expression derivative = Parser.parse("sin(x) ^ x").differentiate("x").differentiate("x");
+      assertTrue(CommonSubexpressionEvaluator.of(derivative).size() < countNodes(derivative));
+   }
+
+   @Test
+   public void testSignedZeros() {
+      // x * 0 and x * -0 are equal as expressions, but not as values
+      EvaluationContext context = new EvaluationContext();
+      context.variables().put("x", 1.0);
+      Expression expression = Symbolics.add(
+            Symbolics.div(Symbolics.ONE, Symbolics.mul(Symbolics.variable("x"), Symbolics.constant(0.0))),
+            Symbolics.div(Symbolics.ONE, Symbolics.mul(Symbolics.variable("x"), Symbolics.constant(-0.0))));
+      assertEquals(Double.NaN, expression.evaluate(context));
+      assertEquals(Double.NaN, CommonSubexpressionEvaluator.of(expression).evaluate(context));
+   }
+
+   private static int countNodes(Expression expression) {
+      if (expression instanceof BinaryOperation binary)
+         return 1 + countNodes(binary.left()) + countNodes(binary.right());
+      if (expression instanceof UnaryOperation unary)
+         return 1 + countNodes(unary.expression());
+      if (expression instanceof FunctionCall call)
+         return 1 + call.arguments.stream().mapToInt(TestCommonSubexpressionEvaluator::countNodes).sum();
+      return 1;
+   }
+}
@@ -0,0 +1,117 @@
+package graphogato.symbolics;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+import graphogato.symbolics.expressions.BinaryOperation;
+import graphogato.symbolics.expressions.Expression;
+import graphogato.symbolics.expressions.FunctionCall;
+import graphogato.symbolics.expressions.UnaryOperation;
+
+public class TestDerivativeCache {
+   private static final String[] testInputs = {
+         "x^3 - 2 * x + 1",
+         "sin(x)^2 * exp(x)",
+         "ln(x) * x^4 / cos(x)",
+         "abs(x - 2) + sign(x) * y",
+         "max(x, x^2) - exp(sin(y * x))",
+         "x^x"
+   };
+   private static final double[] testValues = { 0.3, 0.75, 1.5, 2.5 };
+
+   private static void assertClose(double expected, double actual, String message) {
+      assertEquals(expected, actual, 1e-9 * Math.max(1, Math.abs(expected)), message);
+   }
+
+   @Test
+   public void testMatchesDifferentiate() {
+      EvaluationContext context = new EvaluationContext();
+      Builtins.install(context);
+      context.variables().put("y", 0.5);
+      DerivativeCache cache = new DerivativeCache();
+
+      for (String input : testInputs) {
+         Expression expected = Parser.parse(input);
+         for (int n = 1; n <= 3; n++) {
+            expected = expected.differentiate("x").simplify();
+            Expression actual = cache.nthDerivative(Parser.parse(input), "x", n);
+            for (double x : testValues) {
+               context.variables().put("x", x);
+               assertClose(expected.evaluate(context), actual.evaluate(context),
+                     "order " + n + " of " + input + " at x = " + x);
+            }
+         }
+      }
+   }
+
+   @Test
+   public void testReuse() {
+      DerivativeCache cache = new DerivativeCache();
+      Expression expression = Parser.parse("sin(x)^2 * exp(x)");
+
+      Expression third = cache.nthDerivative(expression, "x", 3);
+      int size = cache.size();
+      long misses = cache.misses();
+
+      // every order was already computed on the way to the third
+      assertSame(third, cache.nthDerivative(expression, "x", 3));
+      assertEquals(size, cache.size());
+      assertEquals(misses, cache.misses());
+      assertTrue(cache.hits() > 0);
+
+      // a different variable is differentiated separately
+      assertEquals(Symbolics.ZERO, cache.nthDerivative(expression, "y", 1));
+      assertTrue(cache.size() > size);
+
+      cache.clear();
+      assertEquals(0, cache.size());
+      assertEquals(0, cache.hits());
+   }
+
+   private static long treeSize(Expression expression, Map<Expression, Long> sizes) {
+      Long size = sizes.get(expression);
+      if (size != null)
+         return size;
+      long result = 1;
+      if (expression instanceof UnaryOperation unary)
+         result += treeSize(unary.expression(), sizes);
+      else if (expression instanceof BinaryOperation binary)
+         result += treeSize(binary.left(), sizes) + treeSize(binary.right(), sizes);
+      else if (expression instanceof FunctionCall call)
+         for (Expression argument : call.arguments)
+            result += treeSize(argument, sizes);
+      sizes.put(expression, result);
+      return result;
+   }
+
+   @Test
+   public void testGrowth() {
+      // the tree of an unsimplified derivative more than doubles with every
+      // order, but the cache only sees each distinct node once
+      DerivativeCache cache = new DerivativeCache();
+      Expression derivative = Parser.parse("sin(x) * cos(x)");
+      for (int n = 1; n <= 8; n++)
+         derivative = cache.differentiate(derivative, "x");
+
+      long tree = treeSize(derivative, new IdentityHashMap<>());
+      assertTrue(cache.size() * 100L < tree, cache.size() + " cached for a tree of " + tree);
+   }
+
+   @Test
+   public void testOrders() {
+      Expression expression = Parser.parse("x^2");
+      assertSame(expression, Symbolics.nthDerivative(expression, "x", 0));
+      assertEquals(Symbolics.constant(2), Symbolics.nthDerivative(expression, "x", 2));
+      assertEquals(Symbolics.ZERO, Symbolics.nthDerivative(expression, "x", 3));
+      assertThrows(IllegalArgumentException.class, () -> Symbolics.nthDerivative(expression, "x", -1));
+      assertThrows(UnsupportedOperationException.class,
+            () -> Symbolics.nthDerivative(Parser.parse("f(x)"), "x", 1));
+   }
+}
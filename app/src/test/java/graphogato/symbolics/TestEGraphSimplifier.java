@@ -0,0 +1,71 @@
+package graphogato.symbolics;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+
+import org.junit.jupiter.api.Test;
+
+import graphogato.symbolics.expressions.Expression;
+
+public class TestEGraphSimplifier {
+   private static final String[][] testSimplifications = {
+         { "x * 2 + x * 3", "5 * x" },
+         { "((x * y) / z) / x", "y / z" },
+         { "x / (y / x)", "(x * x) / y" },
+         { "x^2", "x * x" },
+         { "x - (0 - x)", "x + x" },
+         { "exp(x) * exp(1 - x)", "exp(1)" },
+         { "ln(exp(x + 1)) - 1", "x" },
+         { "cos(0 - x) - cos(x)", "0" },
+         { "2 * 3 + y", "6 + y" }
+   };
+
+   private static final String[] testInputs = {
+         "sin(x)^2 * exp(x) / x",
+         "x^3 * ln(x) - 2 * x^2 + cos(x^2)",
+         "(x + 1) * (x + 1) / (x + 1)",
+         "abs(x - 1) * x / x^3"
+   };
+
+   // a budget that runs out of nodes rather than time, so results don't depend on
+   // how fast the machine is
+   private static final EGraphSimplifier simplifier = new EGraphSimplifier(10_000, 30, Duration.ofMinutes(1));
+
+   @Test
+   public void testSimplifications() {
+      for (String[] simplification : testSimplifications) {
+         Expression simplified = simplifier.simplify(Parser.parse(simplification[0]));
+         assertEquals(EGraphSimplifier.cost(Parser.parse(simplification[1])), EGraphSimplifier.cost(simplified),
+               simplification[0] + " gave " + simplified);
+      }
+   }
+
+   @Test
+   public void testDerivativesStayEqual() {
+      EvaluationContext context = new EvaluationContext();
+      Builtins.install(context);
+
+      for (String input : testInputs) {
+         Expression derivative = Parser.parse(input).differentiate("x").differentiate("x");
+         Expression simplified = simplifier.simplify(derivative);
+         assertTrue(EGraphSimplifier.cost(simplified) <= EGraphSimplifier.cost(derivative.simplify()), input);
+
+         for (double x = 0.125; x < 4; x += 0.25) {
+            context.variables().put("x", x);
+            double expected = derivative.evaluate(context);
+            if (!Double.isFinite(expected))
+               continue;
+            assertEquals(expected, simplified.evaluate(context), 1e-9 * Math.max(1, Math.abs(expected)), input);
+         }
+      }
+   }
+
+   @Test
+   public void testBudget() {
+      // without any iterations, only constants are folded
+      EGraphSimplifier unsaturated = new EGraphSimplifier(10_000, 0, Duration.ofMinutes(1));
+      assertEquals(Parser.parse("x * 2 + 6"), unsaturated.simplify(Parser.parse("x * 2 + 2 * 3")));
+   }
+}
@@ -0,0 +1,159 @@
+package graphogato.symbolics;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.jupiter.api.Test;
+
+import graphogato.symbolics.expressions.Expression;
+
+public class TestEvaluationContext {
+   private static final Function SQUARE = Function.unary("square", x -> x * x,
+         (args, var) -> Symbolics.ONE);
+
+   @Test
+   public void testBuilder() {
+      EvaluationContext context = EvaluationContext.builder()
+            .builtins()
+            .variable("a", 2)
+            .function(SQUARE)
+            .build();
+
+      assertTrue(context.isFrozen());
+      assertEquals(2 * 9 + Math.sin(2), Parser.parse("a * square(3) + sin(a)").evaluate(context), 1e-12);
+      assertThrows(UnsupportedOperationException.class, () -> context.variables().put("a", 1.0));
+      assertThrows(UnsupportedOperationException.class, () -> context.functions().remove("sin"));
+      assertThrows(UnsupportedOperationException.class, () -> context.slot("x"));
+      // EMPTY is a plain mutable context, like it always was
+      assertFalse(EvaluationContext.EMPTY.isFrozen());
+   }
+
+   @Test
+   public void testOverlay() {
+      EvaluationContext shared = EvaluationContext.withBuiltins().extend().variable("a", 1).build();
+      assertSame(EvaluationContext.withBuiltins(), EvaluationContext.withBuiltins());
+      assertEquals(Builtins.get("cos"), shared.functions().get("cos"));
+
+      EvaluationContext child = shared.child();
+      assertFalse(child.isFrozen());
+      child.variables().put("a", 5.0);
+      child.variables().put("x", 3.0);
+      child.functions().put("square", SQUARE);
+      assertEquals(5 * 9, Parser.parse("a * square(x)").evaluate(child));
+      assertEquals(2, child.variables().size());
+      assertEquals(1.0, shared.variables().get("a"));
+      assertNull(shared.functions().get("square"));
+
+      // removing from the child hides the shared value too
+      assertEquals(5.0, child.variables().remove("a"));
+      assertNull(child.variables().get("a"));
+      assertFalse(child.variables().containsKey("a"));
+      assertEquals(1.0, shared.variables().get("a"));
+
+      // children of the mutable overlay are copies of it
+      EvaluationContext grandchild = child.child();
+      grandchild.variables().put("x", 4.0);
+      assertEquals(3.0, child.variables().get("x"));
+      assertEquals(child.freeze(), child);
+   }
+
+   @Test
+   public void testRemoval() {
+      EvaluationContext shared = EvaluationContext.withBuiltins().extend()
+            .variable("a", 1)
+            .variable("b", 2)
+            .variable("k", 3)
+            .build();
+      EvaluationContext child = shared.child();
+      child.variables().put("x", 4.0);
+
+      assertEquals(1.0, child.variables().remove("a"));
+      assertNull(child.variables().remove("a"));
+      assertFalse(child.variables().containsKey("a"));
+      assertEquals(3, child.variables().size());
+      assertFalse(child.variables().keySet().contains("a"));
+
+      // the views remove through the overlay
+      assertTrue(child.variables().keySet().remove("k"));
+      assertTrue(child.variables().entrySet().removeIf(entry -> entry.getKey().equals("x")));
+      assertEquals(Map.of("b", 2.0), child.variables());
+      assertThrows(IllegalStateException.class, () -> Parser.parse("a").evaluate(child));
+
+      // removed names stay hidden in copies, and can be put back
+      EvaluationContext frozen = child.freeze();
+      EvaluationContext copy = child.child();
+      assertEquals(Map.of("b", 2.0), frozen.variables());
+      assertEquals(Map.of("b", 2.0), copy.variables());
+      copy.variables().put("a", 6.0);
+      assertEquals(6.0, copy.variables().get("a"));
+      assertNull(child.variables().get("a"));
+
+      child.functions().clear();
+      assertTrue(child.functions().isEmpty());
+      assertEquals(Builtins.get("sin"), shared.functions().get("sin"));
+      assertEquals(Map.of("a", 1.0, "b", 2.0, "k", 3.0), shared.variables());
+   }
+
+   @Test
+   public void testEqualsFlatContext() {
+      EvaluationContext flat = new EvaluationContext();
+      Builtins.install(flat);
+      flat.variables().put("a", 1.0);
+      EvaluationContext layered = EvaluationContext.withBuiltins().extend().variable("a", 1).build();
+      assertEquals(flat, layered);
+      assertEquals(layered, flat);
+      assertEquals(flat, flat.freeze());
+
+      // freezing takes a snapshot
+      EvaluationContext frozen = flat.freeze();
+      flat.variables().put("a", 2.0);
+      assertEquals(1.0, frozen.variables().get("a"));
+   }
+
+   @Test
+   public void testSharedBetweenThreads() throws Exception {
+      EvaluationContext shared = EvaluationContext.withBuiltins().extend().variable("a", 0.5).function(SQUARE).build();
+      Expression expression = Parser.parse("square(sin(a * x)) + cos(x)");
+      ExecutorService executor = Executors.newFixedThreadPool(4);
+      try {
+         List<Future<Double>> results = new ArrayList<>();
+         for (int t = 0; t < 8; t++) {
+            int offset = t;
+            results.add(executor.submit(() -> {
+               EvaluationContext local = shared.child();
+               Expression bound = expression.bind(local);
+               int slot = local.slot("x");
+               double sum = 0;
+               for (int i = 0; i < 1000; i++) {
+                  local.setSlot(slot, offset + i * 0.001);
+                  sum += bound.evaluate(local);
+               }
+               return sum;
+            }));
+         }
+
+         for (int t = 0; t < 8; t++) {
+            double expected = 0;
+            for (int i = 0; i < 1000; i++) {
+               double x = t + i * 0.001, sine = Math.sin(0.5 * x);
+               expected += sine * sine + Math.cos(x);
+            }
+            assertEquals(expected, results.get(t).get(), 1e-9);
+         }
+      } finally {
+         executor.shutdown();
+      }
+      assertFalse(shared.variables().containsKey("x"));
+   }
+}
@@ -0,0 +1,105 @@
+package graphogato.symbolics;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.junit.jupiter.api.Test;
+
+import graphogato.symbolics.Evaluator.Handle;
+import graphogato.symbolics.Evaluator.Tier;
+import graphogato.symbolics.expressions.Expression;
+
+public class TestEvaluator {
+   private static EvaluationContext context() {
+      EvaluationContext context = new EvaluationContext();
+      Builtins.install(context);
+      context.variables().put("a", 1.5);
+      return context;
+   }
+
+   private static double evaluate(Handle handle, double x, double y) {
+      return handle.applyAsDouble(new double[] { x, y });
+   }
+
+   @Test
+   public void testPromotion() {
+      EvaluationContext context = context();
+      Expression expression = Parser.parse("sin(x) * a + max(x, y)^2 / (1 + y^2)");
+      // promotions run right away on the evaluating thread
+      Handle handle = new Evaluator(Runnable::run, 10, 100).prepare(expression, context, "x", "y");
+      assertEquals(Tier.INTERPRETER, handle.tier());
+
+      for (int i = 0; i < 200; i++) {
+         double x = i * 0.1 - 10, y = i * 0.05;
+         context.variables().put("x", x);
+         context.variables().put("y", y);
+         assertEquals(Double.doubleToRawLongBits(expression.evaluate(context)),
+               Double.doubleToRawLongBits(evaluate(handle, x, y)), "at " + i + " in " + handle.tier());
+
+         Tier expected = (i + 1 < 10) ? Tier.INTERPRETER : (i + 1 < 100) ? Tier.PROGRAM : Tier.COMPILED;
+         assertEquals(expected, handle.tier(), "after " + (i + 1));
+      }
+      assertEquals(200, handle.invocations());
+   }
+
+   @Test
+   public void testThresholds() {
+      Expression expression = Parser.parse("x * y");
+      // a compile threshold below the program threshold skips programs
+      Handle skipped = new Evaluator(Runnable::run, 50, 5).prepare(expression, context(), "x", "y");
+      for (int i = 0; i < 5; i++)
+         evaluate(skipped, i, 2);
+      assertEquals(Tier.COMPILED, skipped.tier());
+
+      Handle interpreted = new Evaluator(Runnable::run, Long.MAX_VALUE, Long.MAX_VALUE)
+            .prepare(expression, context(), "x", "y");
+      for (int i = 0; i < 1000; i++)
+         assertEquals(i * 2.0, evaluate(interpreted, i, 2));
+      assertEquals(Tier.INTERPRETER, interpreted.tier());
+
+      assertThrows(IllegalArgumentException.class, () -> new Evaluator(Runnable::run, -1, 5));
+   }
+
+   @Test
+   public void testBackground() throws InterruptedException {
+      ExecutorService executor = Executors.newSingleThreadExecutor();
+      try {
+         Handle handle = new Evaluator(executor, 100, 1000)
+               .prepare(Parser.parse("a * x + y"), context(), "x", "y");
+         long deadline = System.nanoTime() + 10_000_000_000L;
+         int i = 0;
+         while (handle.tier() != Tier.COMPILED && System.nanoTime() < deadline) {
+            assertEquals(1.5 * i + 1, evaluate(handle, i, 1));
+            i++;
+         }
+         assertEquals(Tier.COMPILED, handle.tier());
+         assertEquals(1.5 * 3 + 1, evaluate(handle, 3, 1));
+      } finally {
+         executor.shutdown();
+      }
+   }
+
+   @Test
+   public void testErrors() {
+      Evaluator evaluator = new Evaluator(Runnable::run, 1, 2);
+      EvaluationContext context = context();
+      assertThrows(IllegalStateException.class, () -> evaluator.prepare(Parser.parse("x + z"), context, "x"));
+      assertThrows(IllegalArgumentException.class, () -> evaluator.prepare(Parser.parse("x"), context, "x", "x"));
+
+      // unknown functions are reported when they're reached, in every tier
+      Handle unknown = evaluator.prepare(Parser.parse("f(x)"), context, "x");
+      for (int i = 0; i < 3; i++)
+         assertThrows(IllegalStateException.class, () -> unknown.applyAsDouble(new double[] { 1 }));
+      assertEquals(Tier.INTERPRETER, unknown.tier());
+
+      // the context can already have slots of its own
+      context.slot("y");
+      context.slot("q");
+      Handle handle = evaluator.prepare(Parser.parse("x - a"), context, "x");
+      for (int i = 0; i < 3; i++)
+         assertEquals(0.5, handle.applyAsDouble(new double[] { 2 }));
+   }
+}
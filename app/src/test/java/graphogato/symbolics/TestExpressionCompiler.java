@@ -0,0 +1,68 @@
+package graphogato.symbolics;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import org.junit.jupiter.api.Test;
+
+import graphogato.symbolics.expressions.Expression;
+
+public class TestExpressionCompiler {
+   private static final String[] testInputs = {
+         "1",
+         "x",
+         "x + y * 2 - 3 / x",
+         "-x ^ 2",
+         "sin(x)^2 + ln(x) * exp(0 - x)",
+         "cos(x * y) / abs(y - 0.5) + sign(x - 1)",
+         "max(x, y) + heaviside(x - y) * pi",
+         "2 ^ x ^ 0.5 - e",
+         "x / 0"
+   };
+   private static final double[] testValues = { -2.5, -1, -0.0, 0, 0.25, 1, 3.7, 100 };
+
+   private static void assertBitIdentical(Expression expression, EvaluationContext context) {
+      CompiledExpression compiled = ExpressionCompiler.compile(expression, context, "x", "y");
+      for (double x : testValues) {
+         for (double y : testValues) {
+            context.variables().put("x", x);
+            context.variables().put("y", y);
+            assertEquals(Double.doubleToRawLongBits(expression.evaluate(context)),
+                  Double.doubleToRawLongBits(compiled.applyAsDouble(new double[] { x, y })),
+                  expression + " at x = " + x + ", y = " + y);
+         }
+      }
+   }
+
+   @Test
+   public void testBuiltins() {
+      EvaluationContext context = new EvaluationContext();
+      Builtins.install(context);
+
+      for (String input : testInputs)
+         assertBitIdentical(Parser.parse(input), context);
+   }
+
+   @Test
+   public void testUserFunctions() {
+      EvaluationContext context = new EvaluationContext();
+      Builtins.install(context);
+      context.functions().put("hypot", new Function("hypot", 2,
+            args -> Math.hypot(args.get(0), args.get(1)), null));
+      // user functions override builtins of the same name
+      context.functions().put("sin", new Function("sin", 1, args -> args.get(0) * 2, null));
+
+      assertBitIdentical(Parser.parse("hypot(x, y) * sin(x) + hypot(sin(y), 1)"), context);
+   }
+
+   @Test
+   public void testUnknownNames() {
+      EvaluationContext context = new EvaluationContext();
+      Builtins.install(context);
+
+      assertThrows(IllegalStateException.class,
+            () -> ExpressionCompiler.compile(Parser.parse("x + z"), context, "x"));
+      assertThrows(IllegalStateException.class,
+            () -> ExpressionCompiler.compile(Parser.parse("floor(x)"), context, "x"));
+   }
+}
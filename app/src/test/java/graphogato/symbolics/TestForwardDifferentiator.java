@@ -0,0 +1,56 @@
+package graphogato.symbolics;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import org.junit.jupiter.api.Test;
+
+import graphogato.symbolics.expressions.Expression;
+
+public class TestForwardDifferentiator {
+   private static final String[] testInputs = {
+         "3",
+         "x * a",
+         "x^3 - 2 * x^2 + x / 5",
+         "sin(x)^2 + ln(x) * exp(0 - x)",
+         "cos(x * a) / (x + 1)",
+         "x ^ x",
+         "2 ^ sin(x)",
+         "abs(x - 1) * exp(x / 2)"
+   };
+
+   @Test
+   public void testMatchesSymbolicDerivatives() {
+      EvaluationContext context = new EvaluationContext();
+      Builtins.install(context);
+      context.variables().put("a", 0.75);
+
+      for (String input : testInputs) {
+         Expression expression = Parser.parse(input);
+         Expression first = expression.differentiate("x").simplify();
+         Expression second = first.differentiate("x").simplify();
+
+         for (double x = 0.125; x < 4; x += 0.25) {
+            context.variables().put("x", x);
+            Dual dual = ForwardDifferentiator.evaluate(expression, context, "x");
+            String message = input + " at x = " + x;
+            assertEquals(expression.evaluate(context), dual.value(), message);
+            assertEquals(first.evaluate(context), dual.first(), 1e-9 * Math.max(1, Math.abs(dual.first())), message);
+            assertEquals(second.evaluate(context), dual.second(), 1e-9 * Math.max(1, Math.abs(dual.second())),
+                  message);
+         }
+      }
+   }
+
+   @Test
+   public void testMissingNumericDerivative() {
+      EvaluationContext context = new EvaluationContext();
+      context.variables().put("x", 1.0);
+      context.functions().put("twice", Function.unary("twice", x -> 2 * x, null));
+
+      // arguments that don't depend on the variable don't need a derivative
+      assertEquals(new Dual(2, 0, 0), ForwardDifferentiator.evaluate(Parser.parse("twice(1)"), context, "x"));
+      assertThrows(UnsupportedOperationException.class,
+            () -> ForwardDifferentiator.evaluate(Parser.parse("twice(x)"), context, "x"));
+   }
+}
@@ -0,0 +1,43 @@
+package graphogato.symbolics;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import graphogato.symbolics.expressions.Variable;
+
+public class TestFunction {
+   @Test
+   public void testPrimitiveShapes() {
+      Function sin = Builtins.get("sin");
+      assertNotNull(sin.unaryEvaluator);
+      assertNull(sin.binaryEvaluator);
+      assertEquals(Math.sin(0.5), sin.evaluator.apply(List.of(0.5)));
+      assertEquals(Math.sin(0.5), sin.variadicEvaluator.applyAsDouble(new double[] { 0.5 }));
+
+      Function max = Builtins.get("max");
+      assertNotNull(max.binaryEvaluator);
+      assertEquals(3.0, max.evaluator.apply(List.of(3.0, -1.0)));
+      assertEquals(3.0, max.variadicEvaluator.applyAsDouble(new double[] { -1, 3 }));
+   }
+
+   @Test
+   public void testUserFunctions() {
+      EvaluationContext context = new EvaluationContext();
+      context.variables().put("x", 2.0);
+      context.functions().put("twice", new Function("twice", 1, args -> args.get(0) * 2, null));
+      context.functions().put("sum", Function.variadic("sum", -1, args -> {
+         double total = 0;
+         for (double arg : args)
+            total += arg;
+         return total;
+      }, null));
+
+      assertEquals(4.0, Symbolics.call("twice", new Variable("x")).evaluate(context));
+      assertEquals(10.0, Parser.parse("sum(x, 3, twice(x) + 1)").evaluate(context));
+   }
+}
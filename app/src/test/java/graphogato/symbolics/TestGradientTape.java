@@ -0,0 +1,103 @@
+package graphogato.symbolics;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import graphogato.symbolics.expressions.Expression;
+
+public class TestGradientTape {
+   private static final String[] testInputs = {
+         "3",
+         "x * y",
+         "x^3 - 2 * x * y^2 + z / 5",
+         "sin(x * y)^2 + ln(z) * exp(0 - x)",
+         "cos(x * z) / (y + 1)",
+         "x ^ y",
+         "x * abs(z - 1) + exp(y / 2)",
+         "(x + y) * (x + y) - x * y * z"
+   };
+
+   @Test
+   public void testMatchesSymbolicGradient() {
+      EvaluationContext context = new EvaluationContext();
+      Builtins.install(context);
+      context.variables().put("x", 1.0);
+      context.variables().put("y", 1.0);
+      context.variables().put("z", 1.0);
+
+      for (String input : testInputs) {
+         Expression expression = Parser.parse(input);
+         GradientTape tape = GradientTape.record(expression, context);
+         List<String> variables = tape.variables();
+         double[] gradient = new double[variables.size()];
+
+         for (double t = 0.125; t < 3; t += 0.375) {
+            context.variables().put("x", t);
+            context.variables().put("y", 2.5 - t / 2);
+            context.variables().put("z", 0.5 + t * t);
+
+            double value = tape.evaluate(context, gradient);
+            String message = input + " at t = " + t;
+            assertEquals(expression.evaluate(context), value, message);
+            for (int i = 0; i < variables.size(); i++) {
+               double expected = expression.differentiate(variables.get(i)).simplify().evaluate(context);
+               assertEquals(expected, gradient[i], 1e-9 * Math.max(1, Math.abs(expected)),
+                     message + " d/d" + variables.get(i));
+            }
+         }
+      }
+   }
+
+   @Test
+   public void testVariablesAndPoints() {
+      EvaluationContext context = new EvaluationContext();
+      Builtins.install(context);
+      context.variables().put("a", 2.0);
+
+      // variables of the expression that aren't in the context are appended
+      GradientTape tape = GradientTape.record(Parser.parse("a * b + b"), context);
+      assertEquals(List.of("a", "b"), tape.variables());
+
+      double[] gradient = new double[2];
+      assertEquals(10, tape.evaluate(new double[] { 3, 2.5 }, gradient));
+      assertEquals(2.5, gradient[0]);
+      assertEquals(4, gradient[1]);
+
+      assertThrows(IllegalArgumentException.class, () -> tape.evaluate(new double[1], gradient));
+      assertThrows(IllegalStateException.class, () -> tape.evaluate(context, gradient));
+   }
+
+   @Test
+   public void testMissingNumericDerivative() {
+      EvaluationContext context = new EvaluationContext();
+      context.variables().put("x", 1.0);
+      context.functions().put("twice", Function.unary("twice", x -> 2 * x, null));
+
+      double[] gradient = new double[1];
+      assertEquals(2, GradientTape.record(Parser.parse("twice(1) * x"), context).evaluate(context, gradient));
+      assertEquals(2, gradient[0]);
+      assertThrows(UnsupportedOperationException.class,
+            () -> GradientTape.record(Parser.parse("twice(x)"), context).evaluate(context, gradient));
+   }
+
+   @Test
+   public void testSignedZeros() {
+      EvaluationContext context = new EvaluationContext();
+      context.variables().put("x", 1.0);
+
+      // x * 0 and x * -0 are equal as nodes, but 1 / (x * 0) and 1 / (x * -0)
+      // are infinities of opposite signs
+      Expression expression = Symbolics.add(
+            Symbolics.div(Symbolics.ONE, Symbolics.mul(Symbolics.variable("x"), Symbolics.constant(0.0))),
+            Symbolics.div(Symbolics.ONE, Symbolics.mul(Symbolics.variable("x"), Symbolics.constant(-0.0))));
+      GradientTape tape = GradientTape.record(expression, context);
+
+      double[] gradient = new double[1];
+      assertEquals(expression.evaluate(context), tape.evaluate(context, gradient));
+      assertEquals(expression.differentiate("x").evaluate(context), gradient[0]);
+   }
+}
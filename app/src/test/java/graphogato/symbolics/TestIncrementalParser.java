@@ -0,0 +1,99 @@
+package graphogato.symbolics;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import graphogato.symbolics.expressions.Expression;
+
+public class TestIncrementalParser {
+   private static final String[] INPUTS = {
+         "sin(x)^2 + ln(x) * exp(-x)",
+         "max(x, 2e-3) - (x + 1) / (x - 1) + 2.5E2 * cos(x^2)",
+         "1 * sin(x * 2) ^ 2 / (x + 1.5) + 2 * sin(x * 3) ^ 2 / (x + 2.5) - -x"
+   };
+
+   /**
+    * Check that an edit gives the same result, or the same kind of failure, as
+    * parsing the edited input from scratch.
+    */
+   private static void assertEdit(IncrementalParser parser, int offset, int removed, String inserted) {
+      String text = parser.text();
+      String edited = text.substring(0, offset) + inserted + text.substring(offset + removed);
+
+      Expression expected;
+      try {
+         expected = Parser.parse(edited);
+      } catch (RuntimeException e) {
+         assertThrows(e.getClass(), () -> parser.edit(offset, removed, inserted), edited);
+         assertEquals(edited, parser.text());
+         return;
+      }
+      assertEquals(expected, parser.edit(offset, removed, inserted), edited);
+   }
+
+   @Test
+   public void testTyping() {
+      for (String input : INPUTS) {
+         IncrementalParser parser = new IncrementalParser();
+         assertThrows(IllegalStateException.class, () -> parser.parse(""));
+         for (int i = 0; i < input.length(); i++)
+            assertEdit(parser, i, 0, input.substring(i, i + 1));
+         assertEquals(input, parser.text());
+
+         // and back out again, from the front
+         while (!parser.text().isEmpty())
+            assertEdit(parser, 0, 1, "");
+      }
+   }
+
+   @Test
+   public void testRandomEdits() {
+      Random random = new Random(14);
+      String pieces = "x1.e()+-*/^, ";
+      for (String input : INPUTS) {
+         IncrementalParser parser = new IncrementalParser();
+         parser.parse(input);
+         for (int i = 0; i < 2000; i++) {
+            int length = parser.text().length();
+            int offset = random.nextInt(length + 1);
+            int removed = random.nextInt(Math.min(3, length - offset) + 1);
+            StringBuilder inserted = new StringBuilder();
+            for (int k = random.nextInt(3); k > 0; k--)
+               inserted.append(pieces.charAt(random.nextInt(pieces.length())));
+
+            assertEdit(parser, offset, removed, inserted.toString());
+            // keep the input from drifting too far from something that parses
+            if (i % 50 == 49)
+               parser.parse(input);
+         }
+      }
+   }
+
+   @Test
+   public void testReuse() {
+      IncrementalParser parser = new IncrementalParser();
+      Expression before = parser.parse("sin(x)^2 + ln(x + 1) * 3 + cos(x)");
+
+      // editing the last term reuses the first two
+      Expression after = parser.edit(31, 1, "y");
+      assertEquals(Parser.parse("sin(x)^2 + ln(x + 1) * 3 + cos(y)"), after);
+      assertEquals(2, parser.reused());
+
+      // and editing inside a group reuses the terms around it
+      parser.edit(18, 1, "2");
+      assertEquals("sin(x)^2 + ln(x + 2) * 3 + cos(y)", parser.text());
+      assertTrue(parser.reused() >= 3);
+
+      // a term isn't reused if the edit extends it
+      assertEquals(Parser.parse("sin(x)^2 + ln(x + 2) * 3 + cos(y)^2"), parser.edit(33, 0, "^2"));
+      assertSame(parser.parse("sin(x)^2 + ln(x + 1) * 3 + cos(x)"), before);
+
+      assertThrows(IllegalArgumentException.class, () -> parser.edit(40, 0, "x"));
+   }
+}
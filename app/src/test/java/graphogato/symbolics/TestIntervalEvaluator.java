@@ -0,0 +1,112 @@
+package graphogato.symbolics;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import graphogato.symbolics.expressions.Expression;
+
+public class TestIntervalEvaluator {
+   private static final String[] INPUTS = {
+         "x^2 - 3 * x + 1",
+         "sin(x) * cos(2 * x) + exp(-x^2)",
+         "1 / (x - 0.5) + ln(x)",
+         "abs(x)^0.5 - max(x, sign(x - 1)) / (x^3 + 2)",
+         "heaviside(sin(3 * x)) * x^-2",
+         "(x + 2)^x - cos(x^2) / (1 + x^4)"
+   };
+
+   private static EvaluationContext context() {
+      EvaluationContext context = new EvaluationContext();
+      Builtins.install(context);
+      return context;
+   }
+
+   private static Interval evaluate(String input, double lo, double hi) {
+      return IntervalEvaluator.evaluate(Parser.parse(input), context(), Map.of("x", new Interval(lo, hi)));
+   }
+
+   @Test
+   public void testArithmetic() {
+      Interval x = new Interval(-1, 2);
+      assertTrue(x.add(x).contains(4) && x.add(x).contains(-2));
+      assertTrue(x.multiply(x).contains(-2) && x.multiply(x).contains(4) && !x.multiply(x).contains(4.1));
+      assertEquals(Interval.ENTIRE, Interval.of(1).divide(x));
+
+      // dividing by an interval ending at 0 gives a ray
+      Interval ray = Interval.of(1).divide(new Interval(0, 2));
+      assertEquals(Double.POSITIVE_INFINITY, ray.hi());
+      assertTrue(ray.contains(0.5) && !ray.contains(0.49));
+      assertEquals(Interval.EMPTY, Interval.of(0).divide(Interval.of(0)));
+
+      // even powers are never negative, and negative bases need integer exponents
+      assertEquals(0, x.pow(Interval.of(2)).lo());
+      assertTrue(x.pow(Interval.of(3)).contains(-1));
+      assertEquals(Interval.EMPTY, new Interval(-2, -1).pow(Interval.of(0.5)));
+      assertEquals(0, x.pow(Interval.of(0.5)).lo());
+      assertEquals(Interval.of(1), Interval.EMPTY.pow(Interval.of(0)));
+
+      assertThrows(IllegalArgumentException.class, () -> new Interval(1, 0));
+   }
+
+   @Test
+   public void testBuiltins() {
+      // sin reaches its maximum inside [1, 2]
+      Interval sine = evaluate("sin(x)", 1, 2);
+      assertTrue(sine.contains(1) && sine.lo() <= Math.sin(1) && sine.lo() > 0.8);
+      assertEquals(new Interval(-1, 1), evaluate("cos(x)", -10, 10));
+      assertTrue(evaluate("cos(x)", 0.5, 1).hi() < 0.9);
+
+      // ln is only bounded where it's defined
+      assertEquals(Interval.EMPTY, evaluate("ln(x)", -2, -1));
+      Interval ln = evaluate("ln(x)", -1, Math.E);
+      assertEquals(Double.NEGATIVE_INFINITY, ln.lo());
+      assertTrue(ln.contains(1) && ln.hi() < 1.0001);
+
+      assertEquals(0, evaluate("abs(x)", -3, 2).lo());
+      assertTrue(evaluate("exp(x)", -800, -700).lo() >= 0);
+      assertEquals(1, evaluate("max(x, 1)", -5, 0.5).hi());
+   }
+
+   @Test
+   public void testContainsEveryPoint() {
+      Random random = new Random(16);
+      EvaluationContext context = context();
+      for (String input : INPUTS) {
+         Expression expression = Parser.parse(input);
+         for (int i = 0; i < 300; i++) {
+            double lo = random.nextDouble() * 8 - 4, hi = lo + random.nextDouble() * (i % 3 == 0 ? 4 : 0.1);
+            Interval range = IntervalEvaluator.evaluate(expression, context, Map.of("x", new Interval(lo, hi)));
+
+            for (int k = 0; k <= 20; k++) {
+               double x = Math.min(lo + (hi - lo) * k / 20, hi);
+               context.variables().put("x", x);
+               double value = expression.evaluate(context);
+               if (!Double.isNaN(value))
+                  assertTrue(range.contains(value), input + " at " + x + ": " + value + " not in " + range);
+            }
+         }
+      }
+   }
+
+   @Test
+   public void testOtherVariablesAndFunctions() {
+      EvaluationContext context = context();
+      context.variables().put("a", 2.0);
+      Interval range = IntervalEvaluator.evaluate(Parser.parse("a * x"), context, Map.of("x", new Interval(0, 1)));
+      assertTrue(range.contains(0) && range.contains(2) && range.hi() < 2.001);
+
+      context.functions().put("f", Function.unary("f", x -> x + 1, (args, var) -> Symbolics.ONE));
+      assertEquals(Interval.of(3), IntervalEvaluator.evaluate(Parser.parse("f(a)"), context, Map.of()));
+      assertThrows(UnsupportedOperationException.class,
+            () -> IntervalEvaluator.evaluate(Parser.parse("f(x)"), context, Map.of("x", new Interval(0, 1))));
+      assertThrows(IllegalStateException.class, () -> IntervalEvaluator.evaluate(
+            NodeFactory.call("g", List.of(NodeFactory.variable("x"))), context, Map.of("x", Interval.of(1))));
+   }
+}
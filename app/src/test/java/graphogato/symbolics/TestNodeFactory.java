@@ -0,0 +1,53 @@
+package graphogato.symbolics;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import org.junit.jupiter.api.Test;
+
+import graphogato.symbolics.expressions.BinaryOperation;
+import graphogato.symbolics.expressions.BinaryOperation.BinaryOperator;
+import graphogato.symbolics.expressions.Constant;
+import graphogato.symbolics.expressions.Expression;
+import graphogato.symbolics.expressions.Variable;
+
+public class TestNodeFactory {
+   @Test
+   public void testInterning() {
+      Variable x = Symbolics.variable("x");
+      assertSame(x, Symbolics.variable("x"));
+      assertSame(Symbolics.ONE, Symbolics.constant(1));
+
+      Expression first = Symbolics.add(Symbolics.call("sin", x), Symbolics.pow(x, Symbolics.constant(2)));
+      Expression second = Symbolics.add(Symbolics.call("sin", Symbolics.variable("x")),
+            Symbolics.pow(Symbolics.variable("x"), Symbolics.constant(2)));
+      assertSame(first, second);
+
+      // the parser builds its trees through the factory too
+      assertSame(first, Parser.parse("sin(x) + x^2"));
+
+      // 0 and -0 are equal but not interchangeable
+      assertNotSame(Symbolics.constant(0.0), Symbolics.constant(-0.0));
+   }
+
+   @Test
+   public void testStructuralHash() {
+      Expression x = new Variable("x");
+      Expression two = new Constant(2);
+
+      // commutative operations are equal in either order, so their hashes must be
+      BinaryOperation product = new BinaryOperation(BinaryOperator.MULTIPLY, x, two);
+      BinaryOperation swapped = new BinaryOperation(BinaryOperator.MULTIPLY, two, x);
+      assertEquals(product, swapped);
+      assertEquals(product.hashCode(), swapped.hashCode());
+
+      assertEquals(new Constant(0.0).hashCode(), new Constant(-0.0).hashCode());
+      assertEquals(Parser.parse("ln(x) / x").hashCode(),
+            new BinaryOperation(BinaryOperator.DIVIDE, Symbolics.call("ln", x), x).hashCode());
+
+      // operands that are equal to each other
+      BinaryOperation square = new BinaryOperation(BinaryOperator.MULTIPLY, x, x);
+      assertEquals(square, Symbolics.mul(x, x));
+   }
+}
@@ -0,0 +1,87 @@
+package graphogato.symbolics;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.stream.IntStream;
+
+import org.junit.jupiter.api.Test;
+
+import graphogato.symbolics.expressions.Expression;
+
+public class TestParseCache {
+   @Test
+   public void testNormalize() {
+      assertEquals("sin(x)+1", ParseCache.normalize("  sin( x ) +\t1 "));
+      assertEquals(ParseCache.normalize("x^2*ln(x)"), ParseCache.normalize("x ^ 2 * ln (x)"));
+      // spaces between tokens that would otherwise merge are kept
+      assertEquals("2 3", ParseCache.normalize("2   3"));
+      assertNotEquals(ParseCache.normalize("a b"), ParseCache.normalize("ab"));
+      // and so are spaces that keep a sign or digits out of an exponent
+      assertEquals("1e -5", ParseCache.normalize("1e -5"));
+      assertEquals("2e -1", ParseCache.normalize("2e - 1"));
+      assertEquals("1e- 5", ParseCache.normalize("1e- 5"));
+      assertEquals("1e-5+x", ParseCache.normalize("1e-5 + x"));
+      assertEquals("xe-5", ParseCache.normalize("xe - 5"));
+   }
+
+   @Test
+   public void testExponents() {
+      ParseCache cache = new ParseCache();
+      for (String input : new String[] { "1e -5", "2e - 1", "1e- 5", "3E +2", "1.e -1" }) {
+         assertThrows(IllegalStateException.class, () -> Parser.parse(input), input);
+         assertThrows(IllegalStateException.class, () -> cache.parse(input), input);
+      }
+      assertEquals(Parser.parse("1e-5 + 2E+3 * x"), cache.parse("1e-5 + 2E+3 * x"));
+      assertEquals(Parser.parse("e - 1"), cache.parse("e - 1"));
+   }
+
+   @Test
+   public void testHitsAndMisses() {
+      ParseCache cache = new ParseCache();
+      Expression first = cache.parse("sin(x)^2 + 1");
+      Expression second = cache.parse("sin(x) ^ 2+1");
+
+      assertSame(first, second);
+      assertEquals(Parser.parse("sin(x)^2 + 1"), first);
+      assertEquals(1, cache.hits());
+      assertEquals(1, cache.misses());
+      assertEquals(1, cache.size());
+
+      // inputs that don't parse aren't cached
+      assertThrows(IllegalArgumentException.class, () -> cache.parse("x $ 2"));
+      assertEquals(1, cache.size());
+   }
+
+   @Test
+   public void testEviction() {
+      ParseCache cache = new ParseCache(2);
+      cache.parse("x + 1");
+      cache.parse("x + 2");
+      cache.parse("x + 1"); // "x + 2" is now the least recently used
+      cache.parse("x + 3");
+
+      assertEquals(2, cache.size());
+      assertEquals(1, cache.evictions());
+      cache.parse("x + 1");
+      assertEquals(2, cache.hits());
+      cache.parse("x + 2");
+      assertEquals(4, cache.misses());
+
+      assertThrows(IllegalArgumentException.class, () -> new ParseCache(0));
+   }
+
+   @Test
+   public void testConcurrentParses() {
+      ParseCache cache = new ParseCache(16);
+      IntStream.range(0, 10_000).parallel().forEach(i -> cache.parse("x^" + (i % 32) + " + 1"));
+
+      assertEquals(10_000, cache.hits() + cache.misses());
+      assertEquals(16, cache.size());
+      // threads missing on the same input at once only insert it once
+      assertTrue(cache.evictions() <= cache.misses() - 16);
+   }
+}
@@ -0,0 +1,81 @@
+package graphogato.symbolics;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import graphogato.symbolics.expressions.BinaryOperation.BinaryOperator;
+import graphogato.symbolics.expressions.Expression;
+import graphogato.symbolics.expressions.UnaryOperation.UnaryOperator;
+
+public class TestParser {
+   private static double evaluate(String input, double x) {
+      EvaluationContext context = new EvaluationContext();
+      Builtins.install(context);
+      context.variables().put("x", x);
+      return Parser.parse(input).evaluate(context);
+   }
+
+   @Test
+   public void testPrecedence() {
+      Expression x = NodeFactory.variable("x");
+      assertEquals(NodeFactory.binary(BinaryOperator.ADD, x,
+            NodeFactory.binary(BinaryOperator.MULTIPLY, NodeFactory.constant(2), x)).simplify(),
+            Parser.parse("x + 2 * x"));
+
+      // negation binds tighter than ^, and ^ is right associative
+      assertEquals(NodeFactory.binary(BinaryOperator.EXPONENTIATE, NodeFactory.unary(UnaryOperator.NEGATE, x),
+            NodeFactory.constant(2)).simplify(), Parser.parse("-x^2"));
+      assertEquals(512, evaluate("2^3^2", 0));
+      assertEquals(1, evaluate("8 - 4 - 3", 0));
+      assertEquals(1, evaluate("8 / 4 / 2", 0));
+   }
+
+   @Test
+   public void testNegation() {
+      assertEquals(NodeFactory.unary(UnaryOperator.NEGATE, NodeFactory.variable("x")).simplify(),
+            Parser.parse("(-x)"));
+      assertEquals(Math.exp(-2), evaluate("exp(-x)", 2), 1e-12);
+      assertEquals(3, evaluate("max(-x, 3)", 2));
+      assertEquals(2, evaluate("--x", 2));
+   }
+
+   @Test
+   public void testNumbers() {
+      assertEquals(1e-9, evaluate("1e-9", 0));
+      assertEquals(2500, evaluate("2.5E3", 0));
+      assertEquals(0.5, evaluate(".5", 0));
+      assertEquals(1e300, evaluate("1e+300", 0));
+      assertEquals(0.1 + 0.2, evaluate("0.1 + 0.2", 0));
+      assertEquals(Double.parseDouble("3.14159265358979323846"), evaluate("3.14159265358979323846", 0));
+      // without digits after it, e is the constant
+      assertEquals(2 * Math.E, evaluate("2 * e", 0));
+      assertEquals(Math.PI, evaluate("pi", 0));
+   }
+
+   @Test
+   public void testCalls() {
+      Expression x = NodeFactory.variable("x");
+      assertEquals(NodeFactory.call("sin", List.of(x)), Parser.parse("sin (x)"));
+      assertEquals(NodeFactory.call("max", List.of(x, NodeFactory.constant(1))), Parser.parse("max(x, 1)"));
+      assertEquals(NodeFactory.call("f", List.of()), Parser.parse("f()"));
+      assertEquals(Math.sin(1) * 2, evaluate("2 * sin(cos(0) * x)", 1), 1e-12);
+   }
+
+   @Test
+   public void testErrors() {
+      assertThrows(IllegalArgumentException.class, () -> Parser.parse("x $ 2"));
+      assertThrows(IllegalArgumentException.class, () -> Parser.parse("(x + 1"));
+      assertThrows(IllegalArgumentException.class, () -> Parser.parse("x + 1)"));
+      assertThrows(IllegalArgumentException.class, () -> Parser.parse("x, 1"));
+      assertThrows(IllegalArgumentException.class, () -> Parser.parse("(x, 1)"));
+      assertThrows(IllegalArgumentException.class, () -> Parser.parse("sin(x"));
+      assertThrows(IllegalArgumentException.class, () -> Parser.parse("1.2.3"));
+      assertThrows(IllegalStateException.class, () -> Parser.parse(""));
+      assertThrows(IllegalStateException.class, () -> Parser.parse("x +"));
+      assertThrows(IllegalStateException.class, () -> Parser.parse("x y"));
+   }
+}
@@ -0,0 +1,90 @@
+package graphogato.symbolics;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import org.junit.jupiter.api.Test;
+
+import graphogato.symbolics.expressions.Expression;
+
+public class TestProgram {
+   private static final String[] testInputs = {
+         "1",
+         "x",
+         "x + y * 2 - 3 / x",
+         "-x ^ 2",
+         "sin(x)^2 + ln(x) * exp(0 - x)",
+         "cos(x * y) / abs(y - 0.5) + sign(x - 1)",
+         "max(x, y) + heaviside(x - y) * pi",
+         "2 ^ x ^ 0.5 - e",
+         "x / 0"
+   };
+   private static final double[] testValues = { -2.5, -1, -0.0, 0, 0.25, 1, 3.7, 100 };
+
+   private static void assertBitIdentical(Expression expression, EvaluationContext context) {
+      Program program = Program.compile(expression, context, "x", "y");
+      for (double x : testValues) {
+         for (double y : testValues) {
+            context.variables().put("x", x);
+            context.variables().put("y", y);
+            assertEquals(Double.doubleToRawLongBits(expression.evaluate(context)),
+                  Double.doubleToRawLongBits(program.applyAsDouble(new double[] { x, y })),
+                  expression + " at x = " + x + ", y = " + y);
+         }
+      }
+   }
+
+   @Test
+   public void testBuiltins() {
+      EvaluationContext context = new EvaluationContext();
+      Builtins.install(context);
+
+      for (String input : testInputs)
+         assertBitIdentical(Parser.parse(input), context);
+   }
+
+   @Test
+   public void testUserFunctions() {
+      EvaluationContext context = new EvaluationContext();
+      Builtins.install(context);
+      context.functions().put("hypot", new Function("hypot", 2,
+            args -> Math.hypot(args.get(0), args.get(1)), null));
+      context.functions().put("sum3", Function.variadic("sum3", 3, args -> args[0] + args[1] + args[2],
+            (args, var) -> Symbolics.ONE));
+      context.functions().put("half", Function.unary("half", x -> x / 2, (args, var) -> Symbolics.ONE));
+      context.functions().put("one", Function.variadic("one", 0, args -> 1, (args, var) -> Symbolics.ZERO));
+      // user functions override builtins of the same name
+      context.functions().put("sin", new Function("sin", 1, args -> args.get(0) * 2, null));
+
+      assertBitIdentical(Parser.parse("hypot(x, y) * sin(x) + hypot(sin(y), 1)"), context);
+      assertBitIdentical(Parser.parse("sum3(x, half(y), sum3(1, x, y)) - one() * half(one())"), context);
+   }
+
+   @Test
+   public void testStack() {
+      EvaluationContext context = new EvaluationContext();
+      Builtins.install(context);
+      // a right-leaning chain needs a deeper stack than a left-leaning one
+      Program left = Program.compile(Parser.parse("x + x + x + x + x"), context, "x");
+      Program right = Program.compile(Parser.parse("x + (x + (x + (x + x)))"), context, "x");
+      assertEquals(2, left.stackSize());
+      assertEquals(5, right.stackSize());
+      assertEquals(left.size(), right.size());
+
+      // programs can run on a caller's stack
+      double[] stack = new double[right.stackSize()];
+      assertEquals(10, right.applyAsDouble(new double[] { 2 }, stack));
+      assertArrayEquals(new String[] { "x" }, right.variables());
+   }
+
+   @Test
+   public void testUnknownNames() {
+      EvaluationContext context = new EvaluationContext();
+      Builtins.install(context);
+
+      assertThrows(IllegalStateException.class, () -> Program.compile(Parser.parse("x + z"), context, "x"));
+      assertThrows(IllegalStateException.class, () -> Program.compile(Parser.parse("floor(x)"), context, "x"));
+      assertThrows(IllegalStateException.class, () -> Program.compile(Parser.parse("max(x)"), context, "x"));
+   }
+}
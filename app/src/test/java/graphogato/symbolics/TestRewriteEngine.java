@@ -0,0 +1,61 @@
+package graphogato.symbolics;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import org.junit.jupiter.api.Test;
+
+import graphogato.symbolics.expressions.BinaryOperation;
+import graphogato.symbolics.expressions.Expression;
+
+public class TestRewriteEngine {
+   private static final String[][] testRewrites = {
+         { "0 + x", "x" },
+         { "x + 0", "x" },
+         { "x - 0", "x" },
+         { "0 * x", "0" },
+         { "x * 0", "0" },
+         { "1 * x", "x" },
+         { "x * 1", "x" },
+         { "3 * (1 / x)", "3 / x" },
+         { "(1 / x) * 3", "3 / x" },
+         { "x * (1 / x)", "1" },
+         { "(1 / x) * x", "1" },
+         { "x^3 * (1 / x)", "x^2" },
+         { "(1 / x) * x^3", "x^2" },
+         { "x^1 * (1 / x)", "1" },
+         { "x^2 * x^3", "x^5" },
+         { "x^3 * (2 / x)", "2 * x^2" },
+         { "(2 / x) * x^3", "2 * x^2" },
+         { "0 / x", "0" },
+         { "x / 1", "x" },
+         { "(4 * x) / x", "4" },
+         { "x^3 / x", "x^2" },
+         { "x ^ 1", "x" },
+         { "x ^ 0", "1" },
+         { "1 ^ x", "1" },
+         { "0 ^ x", "0" },
+         { "2 * 3 + x ^ (4 - 3)", "6 + x" },
+         // rewrites are simplified again until nothing matches
+         { "(x^2 * x^(0 - 1)) * 1", "x" }
+   };
+
+   @Test
+   public void testRules() {
+      for (String[] rewrite : testRewrites)
+         assertEquals(Parser.parse(rewrite[1]), Parser.parse(rewrite[0]).simplify(), rewrite[0]);
+   }
+
+   @Test
+   public void testMemoization() {
+      Expression tree = Parser.parse("sin(x)^2 * exp(x) / x");
+      for (int i = 0; i < 3; i++)
+         tree = tree.differentiate("x");
+
+      Expression simplified = tree.simplify();
+      assertSame(simplified, tree.simplify());
+      // simplified trees are already known to be simplified
+      assertSame(simplified, simplified.simplify());
+      assertEquals(Parser.parse("x^5"), RewriteEngine.rewrite((BinaryOperation) Parser.parse("x^2 * x^3")));
+   }
+}
@@ -0,0 +1,97 @@
+package graphogato.symbolics;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+
+import graphogato.symbolics.expressions.Expression;
+
+public class TestSpecializer {
+   private static final String[] testInputs = {
+         "a * x + b",
+         "a * sin(x) + ln(x)^3",
+         "sin(k * pi / 4) * x^2 + exp(b - a) * cos(k * x)",
+         "max(a, b) * x - abs(a - b) / (1 + k^2)",
+         "(a + b) * (a - b) + x * 0 + k"
+   };
+   private static final double[] testValues = { 0.25, 1, 2.5, 7 };
+
+   private static EvaluationContext parameters() {
+      return EvaluationContext.withBuiltins().extend()
+            .variable("pi", Math.PI)
+            .variable("a", 1.5)
+            .variable("b", -0.75)
+            .variable("k", 3)
+            .build();
+   }
+
+   @Test
+   public void testMatchesEvaluate() {
+      EvaluationContext parameters = parameters();
+      for (String input : testInputs) {
+         Expression expression = Parser.parse(input);
+         Expression specialized = Symbolics.specialize(expression, parameters, Set.of("x"));
+
+         // the specialized expression only needs x
+         EvaluationContext full = parameters.child();
+         EvaluationContext free = EvaluationContext.withBuiltins().child();
+         for (double x : testValues) {
+            full.variables().put("x", x);
+            free.variables().put("x", x);
+            double expected = expression.evaluate(full);
+            assertEquals(expected, specialized.evaluate(free), 1e-12 * Math.max(1, Math.abs(expected)),
+                  input + " at x = " + x);
+         }
+      }
+   }
+
+   @Test
+   public void testFolding() {
+      EvaluationContext parameters = parameters();
+      assertEquals(Symbolics.constant(0.5625 * 4 / 3 + 1.5),
+            Symbolics.specialize(Parser.parse("b^2 * 4 / k + a"), parameters, Set.of("x")));
+      // everything but the free variables is folded
+      Expression specialized = Symbolics.specialize(Parser.parse("exp(a * b) * x + sin(k)"), parameters, Set.of("x"));
+      assertEquals(Symbolics.add(Symbolics.mul(Symbolics.constant(Math.exp(1.5 * -0.75)), Symbolics.variable("x")),
+            Symbolics.constant(Math.sin(3))), specialized);
+
+      // unknown functions are left in, and missing parameters are reported
+      assertEquals("f(2)", Symbolics.specialize(Parser.parse("f(a + 0.5)"), parameters, Set.of("x")).toString());
+      assertThrows(IllegalStateException.class,
+            () -> Symbolics.specialize(Parser.parse("z * x"), parameters, Set.of("x")));
+   }
+
+   @Test
+   public void testCache() {
+      Specializer specializer = new Specializer(2);
+      Expression expression = Parser.parse("a * sin(x) + ln(k)^3");
+      EvaluationContext parameters = parameters();
+
+      Expression first = specializer.specialize(expression, parameters, Set.of("x"));
+      // an unrelated variable changing still hits
+      Expression second = specializer.specialize(expression, parameters.extend().variable("b", 9).build(),
+            Set.of("x"));
+      assertSame(first, second);
+      assertEquals(1, specializer.hits());
+      assertEquals(1, specializer.misses());
+
+      // a parameter changing, or a function being redefined, misses
+      Expression moved = specializer.specialize(expression, parameters.extend().variable("a", 2).build(),
+            Set.of("x"));
+      assertNotSame(first, moved);
+      specializer.specialize(expression, parameters.extend()
+            .function(Function.unary("ln", x -> 0, null)).build(), Set.of("x"));
+      assertEquals(3, specializer.misses());
+      assertEquals(2, specializer.size());
+      assertEquals(1, specializer.evictions());
+
+      specializer.clear();
+      assertEquals(0, specializer.size());
+      assertThrows(IllegalArgumentException.class, () -> new Specializer(0));
+   }
+}
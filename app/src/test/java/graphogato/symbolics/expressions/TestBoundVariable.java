@@ -0,0 +1,58 @@
+package graphogato.symbolics.expressions;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import org.junit.jupiter.api.Test;
+
+import graphogato.symbolics.Builtins;
+import graphogato.symbolics.EvaluationContext;
+import graphogato.symbolics.Parser;
+import graphogato.symbolics.Symbolics;
+
+public class TestBoundVariable {
+   @Test
+   public void testBind() {
+      EvaluationContext context = new EvaluationContext();
+      Builtins.install(context);
+      context.variables().put("a", 2.0);
+
+      Expression expression = Parser.parse("a * sin(x) + x ^ 2");
+      Expression bound = expression.bind(context);
+      int x = context.slot("x");
+
+      // the slot of a bound variable starts with its value in the map
+      assertEquals(2.0, context.getSlot(context.slot("a")));
+
+      for (double value = -3; value <= 3; value += 0.25) {
+         context.setSlot(x, value);
+         context.variables().put("x", value);
+         assertEquals(expression.evaluate(context), bound.evaluate(context));
+      }
+   }
+
+   @Test
+   public void testUnsetSlot() {
+      // like the interpreter, a bound variable with no value fails
+      EvaluationContext context = new EvaluationContext();
+      Expression bound = Parser.parse("y + 1").bind(context);
+      assertThrows(IllegalStateException.class, () -> bound.evaluate(context));
+
+      context.setSlot(context.slot("y"), 2);
+      assertEquals(3.0, bound.evaluate(context));
+      // NaN is still a value
+      context.setSlot(context.slot("y"), Double.NaN);
+      assertEquals(Double.NaN, bound.evaluate(context));
+   }
+
+   @Test
+   public void testRebindSameContext() {
+      EvaluationContext context = new EvaluationContext();
+      Expression bound = new Variable("x").bind(context);
+
+      assertSame(bound, bound.bind(context));
+      assertEquals(Symbolics.ONE, bound.differentiate("x"));
+      assertEquals("x", bound.toString());
+   }
+}
@@ -0,0 +1,32 @@
+/*
+ * JMH benchmarks for the symbolics hot paths.
+ *
+ * Run with `./gradlew :benchmarks:jmh`. The gc profiler is always enabled so
+ * allocation rates (gc.alloc.rate.norm) show up next to the timings.
+ */
+
+plugins {
+    java
+    id("me.champeau.jmh") version "0.7.2"
+}
+
+repositories {
+    mavenCentral()
+}
+
+dependencies {
+    jmh(project(":app"))
+}
+
+java {
+    toolchain {
+        languageVersion = JavaLanguageVersion.of(21)
+    }
+}
+
+jmh {
+    jmhVersion = "1.37"
+    profilers = listOf("gc")
+    resultFormat = "JSON"
+    failOnError = true
+}
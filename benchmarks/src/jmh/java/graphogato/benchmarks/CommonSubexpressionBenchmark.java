@@ -0,0 +1,88 @@
+package graphogato.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import graphogato.symbolics.Builtins;
+import graphogato.symbolics.CommonSubexpressionEvaluator;
+import graphogato.symbolics.EvaluationContext;
+import graphogato.symbolics.Parser;
+import graphogato.symbolics.expressions.Expression;
+
+/**
+ * Benchmarks of evaluating third derivatives of nested sin/exp/^ expressions
+ * through the tree and through {@link CommonSubexpressionEvaluator}. Scores are
+ * per sample.
+ *
+ * @author Gavin Borne
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CommonSubexpressionBenchmark {
+   static final int SAMPLES = 10_000;
+
+   @Param({ "sin(exp(x))^2", "exp(sin(x)) ^ x", "sin(x ^ 3) * exp(sin(x))" })
+   public String input;
+
+   EvaluationContext context;
+   Expression derivative;
+   int slot;
+   Expression bound;
+   CommonSubexpressionEvaluator evaluator;
+   double[] xs;
+
+   @Setup
+   public void setup() {
+      context = new EvaluationContext();
+      Builtins.install(context);
+
+      derivative = Parser.parse(input);
+      for (int i = 0; i < 3; i++)
+         derivative = derivative.differentiate("x").simplify();
+      bound = derivative.bind(context);
+      slot = context.slot("x");
+      evaluator = CommonSubexpressionEvaluator.of(bound);
+
+      xs = new double[SAMPLES];
+      for (int i = 0; i < SAMPLES; i++)
+         xs[i] = 0.01 + 2.0 * i / SAMPLES;
+   }
+
+   @Benchmark
+   @OperationsPerInvocation(SAMPLES)
+   public double tree() {
+      double sum = 0;
+      for (double x : xs) {
+         context.setSlot(slot, x);
+         sum += bound.evaluate(context);
+      }
+      return sum;
+   }
+
+   @Benchmark
+   @OperationsPerInvocation(SAMPLES)
+   public double commonSubexpressions() {
+      double sum = 0;
+      for (double x : xs) {
+         context.setSlot(slot, x);
+         sum += evaluator.evaluate(context);
+      }
+      return sum;
+   }
+}
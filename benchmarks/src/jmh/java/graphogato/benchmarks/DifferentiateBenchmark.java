@@ -0,0 +1,61 @@
+package graphogato.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import graphogato.symbolics.Parser;
+import graphogato.symbolics.Symbolics;
+import graphogato.symbolics.expressions.Expression;
+
+/**
+ * Benchmarks of computing nth derivatives with
+ * {@link Expression#differentiate(String)}, simplifying after every order,
+ * against {@link Symbolics#nthDerivative(Expression, String, int)}, which only
+ * differentiates each distinct subtree once.
+ *
+ * @author Gavin Borne
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class DifferentiateBenchmark {
+   @Param({ "sin(x)^2 * exp(x)", "ln(x) * x^4 / cos(x)" })
+   public String input;
+
+   @Param({ "1", "2", "3", "4" })
+   public int order;
+
+   Expression expression;
+
+   @Setup
+   public void setup() {
+      expression = Parser.parse(input);
+   }
+
+   @Benchmark
+   public Expression nthDerivative() {
+      Expression derivative = expression;
+      for (int i = 0; i < order; i++)
+         derivative = derivative.differentiate("x").simplify();
+      return derivative;
+   }
+
+   @Benchmark
+   public Expression cachedNthDerivative() {
+      return Symbolics.nthDerivative(expression, "x", order);
+   }
+}
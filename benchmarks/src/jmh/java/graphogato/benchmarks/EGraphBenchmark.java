@@ -0,0 +1,85 @@
+package graphogato.benchmarks;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import graphogato.symbolics.Builtins;
+import graphogato.symbolics.EGraphSimplifier;
+import graphogato.symbolics.EvaluationContext;
+import graphogato.symbolics.Parser;
+import graphogato.symbolics.expressions.Expression;
+
+/**
+ * Benchmarks of evaluating second derivatives simplified by
+ * {@link Expression#simplify()} and by {@link EGraphSimplifier}. Scores are per
+ * sample.
+ *
+ * @author Gavin Borne
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class EGraphBenchmark {
+   static final int SAMPLES = 10_000;
+
+   @Param({ "sin(x)^2 * exp(x) / x", "x^3 * ln(x) - 2 * x^2 + cos(x^2)" })
+   public String input;
+
+   EvaluationContext context;
+   int slot;
+   Expression greedy;
+   Expression saturated;
+   double[] xs;
+
+   @Setup
+   public void setup() {
+      context = new EvaluationContext();
+      Builtins.install(context);
+
+      Expression derivative = Parser.parse(input).differentiate("x").differentiate("x");
+      greedy = derivative.simplify().bind(context);
+      saturated = new EGraphSimplifier(10_000, 30, Duration.ofSeconds(1)).simplify(derivative).bind(context);
+      slot = context.slot("x");
+
+      xs = new double[SAMPLES];
+      for (int i = 0; i < SAMPLES; i++)
+         xs[i] = 0.01 + 2.0 * i / SAMPLES;
+   }
+
+   @Benchmark
+   @OperationsPerInvocation(SAMPLES)
+   public double greedy() {
+      return sum(greedy);
+   }
+
+   @Benchmark
+   @OperationsPerInvocation(SAMPLES)
+   public double saturated() {
+      return sum(saturated);
+   }
+
+   private double sum(Expression expression) {
+      double sum = 0;
+      for (double x : xs) {
+         context.setSlot(slot, x);
+         sum += expression.evaluate(context);
+      }
+      return sum;
+   }
+}
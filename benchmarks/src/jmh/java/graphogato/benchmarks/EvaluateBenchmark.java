@@ -0,0 +1,124 @@
+package graphogato.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import graphogato.symbolics.BatchEvaluator;
+import graphogato.symbolics.Builtins;
+import graphogato.symbolics.CompiledExpression;
+import graphogato.symbolics.EvaluationContext;
+import graphogato.symbolics.ExpressionCompiler;
+import graphogato.symbolics.Parser;
+import graphogato.symbolics.Program;
+import graphogato.symbolics.expressions.Expression;
+
+/**
+ * Benchmarks of evaluating representative expressions over 1e6 samples, with
+ * every evaluation mode. Scores are per sample.
+ *
+ * @author Gavin Borne
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class EvaluateBenchmark {
+   static final int SAMPLES = 1_000_000;
+
+   @Param({ "sin(x)^2 + ln(x) * exp(0 - x)", "x^3 - 2 * x^2 + x / 5", "max(sin(x), cos(x)) * abs(x - 5)" })
+   public String input;
+
+   Expression expression;
+   EvaluationContext context;
+   Expression bound;
+   int slot;
+   CompiledExpression compiled;
+   Program program;
+   BatchEvaluator batch;
+   double[] xs;
+   double[] out;
+
+   @Setup
+   public void setup() {
+      context = new EvaluationContext();
+      Builtins.install(context);
+      expression = Parser.parse(input);
+      bound = expression.bind(context);
+      slot = context.slot("x");
+      compiled = ExpressionCompiler.compile(expression, context, "x");
+      program = Program.compile(expression, context, "x");
+      batch = new BatchEvaluator();
+
+      xs = new double[SAMPLES];
+      for (int i = 0; i < SAMPLES; i++)
+         xs[i] = 0.001 + 10.0 * i / SAMPLES;
+      out = new double[SAMPLES];
+   }
+
+   @Benchmark
+   @OperationsPerInvocation(SAMPLES)
+   public double tree() {
+      double sum = 0;
+      for (double x : xs) {
+         context.variables().put("x", x);
+         sum += expression.evaluate(context);
+      }
+      return sum;
+   }
+
+   @Benchmark
+   @OperationsPerInvocation(SAMPLES)
+   public double bound() {
+      double sum = 0;
+      for (double x : xs) {
+         context.setSlot(slot, x);
+         sum += bound.evaluate(context);
+      }
+      return sum;
+   }
+
+   @Benchmark
+   @OperationsPerInvocation(SAMPLES)
+   public double compiled() {
+      double[] vars = new double[1];
+      double sum = 0;
+      for (double x : xs) {
+         vars[0] = x;
+         sum += compiled.applyAsDouble(vars);
+      }
+      return sum;
+   }
+
+   @Benchmark
+   @OperationsPerInvocation(SAMPLES)
+   public double program() {
+      double[] vars = new double[1];
+      double sum = 0;
+      for (double x : xs) {
+         vars[0] = x;
+         sum += program.applyAsDouble(vars);
+      }
+      return sum;
+   }
+
+   @Benchmark
+   @OperationsPerInvocation(SAMPLES)
+   public double[] batch() {
+      batch.evaluate(expression, context, "x", xs, out);
+      return out;
+   }
+}
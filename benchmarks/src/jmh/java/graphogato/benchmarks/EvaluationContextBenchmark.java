@@ -0,0 +1,65 @@
+package graphogato.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import graphogato.symbolics.Builtins;
+import graphogato.symbolics.EvaluationContext;
+import graphogato.symbolics.Parser;
+import graphogato.symbolics.expressions.Expression;
+
+/**
+ * Benchmarks of making a scope for one evaluation, like a render thread does
+ * for every tile, from a mutable context that's copied and from a frozen one
+ * that's overlaid.
+ *
+ * @author Gavin Borne
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class EvaluationContextBenchmark {
+   EvaluationContext mutable;
+   EvaluationContext frozen;
+   Expression expression;
+
+   @Setup
+   public void setup() {
+      mutable = new EvaluationContext();
+      Builtins.install(mutable);
+      for (int i = 0; i < 50; i++)
+         mutable.variables().put("a" + i, (double) i);
+      frozen = mutable.freeze();
+      expression = Parser.parse("sin(x)^2 + a7 * exp(0 - x)");
+   }
+
+   private static double evaluate(EvaluationContext context, Expression expression) {
+      EvaluationContext local = context.child();
+      Expression bound = expression.bind(local);
+      local.setSlot(local.slot("x"), 0.5);
+      return bound.evaluate(local);
+   }
+
+   @Benchmark
+   public double childOfMutable() {
+      return evaluate(mutable, expression);
+   }
+
+   @Benchmark
+   public double childOfFrozen() {
+      return evaluate(frozen, expression);
+   }
+}
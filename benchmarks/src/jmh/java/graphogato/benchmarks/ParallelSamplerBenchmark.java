@@ -0,0 +1,99 @@
+package graphogato.benchmarks;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import graphogato.plot.ParallelSampler;
+import graphogato.plot.Viewport;
+import graphogato.symbolics.Builtins;
+import graphogato.symbolics.EvaluationContext;
+import graphogato.symbolics.Parser;
+import graphogato.symbolics.expressions.Expression;
+
+/**
+ * Benchmarks of {@link ParallelSampler} on a 1e6 sample curve and a
+ * 1000 x 1000 heatmap, with pools of different sizes, against a plain loop on
+ * one thread. Scores are per sample, so perfect scaling divides the score of
+ * the loop by the number of threads.
+ *
+ * @author Gavin Borne
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ParallelSamplerBenchmark {
+   static final int SIZE = 1000;
+   static final int SAMPLES = SIZE * SIZE;
+
+   @Param({ "1", "2", "4", "8" })
+   public int threads;
+
+   EvaluationContext context;
+   Expression curve;
+   Expression surface;
+   Viewport viewport;
+   ForkJoinPool pool;
+   ParallelSampler sampler;
+   double[] out;
+
+   @Setup
+   public void setup() {
+      context = new EvaluationContext();
+      Builtins.install(context);
+      curve = Parser.parse("sin(x)^2 + ln(x) * exp(0 - x)");
+      surface = Parser.parse("sin(x * y) + cos(x^2 - y^2) / (1 + x^2 + y^2)");
+      viewport = new Viewport(-4, 4, -4, 4, SIZE, SIZE);
+      pool = new ForkJoinPool(threads);
+      sampler = new ParallelSampler(pool, ParallelSampler.DEFAULT_TILE_SIZE);
+      out = new double[SAMPLES];
+   }
+
+   @TearDown
+   public void tearDown() {
+      pool.shutdown();
+   }
+
+   @Benchmark
+   @OperationsPerInvocation(SAMPLES)
+   public double[] serialCurve() {
+      EvaluationContext local = context.child();
+      Expression bound = curve.bind(local);
+      int slot = local.slot("x");
+      for (int i = 0; i < SAMPLES; i++) {
+         local.setSlot(slot, 0.001 + 10.0 * i / (SAMPLES - 1));
+         out[i] = bound.evaluate(local);
+      }
+      return out;
+   }
+
+   @Benchmark
+   @OperationsPerInvocation(SAMPLES)
+   public double[] parallelCurve() {
+      sampler.sample(curve, context, "x", 0.001, 10.001, out);
+      return out;
+   }
+
+   @Benchmark
+   @OperationsPerInvocation(SAMPLES)
+   public double[] parallelGrid() {
+      sampler.sample(surface, context, "x", "y", viewport, out);
+      return out;
+   }
+}
@@ -0,0 +1,82 @@
+package graphogato.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import graphogato.symbolics.BatchEvaluator;
+import graphogato.symbolics.Builtins;
+import graphogato.symbolics.ColumnCache;
+import graphogato.symbolics.EvaluationContext;
+import graphogato.symbolics.Parser;
+import graphogato.symbolics.expressions.Expression;
+
+/**
+ * Benchmarks of animating a parameter over a fixed grid, evaluating every
+ * frame with {@link BatchEvaluator} against {@link ColumnCache}, which only
+ * recomputes the subtrees that depend on the parameter. Scores are per frame.
+ *
+ * @author Gavin Borne
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ParameterBenchmark {
+   static final int SAMPLES = 1_000;
+
+   @Param({ "a * sin(x) + ln(x)^3", "exp(sin(x)) * cos(x^2) / (1 + x^2) + a * x" })
+   public String input;
+
+   EvaluationContext context;
+   Expression expression;
+   BatchEvaluator batch;
+   ColumnCache cache;
+   double[] xs;
+   double[] out;
+   int frame;
+
+   @Setup
+   public void setup() {
+      context = new EvaluationContext();
+      Builtins.install(context);
+      expression = Parser.parse(input);
+
+      xs = new double[SAMPLES];
+      for (int i = 0; i < SAMPLES; i++)
+         xs[i] = 0.01 + 10.0 * i / SAMPLES;
+      out = new double[SAMPLES];
+      batch = new BatchEvaluator();
+      cache = new ColumnCache(expression, "x", xs);
+   }
+
+   private void nextFrame() {
+      context.variables().put("a", (frame++ % 100) * 0.01);
+   }
+
+   @Benchmark
+   public double batch() {
+      nextFrame();
+      batch.evaluate(expression, context, "x", xs, out);
+      return out[SAMPLES / 2];
+   }
+
+   @Benchmark
+   public double cached() {
+      nextFrame();
+      cache.evaluate(context, out);
+      return out[SAMPLES / 2];
+   }
+}
@@ -0,0 +1,113 @@
+package graphogato.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import graphogato.symbolics.IncrementalParser;
+import graphogato.symbolics.ParseCache;
+import graphogato.symbolics.Parser;
+import graphogato.symbolics.expressions.Expression;
+
+/**
+ * Benchmarks of {@link Parser#parse(CharSequence)} on short and very long
+ * inputs, directly, through a {@link ParseCache}, and against the
+ * {@link LegacyParser} it replaced. The gc profiler reports the allocation per
+ * parse next to the timings. The edit benchmarks type and delete a character
+ * in the middle of the long input with an {@link IncrementalParser}.
+ *
+ * @author Gavin Borne
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ParserBenchmark {
+   static final String SHORT_INPUT = "sin(x)^2 + ln(x) * exp(0 - x)";
+
+   String longInput;
+   ParseCache cache;
+   IncrementalParser incremental;
+   int editOffset;
+   boolean typed = false;
+
+   @Setup
+   public void setup() {
+      longInput = longInput(500);
+      cache = new ParseCache();
+      incremental = new IncrementalParser();
+      incremental.parse(longInput);
+      // just after a "x + " in the middle term's divisor
+      editOffset = longInput.indexOf("(x + 250") + 5;
+   }
+
+   /**
+    * Build a long input, summing many terms like the ones in a saved worksheet.
+    *
+    * @param terms - Number of terms
+    * @return The input
+    */
+   static String longInput(int terms) {
+      StringBuilder builder = new StringBuilder();
+      for (int i = 0; i < terms; i++) {
+         if (i > 0)
+            builder.append(" + ");
+         builder.append(i).append(" * sin(x * ").append(i + 1).append(") ^ 2 / (x + ").append(i).append(".5)");
+      }
+      return builder.toString();
+   }
+
+   @Benchmark
+   public Expression parseShort() {
+      return Parser.parse(SHORT_INPUT);
+   }
+
+   @Benchmark
+   public Expression parseLong() {
+      return Parser.parse(longInput);
+   }
+
+   @Benchmark
+   public Expression parseShortCached() {
+      return cache.parse(SHORT_INPUT);
+   }
+
+   @Benchmark
+   public Expression parseLongCached() {
+      return cache.parse(longInput);
+   }
+
+   @Benchmark
+   public Expression editLong() {
+      typed = !typed;
+      return typed ? incremental.edit(editOffset, 0, "1") : incremental.edit(editOffset, 1, "");
+   }
+
+   @Benchmark
+   public Expression editLongFull() {
+      typed = !typed;
+      return Parser.parse(typed ? longInput.substring(0, editOffset) + "1" + longInput.substring(editOffset)
+            : longInput);
+   }
+
+   @Benchmark
+   public Expression parseShortLegacy() {
+      return LegacyParser.parse(SHORT_INPUT);
+   }
+
+   @Benchmark
+   public Expression parseLongLegacy() {
+      return LegacyParser.parse(longInput);
+   }
+}
@@ -0,0 +1,78 @@
+package graphogato.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import graphogato.symbolics.Parser;
+import graphogato.symbolics.expressions.Expression;
+
+/**
+ * Benchmarks of {@link Expression#simplify()} on the deep, unsimplified trees
+ * produced by repeated differentiation.
+ *
+ * @author Gavin Borne
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SimplifyBenchmark {
+   @Param({ "sin(x)^2 * exp(x) / x", "x^3 * ln(x) - 2 * x^2 + cos(x^2)" })
+   public String input;
+
+   @Param({ "2", "3", "4" })
+   public int order;
+
+   Expression tree;
+
+   @Setup
+   public void setup() {
+      tree = Parser.parse(input);
+      for (int i = 0; i < order; i++)
+         tree = tree.differentiate("x");
+   }
+
+   @Benchmark
+   public Expression simplify() {
+      return tree.simplify();
+   }
+
+   /**
+    * Simplify a tree no invocation has seen before, so nothing is memoized from
+    * earlier invocations and only the subtrees shared within the tree are
+    * reused.
+    */
+   @Benchmark
+   public Expression simplifyCold(Fresh fresh) {
+      return fresh.tree.simplify();
+   }
+
+   @State(Scope.Thread)
+   public static class Fresh {
+      Expression tree;
+      long count = 0;
+
+      @Setup(Level.Invocation)
+      public void setup(SimplifyBenchmark benchmark) {
+         // renaming the variable gives nodes that aren't interned yet
+         String variable = "x" + count++;
+         tree = Parser.parse(benchmark.input.replaceAll("\\bx\\b", variable));
+         for (int i = 0; i < benchmark.order; i++)
+            tree = tree.differentiate(variable);
+      }
+   }
+}
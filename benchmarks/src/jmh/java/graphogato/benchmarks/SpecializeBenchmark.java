@@ -0,0 +1,85 @@
+package graphogato.benchmarks;
+
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import graphogato.symbolics.EvaluationContext;
+import graphogato.symbolics.Parser;
+import graphogato.symbolics.Specializer;
+import graphogato.symbolics.expressions.Expression;
+
+/**
+ * Benchmarks of rendering an expression with fixed parameters, evaluating the
+ * whole tree for every sample against specializing it first with a
+ * {@link Specializer}, which hits its cache after the first render. Scores are
+ * per render.
+ *
+ * @author Gavin Borne
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SpecializeBenchmark {
+   static final int SAMPLES = 1_000;
+
+   @Param({ "a * sin(x) + ln(b)^3", "sin(k * pi / 4) * x^2 + exp(b - a) * cos(k * x) + a * b / (1 + k^2)" })
+   public String input;
+
+   EvaluationContext context;
+   Expression expression;
+   Specializer specializer;
+   double[] xs;
+
+   @Setup
+   public void setup() {
+      context = EvaluationContext.withBuiltins().extend()
+            .variable("pi", Math.PI)
+            .variable("a", 1.5)
+            .variable("b", 2.5)
+            .variable("k", 3)
+            .build()
+            .child();
+      expression = Parser.parse(input);
+      specializer = new Specializer();
+
+      xs = new double[SAMPLES];
+      for (int i = 0; i < SAMPLES; i++)
+         xs[i] = 0.01 + 10.0 * i / SAMPLES;
+   }
+
+   @Benchmark
+   public double tree() {
+      double sum = 0;
+      for (double x : xs) {
+         context.variables().put("x", x);
+         sum += expression.evaluate(context);
+      }
+      return sum;
+   }
+
+   @Benchmark
+   public double specialized() {
+      Expression specialized = specializer.specialize(expression, context, Set.of("x"));
+      double sum = 0;
+      for (double x : xs) {
+         context.variables().put("x", x);
+         sum += specialized.evaluate(context);
+      }
+      return sum;
+   }
+}
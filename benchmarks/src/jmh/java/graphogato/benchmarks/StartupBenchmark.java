@@ -0,0 +1,95 @@
+package graphogato.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import graphogato.symbolics.Builtins;
+import graphogato.symbolics.CompiledExpression;
+import graphogato.symbolics.EvaluationContext;
+import graphogato.symbolics.Evaluator;
+import graphogato.symbolics.ExpressionCompiler;
+import graphogato.symbolics.Parser;
+import graphogato.symbolics.Program;
+import graphogato.symbolics.expressions.Expression;
+
+/**
+ * Benchmarks of a one-off expression: getting it ready to evaluate and then
+ * evaluating it a few hundred times, with every evaluation mode that needs
+ * preparing first, and with an {@link Evaluator}, which should stay in its
+ * cheapest tier.
+ *
+ * @author Gavin Borne
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class StartupBenchmark {
+   static final int SAMPLES = 300;
+
+   @Param({ "sin(x)^2 + ln(x) * exp(0 - x)", "x^3 - 2 * x^2 + x / 5" })
+   public String input;
+
+   Expression expression;
+   EvaluationContext context;
+   Evaluator evaluator;
+
+   @Setup
+   public void setup() {
+      context = new EvaluationContext();
+      Builtins.install(context);
+      expression = Parser.parse(input);
+      evaluator = new Evaluator();
+   }
+
+   @Benchmark
+   public double bound() {
+      EvaluationContext local = context.child();
+      Expression bound = expression.bind(local);
+      int slot = local.slot("x");
+      double sum = 0;
+      for (int i = 0; i < SAMPLES; i++) {
+         local.setSlot(slot, 0.001 + i * 0.01);
+         sum += bound.evaluate(local);
+      }
+      return sum;
+   }
+
+   @Benchmark
+   public double program() {
+      return run(Program.compile(expression, context, "x"));
+   }
+
+   @Benchmark
+   public double compiled() {
+      return run(ExpressionCompiler.compile(expression, context, "x"));
+   }
+
+   @Benchmark
+   public double tiered() {
+      return run(evaluator.prepare(expression, context, "x"));
+   }
+
+   private static double run(CompiledExpression compiled) {
+      double[] vars = new double[1];
+      double sum = 0;
+      for (int i = 0; i < SAMPLES; i++) {
+         vars[0] = 0.001 + i * 0.01;
+         sum += compiled.applyAsDouble(vars);
+      }
+      return sum;
+   }
+}
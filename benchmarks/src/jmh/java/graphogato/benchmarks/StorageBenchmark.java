@@ -0,0 +1,72 @@
+package graphogato.benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import graphogato.storage.Worksheet;
+import graphogato.symbolics.Parser;
+import graphogato.symbolics.expressions.Expression;
+
+/**
+ * Benchmarks of loading a worksheet of 200 expressions and their derivatives,
+ * from the binary format and by parsing their text.
+ *
+ * @author Gavin Borne
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class StorageBenchmark {
+   static final String[] INPUTS = {
+         "sin(x)^2 + ln(x) * exp(0 - x)",
+         "x^3 - 2 * x^2 + x / 5",
+         "max(sin(x), cos(x)) * abs(x - 5)",
+         "(x + 1)^2 / (x^2 - 4) + x^0.5"
+   };
+
+   List<String> text;
+   byte[] binary;
+
+   @Setup
+   public void setup() {
+      List<Expression> expressions = new ArrayList<>();
+      for (int i = 0; i < 50; i++) {
+         for (String input : INPUTS) {
+            Expression expression = Parser.parse(input.replaceAll("\\bx\\b", "x" + i));
+            expressions.add(expression);
+            expressions.add(expression.differentiate("x" + i));
+         }
+      }
+      text = expressions.stream().map(Expression::toString).toList();
+      binary = new Worksheet(expressions, Map.of()).toBytes();
+   }
+
+   @Benchmark
+   public List<Expression> loadText() {
+      List<Expression> expressions = new ArrayList<>(text.size());
+      for (String line : text)
+         expressions.add(Parser.parse(line));
+      return expressions;
+   }
+
+   @Benchmark
+   public List<Expression> loadBinary() {
+      return Worksheet.fromBytes(binary).expressions();
+   }
+}
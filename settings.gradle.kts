@@ -12,3 +12,4 @@ plugins {
 
 rootProject.name = "Graphogato"
 include("app")
+include("benchmarks")